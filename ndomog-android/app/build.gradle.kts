@@ -1,9 +1,11 @@
+import com.android.build.api.variant.BuildConfigField
+
 plugins {
     id("com.android.application")
     id("org.jetbrains.kotlin.android")
-    id("com.google.devtools.ksp")
     id("org.jetbrains.kotlin.plugin.serialization")
     id("com.google.gms.google-services")
+    id("androidx.baselineprofile")
 }
 
 android {
@@ -25,6 +27,9 @@ android {
         // Supabase configuration
         buildConfigField("String", "SUPABASE_URL", "\"https://xatpuuwftjkxuwvretsu.supabase.co\"")
         buildConfigField("String", "SUPABASE_KEY", "\"sb_publishable_WgDl8kETPW40K9jCqVHSag_iVpW_B_-\"")
+
+        // Lets the :benchmark module seed synthetic data; only true in benchmark variants
+        buildConfigField("boolean", "BENCHMARK_SEEDING", "false")
     }
 
     buildTypes {
@@ -36,6 +41,13 @@ android {
             )
         }
     }
+
+    // Build types generated by the baseline profile plugin for :benchmark runs
+    buildTypes.configureEach {
+        if (name == "benchmarkRelease" || name == "nonMinifiedRelease") {
+            signingConfig = signingConfigs.getByName("debug")
+        }
+    }
     
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
@@ -60,6 +72,32 @@ android {
             excludes += "/META-INF/{AL2.0,LGPL2.1}"
         }
     }
+
+    testOptions {
+        unitTests {
+            // Robolectric needs merged resources for Room and Android framework classes
+            isIncludeAndroidResources = true
+            all { test ->
+                // Opt in to the sync benchmark suite with -PsyncBenchmark[=fullSizes]
+                project.findProperty("syncBenchmark")?.let { test.systemProperty("syncBenchmark", it.toString()) }
+                test.maxHeapSize = "2g"
+            }
+        }
+    }
+}
+
+androidComponents {
+    onVariants { variant ->
+        if (variant.name == "benchmarkRelease" || variant.name == "nonMinifiedRelease") {
+            variant.buildConfigFields.put("BENCHMARK_SEEDING", BuildConfigField("boolean", "true", null))
+        }
+    }
+}
+
+baselineProfile {
+    // Keep the generated profile in src/main so it ships with every release build
+    saveInSrc = true
+    mergeIntoMain = true
 }
 
 dependencies {
@@ -71,16 +109,14 @@ dependencies {
     implementation("io.github.jan-tennert.supabase:realtime-kt")
     implementation("io.github.jan-tennert.supabase:storage-kt")
 
-    // Ktor (for Supabase)
-    implementation("io.ktor:ktor-client-android:2.3.7")
+    // Ktor (for Supabase) - OkHttp engine for HTTP/2 and a shared connection pool
+    implementation("io.ktor:ktor-client-okhttp:2.3.7")
+    implementation("io.ktor:ktor-client-encoding:2.3.7")
     implementation("io.ktor:ktor-client-core:2.3.7")
     implementation("io.ktor:ktor-utils:2.3.7")
 
-    // Room database for offline storage
-    val roomVersion = "2.6.1"
-    implementation("androidx.room:room-runtime:$roomVersion")
-    implementation("androidx.room:room-ktx:$roomVersion")
-    ksp("androidx.room:room-compiler:$roomVersion")
+    // Room database for offline storage (entities, DAOs and migrations live in :database)
+    implementation(project(":database"))
 
     // Kotlin Coroutines
     implementation("org.jetbrains.kotlinx:kotlinx-coroutines-android:1.7.3")
@@ -129,6 +165,9 @@ dependencies {
     // Coil for image loading
     implementation("io.coil-kt:coil-compose:2.5.0")
 
+    // EXIF orientation for photos before upload
+    implementation("androidx.exifinterface:exifinterface:1.3.7")
+
     // Work Manager (for background sync)
     implementation("androidx.work:work-runtime-ktx:2.9.0")
 
@@ -139,14 +178,26 @@ dependencies {
     implementation("androidx.camera:camera-lifecycle:$cameraxVersion")
     implementation("androidx.camera:camera-view:$cameraxVersion")
 
+    // On-device barcode decoding for the scanner, model bundled so it works offline
+    implementation("com.google.mlkit:barcode-scanning:17.2.0")
+
     // Accompanist (for permissions)
     implementation("com.google.accompanist:accompanist-permissions:0.32.0")
 
     // Timber for logging
     implementation("com.jakewharton.timber:timber:5.0.1")
 
+    // Installs the baseline profile generated by :benchmark
+    implementation("androidx.profileinstaller:profileinstaller:1.3.1")
+    baselineProfile(project(":benchmark"))
+
     // Testing
     testImplementation("junit:junit:4.13.2")
+    testImplementation("org.robolectric:robolectric:4.11.1")
+    testImplementation("androidx.test:core:1.5.0")
+    testImplementation("androidx.work:work-testing:2.9.0")
+    testImplementation("io.ktor:ktor-client-mock:2.3.7")
+    testImplementation("org.jetbrains.kotlinx:kotlinx-coroutines-test:1.7.3")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
     androidTestImplementation(composeBom)
@@ -11,32 +11,25 @@ import androidx.compose.material3.MaterialTheme
 import androidx.compose.material3.Surface
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.DisposableEffect
-import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.collectAsState
 import androidx.compose.runtime.getValue
-import androidx.compose.runtime.mutableStateOf
-import androidx.compose.runtime.remember
-import androidx.compose.runtime.setValue
+import androidx.compose.ui.ExperimentalComposeUiApi
 import androidx.compose.ui.Modifier
-import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.semantics.testTagsAsResourceId
 import androidx.compose.ui.tooling.preview.Preview
 import androidx.core.content.ContextCompat
 import androidx.core.splashscreen.SplashScreen.Companion.installSplashScreen
 import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.lifecycleScope
 import com.ndomog.inventory.presentation.AppNavigation
 import com.ndomog.inventory.presentation.auth.PinLockScreen
 import com.ndomog.inventory.presentation.theme.NdomogTheme
-import com.ndomog.inventory.utils.PinPreferences
-import com.google.firebase.messaging.FirebaseMessaging
-import kotlinx.coroutines.flow.first
-import kotlinx.coroutines.runBlocking
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import com.ndomog.inventory.utils.BenchmarkSeeder
 import kotlinx.coroutines.launch
-import io.github.jan.supabase.postgrest.from
-import com.ndomog.inventory.data.remote.SupabaseClient
-import io.github.jan.supabase.gotrue.auth
 
+@OptIn(ExperimentalComposeUiApi::class)
 class MainActivity : ComponentActivity() {
     private val requestNotificationPermissionLauncher = registerForActivityResult(
         ActivityResultContracts.RequestPermission()
@@ -46,8 +39,14 @@ class MainActivity : ComponentActivity() {
 
     override fun onCreate(savedInstanceState: Bundle?) {
         // Install splash screen before calling super.onCreate
-        installSplashScreen()
+        val splashScreen = installSplashScreen()
         super.onCreate(savedInstanceState)
+
+        val app = application as NdomogApplication
+        // Hold the splash until the lock state is known, so the PIN screen never flickers in
+        val securityStateStore = app.container.securityStateStore
+        splashScreen.setKeepOnScreenCondition { !securityStateStore.isLoaded.value }
+
         // Request notification permission for Android 13+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
             if (ContextCompat.checkSelfPermission(
@@ -58,16 +57,26 @@ class MainActivity : ComponentActivity() {
                 requestNotificationPermissionLauncher.launch(Manifest.permission.POST_NOTIFICATIONS)
             }
         }
-        
-        val app = application as NdomogApplication
 
-        // Ensure FCM token is registered once user is available
-        registerFcmTokenIfAvailable()
-        
+        // Benchmark builds only: seed synthetic items requested by :benchmark
+        val seedCount = if (BuildConfig.BENCHMARK_SEEDING) intent.getIntExtra(BenchmarkSeeder.EXTRA_SEED_ITEMS, 0) else 0
+        if (seedCount > 0) {
+            BenchmarkSeeder.enableBenchmarkMode(this)
+            lifecycleScope.launch {
+                BenchmarkSeeder.seed(app.container.database, seedCount)
+            }
+        }
+
+        // FCM registration and update checks wait until the first frame is on screen
+        app.startup.runAfterFirstDraw(this)
+
         setContent {
             NdomogTheme {
                 Surface(
-                    modifier = Modifier.fillMaxSize(),
+                    // Expose test tags to UI Automator for the :benchmark journeys
+                    modifier = Modifier
+                        .fillMaxSize()
+                        .semantics { testTagsAsResourceId = true },
                     color = MaterialTheme.colorScheme.background
                 ) {
                     MainAppContent(app, this@MainActivity)
@@ -76,49 +85,15 @@ class MainActivity : ComponentActivity() {
         }
     }
 
-    private fun registerFcmTokenIfAvailable() {
-        val user = SupabaseClient.client.auth.currentUserOrNull() ?: return
-        val prefs = getSharedPreferences("ndomog_prefs", MODE_PRIVATE)
-        val pending = prefs.getString("pending_fcm_token", null)
-        if (!pending.isNullOrBlank()) {
-            CoroutineScope(Dispatchers.IO).launch {
-                runCatching {
-                    SupabaseClient.client.from("push_subscriptions").upsert(
-                        listOf(mapOf("user_id" to user.id, "token" to pending, "platform" to "android"))
-                    )
-                    prefs.edit().remove("pending_fcm_token").apply()
-                }
-            }
-        }
-
-        FirebaseMessaging.getInstance().token.addOnSuccessListener { token ->
-            CoroutineScope(Dispatchers.IO).launch {
-                runCatching {
-                    SupabaseClient.client.from("push_subscriptions").upsert(
-                        listOf(mapOf("user_id" to user.id, "token" to token, "platform" to "android"))
-                    )
-                }
-            }
-        }
-    }
 }
 
 @Composable
 fun MainAppContent(app: NdomogApplication, activity: MainActivity) {
-    val context = LocalContext.current
-    val pinPreferences = remember { PinPreferences(context) }
-    
-    // Track if PIN is enabled and if the app is locked
-    var isPinEnabled by remember { mutableStateOf(false) }
-    var isLocked by remember { mutableStateOf(false) }
-    var hasCheckedPin by remember { mutableStateOf(false) }
-    
-    // Check PIN enabled status on launch
-    LaunchedEffect(Unit) {
-        isPinEnabled = pinPreferences.isPinEnabled.first()
-        isLocked = isPinEnabled // Lock on first launch if PIN is enabled
-        hasCheckedPin = true
-    }
+    val securityStateStore = app.container.securityStateStore
+
+    // Lock state lives in memory; it is locked on launch if a PIN is set
+    val isLoaded by securityStateStore.isLoaded.collectAsState()
+    val isLocked by securityStateStore.isLocked.collectAsState()
     
     // Listen for app lifecycle to lock when returning from background
     DisposableEffect(activity) {
@@ -126,12 +101,7 @@ fun MainAppContent(app: NdomogApplication, activity: MainActivity) {
             when (event) {
                 Lifecycle.Event.ON_STOP -> {
                     // App is going to background - mark for lock on resume
-                    runBlocking {
-                        isPinEnabled = pinPreferences.isPinEnabled.first()
-                        if (isPinEnabled) {
-                            isLocked = true
-                        }
-                    }
+                    securityStateStore.onBackgrounded()
                 }
                 else -> {}
             }
@@ -143,18 +113,18 @@ fun MainAppContent(app: NdomogApplication, activity: MainActivity) {
     }
     
     // Show PIN lock screen if locked
-    if (!hasCheckedPin) {
+    if (!isLoaded) {
         // Still loading PIN state, show nothing
         Surface(modifier = Modifier.fillMaxSize()) {}
-    } else if (isLocked && isPinEnabled) {
+    } else if (isLocked) {
         PinLockScreen(
-            pinPreferences = pinPreferences,
+            securityStateStore = securityStateStore,
             onUnlock = {
-                isLocked = false
+                securityStateStore.unlock()
             }
         )
     } else {
-        AppNavigation(authRepository = app.authRepository, database = app.database)
+        AppNavigation(container = app.container)
     }
 }
 
@@ -1,56 +1,81 @@
 package com.ndomog.inventory
 
-import com.ndomog.inventory.data.local.MIGRATION_1_2 // Added import
-import com.ndomog.inventory.data.local.MIGRATION_2_3 // Added import
 import android.app.Application
 import android.app.NotificationChannel
 import android.app.NotificationManager
 import android.os.Build
-import androidx.room.Room
-import com.ndomog.inventory.data.local.NdomogDatabase
-import com.ndomog.inventory.data.repository.AuthRepository
+import coil.ImageLoader
+import coil.ImageLoaderFactory
 import com.ndomog.inventory.data.remote.SupabaseClient
+import com.ndomog.inventory.di.AppContainer
+import com.ndomog.inventory.services.AppReleaseService
+import com.ndomog.inventory.services.FcmTokenRegistrar
+import com.ndomog.inventory.startup.StartupPipeline
+import com.ndomog.inventory.startup.StartupPipeline.Stage
+import kotlinx.coroutines.launch
 import timber.log.Timber
 
-class NdomogApplication : Application() {
+class NdomogApplication : Application(), ImageLoaderFactory {
 
     companion object {
         const val NOTIFICATION_CHANNEL_ID = "ndomog_inventory_channel"
         const val NOTIFICATION_CHANNEL_NAME = "Inventory Updates"
     }
 
-// Database instance
-    val database: NdomogDatabase by lazy {
-        Room.databaseBuilder(
-            applicationContext,
-            NdomogDatabase::class.java,
-            "ndomog_inventory.db"
-        ).addMigrations(MIGRATION_1_2, MIGRATION_2_3) // Added migrations
-            .build()
+    // Shared dependencies (database, repositories, caches, image loader)
+    val container: AppContainer by lazy {
+        AppContainer(this)
     }
 
-    // AuthRepository instance
-    val authRepository: AuthRepository by lazy {
-        AuthRepository()
+    // Application-stage work runs in onCreate; the rest waits for MainActivity's first frame
+    val startup: StartupPipeline by lazy {
+        StartupPipeline(container.applicationScope)
+            .add("supabase", Stage.APPLICATION) {
+                // Initialize Supabase with Android context for proper session persistence
+                SupabaseClient.initialize(applicationContext)
+            }
+            .add("notificationChannel", Stage.APPLICATION) { createNotificationChannel() }
+            // Kick off the PIN/theme preference read so it is ready before the first frame
+            .add("securityState", Stage.APPLICATION) { container.securityStateStore }
+            .add("fcmRegistration", Stage.FIRST_DRAW) {
+                FcmTokenRegistrar(this, container.applicationScope).registerIfSignedIn()
+            }
+            .add("updateCheck", Stage.FIRST_DRAW) {
+                AppReleaseService(container.applicationScope).checkForUpdates(
+                    onUpdateAvailable = { Timber.i("Update available: ${it.version}") },
+                    onError = { Timber.d("Startup update check failed: $it") }
+                )
+            }
+            // Picks up uploads whose worker gave up or never ran
+            .add("photoUploads", Stage.FIRST_DRAW) {
+                container.applicationScope.launch { container.photoUploadQueue.resumePending() }
+            }
+            // Indexes items queued while the app was closed, e.g. after a schema upgrade
+            .add("searchIndex", Stage.FIRST_DRAW) {
+                container.applicationScope.launch { container.itemSearchIndex.catchUp() }
+            }
+            // Trims stale camera captures and cached photos back under the storage budget
+            .add("mediaBudget", Stage.FIRST_DRAW) {
+                container.applicationScope.launch { container.mediaCacheManager.enforceBudget() }
+            }
     }
 
     override fun onCreate() {
         super.onCreate()
 
-        // Initialize Supabase with Android context for proper session persistence
-        SupabaseClient.initialize(applicationContext)
-
         // Initialize Timber for logging
         if (BuildConfig.DEBUG) {
             Timber.plant(Timber.DebugTree())
         }
 
-        // Create notification channel
-        createNotificationChannel()
+        startup.runStage(Stage.APPLICATION)
 
         Timber.d("Ndomog Application initialized")
     }
 
+    // Coil picks this up for every AsyncImage in the app
+    override fun newImageLoader(): ImageLoader = container.imageLoader
+
     private fun createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             val channel = NotificationChannel(
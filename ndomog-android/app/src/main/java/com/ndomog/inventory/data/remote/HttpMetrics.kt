@@ -0,0 +1,160 @@
+package com.ndomog.inventory.data.remote
+
+import android.os.SystemClock
+import okhttp3.Interceptor
+import okhttp3.Response
+import okhttp3.ResponseBody.Companion.asResponseBody
+import okio.Buffer
+import okio.ForwardingSource
+import okio.buffer
+import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Traffic totals for one endpoint, e.g. `/rest/v1/items`.
+ */
+data class EndpointTraffic(
+    val endpoint: String,
+    val calls: Long,
+    val requestBytes: Long,
+    val responseBytes: Long,
+    val compressedResponses: Long
+)
+
+/**
+ * Process-wide counters of bytes actually sent and received on the wire.
+ *
+ * Response sizes are measured below the decompression layer, so gzip savings
+ * show up directly in [snapshot].
+ */
+object HttpMetrics {
+    private class Counters {
+        val calls = AtomicLong()
+        val requestBytes = AtomicLong()
+        val responseBytes = AtomicLong()
+        val compressedResponses = AtomicLong()
+    }
+
+    private val endpoints = ConcurrentHashMap<String, Counters>()
+
+    @Volatile
+    var logCalls: Boolean = false
+
+    fun record(
+        method: String,
+        endpoint: String,
+        status: Int,
+        requestBytes: Long,
+        responseBytes: Long,
+        contentEncoding: String?,
+        durationMs: Long
+    ) {
+        val counters = endpoints.getOrPut(endpoint) { Counters() }
+        counters.calls.incrementAndGet()
+        counters.requestBytes.addAndGet(requestBytes)
+        counters.responseBytes.addAndGet(responseBytes)
+        if (contentEncoding != null) counters.compressedResponses.incrementAndGet()
+
+        if (logCalls) {
+            Timber.d(
+                "HTTP %s %s %d sent=%dB received=%dB encoding=%s %dms",
+                method, endpoint, status, requestBytes, responseBytes, contentEncoding ?: "identity", durationMs
+            )
+        }
+    }
+
+    fun snapshot(): List<EndpointTraffic> = endpoints.map { (endpoint, counters) ->
+        EndpointTraffic(
+            endpoint = endpoint,
+            calls = counters.calls.get(),
+            requestBytes = counters.requestBytes.get(),
+            responseBytes = counters.responseBytes.get(),
+            compressedResponses = counters.compressedResponses.get()
+        )
+    }.sortedByDescending { it.responseBytes }
+
+    fun totalResponseBytes(): Long = endpoints.values.sumOf { it.responseBytes.get() }
+
+    fun reset() {
+        endpoints.clear()
+    }
+
+    /**
+     * Collapses ids and query strings so calls group by table or bucket.
+     */
+    internal fun endpointOf(path: String): String {
+        val segments = path.trim('/').split('/')
+        return "/" + segments.take(3).joinToString("/")
+    }
+}
+
+/**
+ * Network interceptor feeding [HttpMetrics]. It must be registered with
+ * `addNetworkInterceptor` so it sees the still-compressed response body.
+ */
+class WireMetricsInterceptor : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val startedAt = SystemClock.elapsedRealtime()
+        val response = chain.proceed(request)
+
+        val requestBytes = request.headers.byteCount() + (request.body?.contentLength()?.coerceAtLeast(0) ?: 0)
+        val headerBytes = response.headers.byteCount()
+        val endpoint = HttpMetrics.endpointOf(request.url.encodedPath)
+        val encoding = response.header("Content-Encoding")
+        val body = response.body ?: run {
+            HttpMetrics.record(request.method, endpoint, response.code, requestBytes, headerBytes, encoding, 0)
+            return response
+        }
+
+        val reported = AtomicBoolean(false)
+        val bodyBytes = AtomicLong()
+        fun report() {
+            if (reported.compareAndSet(false, true)) {
+                HttpMetrics.record(
+                    method = request.method,
+                    endpoint = endpoint,
+                    status = response.code,
+                    requestBytes = requestBytes,
+                    responseBytes = headerBytes + bodyBytes.get(),
+                    contentEncoding = encoding,
+                    durationMs = SystemClock.elapsedRealtime() - startedAt
+                )
+            }
+        }
+
+        val countingSource = object : ForwardingSource(body.source()) {
+            override fun read(sink: Buffer, byteCount: Long): Long {
+                val read = super.read(sink, byteCount)
+                if (read == -1L) report() else bodyBytes.addAndGet(read)
+                return read
+            }
+
+            override fun close() {
+                report()
+                super.close()
+            }
+        }
+
+        return response.newBuilder()
+            .body(countingSource.buffer().asResponseBody(body.contentType(), body.contentLength()))
+            .build()
+    }
+}
+
+/**
+ * Applies the per-operation timeouts from [SupabaseHttpConfig] to each call.
+ */
+class OperationTimeoutInterceptor(private val config: SupabaseHttpConfig) : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val timeouts = config.timeoutsFor(chain.request().url.encodedPath)
+        return chain
+            .withConnectTimeout(timeouts.connect.inWholeMilliseconds.toInt(), TimeUnit.MILLISECONDS)
+            .withReadTimeout(timeouts.read.inWholeMilliseconds.toInt(), TimeUnit.MILLISECONDS)
+            .withWriteTimeout(timeouts.write.inWholeMilliseconds.toInt(), TimeUnit.MILLISECONDS)
+            .proceed(chain.request())
+    }
+}
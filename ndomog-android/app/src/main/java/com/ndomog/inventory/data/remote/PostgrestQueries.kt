@@ -0,0 +1,80 @@
+package com.ndomog.inventory.data.remote
+
+import io.github.jan.supabase.postgrest.query.Columns
+import io.github.jan.supabase.postgrest.query.Order
+import io.github.jan.supabase.postgrest.query.PostgrestQueryBuilder
+import io.github.jan.supabase.postgrest.query.filter.PostgrestFilterBuilder
+import kotlinx.serialization.Serializable
+
+/**
+ * Rows per request when paging through a table. Supabase caps responses at
+ * 1000 rows by default, so larger pages would silently truncate.
+ */
+const val DEFAULT_PAGE_SIZE = 1000
+
+/**
+ * Column projections for every remote read, so each screen only downloads what it uses.
+ */
+object RemoteColumns {
+    val ITEM = Columns.list(
+        "id", "name", "category", "category_id", "details", "barcode", "photo_url", "thumbnail_url",
+        "buying_price", "selling_price", "quantity", "low_stock_threshold",
+        "is_deleted", "created_by", "created_at", "updated_at", "deleted_at", "deleted_by"
+    )
+    val CATEGORY = Columns.list("id", "name", "created_by", "created_at")
+    val PROFILE = Columns.list("id", "email", "username", "avatar_url")
+    val PROFILE_ID = Columns.list("id")
+    val USER_ROLE = Columns.list("id", "user_id", "role")
+    val NOTIFICATION = Columns.list(
+        "id", "user_id", "action_user_id", "action_user_email", "action",
+        "item_name", "details", "is_read", "created_at"
+    )
+    val ITEM_PHOTO = Columns.list("id", "item_id", "url", "thumbnail_url", "position", "created_at")
+    val APP_RELEASE = Columns.list("id", "version", "version_code", "release_notes", "download_url", "release_date")
+    val PUSH_SUBSCRIPTION = Columns.list("user_id", "token")
+}
+
+@Serializable
+data class RemoteId(val id: String)
+
+/**
+ * Reads every matching row in pages of [pageSize] using `range()`, ordered by
+ * [orderBy] and then by the unique [tieBreaker] column, so pages never overlap
+ * or skip rows even when [orderBy] has duplicates.
+ */
+suspend inline fun <reified T : Any> PostgrestQueryBuilder.selectAllPaged(
+    columns: Columns,
+    orderBy: String = "id",
+    tieBreaker: String = "id",
+    pageSize: Int = DEFAULT_PAGE_SIZE,
+    crossinline filters: PostgrestFilterBuilder.() -> Unit = {}
+): List<T> {
+    val rows = mutableListOf<T>()
+    forEachPage<T>(columns, orderBy, tieBreaker, pageSize, filters) { page -> rows += page }
+    return rows
+}
+
+/**
+ * Like [selectAllPaged] but hands each page to [onPage] instead of accumulating them.
+ */
+suspend inline fun <reified T : Any> PostgrestQueryBuilder.forEachPage(
+    columns: Columns,
+    orderBy: String = "id",
+    tieBreaker: String = "id",
+    pageSize: Int = DEFAULT_PAGE_SIZE,
+    crossinline filters: PostgrestFilterBuilder.() -> Unit = {},
+    onPage: (List<T>) -> Unit
+) {
+    var from = 0L
+    while (true) {
+        val page = select(columns) {
+            filter { filters() }
+            // One order parameter with both keys, i.e. order=<orderBy>.asc,<tieBreaker>.asc
+            order(if (tieBreaker == orderBy) orderBy else "$orderBy.asc,$tieBreaker", Order.ASCENDING)
+            range(from, from + pageSize - 1)
+        }.decodeList<T>()
+        if (page.isNotEmpty()) onPage(page)
+        if (page.size < pageSize) break
+        from += pageSize
+    }
+}
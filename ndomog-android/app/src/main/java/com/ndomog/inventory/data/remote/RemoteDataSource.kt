@@ -0,0 +1,125 @@
+package com.ndomog.inventory.data.remote
+
+import com.ndomog.inventory.data.models.ActivityLog
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.JsonObject
+
+/**
+ * One row of the `inventory_digest` RPC, or the same figures computed locally.
+ */
+@Serializable
+data class BucketDigest(
+    val bucket: Int,
+    @SerialName("row_count")
+    val rowCount: Long,
+    val digest: String
+)
+
+@Serializable
+data class NotificationInsert(
+    val id: String,
+    val user_id: String,
+    val action_user_id: String,
+    val action_user_email: String,
+    val action: String,
+    val item_name: String,
+    val details: String?,
+    val is_read: Boolean = false
+)
+
+@Serializable
+data class BarcodeProduct(
+    val name: String,
+    val category: String? = null,
+    val details: String? = null,
+    val imageUrl: String? = null,
+    val brand: String? = null
+)
+
+// Response of the barcode-lookup edge function
+@Serializable
+data class BarcodeLookupResponse(
+    val found: Boolean = false,
+    val product: BarcodeProduct? = null
+)
+
+// One counted item sent to the commit_stock_take RPC
+@Serializable
+data class StockTakeCount(
+    @SerialName("item_id")
+    val itemId: String,
+    val counted: Int
+)
+
+// An item commit_stock_take applied a count to; the quantities are equal if it did not change
+@Serializable
+data class StockTakeAdjustment(
+    @SerialName("item_id")
+    val itemId: String,
+    @SerialName("previous_quantity")
+    val previousQuantity: Int,
+    @SerialName("new_quantity")
+    val newQuantity: Int,
+    @SerialName("updated_at")
+    val updatedAt: String? = null
+)
+
+/**
+ * Every remote call made by the item and sync repositories.
+ *
+ * [SupabaseRemoteDataSource] talks to the real project; tests and benchmarks
+ * plug in a Supabase client backed by a fake PostgREST engine instead.
+ */
+interface RemoteDataSource {
+    suspend fun fetchItemDigests(bucketCount: Int): List<BucketDigest>
+
+    /**
+     * Streams one page of live items matching [filters] (PostgREST `column=op.value`
+     * pairs) to [onItem] without materialising the page. Returns the row count.
+     */
+    suspend fun streamItems(
+        offset: Long,
+        limit: Int,
+        filters: List<Pair<String, String>>,
+        onItem: suspend (Item) -> Unit
+    ): Int
+
+    /**
+     * Photos of items whose id is in [[fromItemId], [toItemId]); null bounds are open.
+     */
+    suspend fun fetchItemPhotos(fromItemId: String?, toItemId: String?): List<ItemPhoto>
+
+    suspend fun fetchPhotosForItem(itemId: String): List<ItemPhoto>
+
+    suspend fun insertItemPhotos(photos: List<ItemPhoto>)
+
+    suspend fun deleteItemPhotos(ids: List<String>)
+
+    suspend fun updateItemPhotoPosition(id: String, position: Int)
+
+    suspend fun insertItem(item: Item)
+
+    suspend fun updateItem(item: Item)
+
+    suspend fun updateItemFields(id: String, fields: JsonObject)
+
+    suspend fun insertCategory(fields: JsonObject)
+
+    suspend fun insertActivityLog(log: ActivityLog)
+
+    suspend fun fetchOtherUserIds(excludingUserId: String): List<String>
+
+    suspend fun insertNotifications(notifications: List<NotificationInsert>)
+
+    /** Asks the public product databases, through the barcode-lookup edge function. */
+    suspend fun lookupBarcode(barcode: String): BarcodeLookupResponse
+
+    /**
+     * Sets every counted item to its count in one server transaction, logged as
+     * a single stock take. Committing the same [sessionId] again changes nothing.
+     */
+    suspend fun commitStockTake(sessionId: String, counts: List<StockTakeCount>, note: String?): List<StockTakeAdjustment>
+}
@@ -9,20 +9,53 @@ import io.github.jan.supabase.gotrue.SessionManager
 import io.github.jan.supabase.postgrest.Postgrest
 import io.github.jan.supabase.realtime.Realtime
 import io.github.jan.supabase.storage.Storage
-
-import kotlin.time.Duration.Companion.seconds
+import io.ktor.client.engine.HttpClientEngine
+import io.ktor.client.engine.okhttp.OkHttp
+import io.ktor.client.plugins.compression.ContentEncoding
+import okhttp3.ConnectionPool
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import java.util.concurrent.TimeUnit
 
 object SupabaseClient {
     lateinit var client: io.github.jan.supabase.SupabaseClient
         private set
 
-    fun initialize(context: Context) {
+    /**
+     * Single OkHttp instance (and connection pool) behind every Supabase plugin.
+     * Other HTTP users such as image loading should derive from it with `newBuilder()`.
+     */
+    lateinit var okHttpClient: OkHttpClient
+        private set
+
+    lateinit var httpEngine: HttpClientEngine
+        private set
+
+    var httpConfig: SupabaseHttpConfig = SupabaseHttpConfig()
+        private set
+
+    fun initialize(context: Context, config: SupabaseHttpConfig = SupabaseHttpConfig(logTraffic = BuildConfig.DEBUG)) {
         if (!::client.isInitialized) {
+            httpConfig = config
+            HttpMetrics.logCalls = config.logTraffic
+            okHttpClient = buildOkHttpClient(config)
+            httpEngine = OkHttp.create {
+                preconfigured = okHttpClient
+            }
             client = createSupabaseClient(
                 supabaseUrl = BuildConfig.SUPABASE_URL,
                 supabaseKey = BuildConfig.SUPABASE_KEY
             ) {
                 defaultSerializer = io.github.jan.supabase.serializer.KotlinXSerializer(json = kotlinx.serialization.json.Json { ignoreUnknownKeys = true })
+                httpEngine = this@SupabaseClient.httpEngine
+                requestTimeout = config.requestTimeout
+                httpConfig {
+                    if (config.gzipResponses) {
+                        install(ContentEncoding) {
+                            gzip()
+                        }
+                    }
+                }
                 install(Auth) {
                     flowType = FlowType.PKCE
                     scheme = "com.ndomog.app"
@@ -35,9 +68,24 @@ object SupabaseClient {
                 install(Postgrest)
                 install(Realtime)
                 install(Storage) {
-                    transferTimeout = 90.seconds
+                    transferTimeout = config.storageTransferTimeout
                 }
             }
         }
     }
+
+    private fun buildOkHttpClient(config: SupabaseHttpConfig): OkHttpClient {
+        return OkHttpClient.Builder()
+            .protocols(listOf(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .connectionPool(
+                ConnectionPool(config.maxIdleConnections, config.keepAlive.inWholeMilliseconds, TimeUnit.MILLISECONDS)
+            )
+            .connectTimeout(config.rest.connect.inWholeMilliseconds, TimeUnit.MILLISECONDS)
+            .readTimeout(config.rest.read.inWholeMilliseconds, TimeUnit.MILLISECONDS)
+            .writeTimeout(config.rest.write.inWholeMilliseconds, TimeUnit.MILLISECONDS)
+            .retryOnConnectionFailure(true)
+            .addInterceptor(OperationTimeoutInterceptor(config))
+            .addNetworkInterceptor(WireMetricsInterceptor())
+            .build()
+    }
 }
@@ -0,0 +1,42 @@
+package com.ndomog.inventory.data.remote
+
+import kotlin.time.Duration
+import kotlin.time.Duration.Companion.minutes
+import kotlin.time.Duration.Companion.seconds
+
+/**
+ * Connect/read/write timeouts applied to a single kind of Supabase call.
+ */
+data class HttpTimeouts(
+    val connect: Duration,
+    val read: Duration,
+    val write: Duration
+)
+
+/**
+ * Tunables for the HTTP stack shared by every Supabase plugin.
+ *
+ * Timeouts are chosen per operation from the request path, so a slow photo upload
+ * does not force long waits on PostgREST reads and vice versa.
+ */
+data class SupabaseHttpConfig(
+    val rest: HttpTimeouts = HttpTimeouts(connect = 10.seconds, read = 30.seconds, write = 15.seconds),
+    val auth: HttpTimeouts = HttpTimeouts(connect = 10.seconds, read = 15.seconds, write = 15.seconds),
+    val storage: HttpTimeouts = HttpTimeouts(connect = 15.seconds, read = 90.seconds, write = 90.seconds),
+    val functions: HttpTimeouts = HttpTimeouts(connect = 10.seconds, read = 30.seconds, write = 15.seconds),
+    // Upper bound for a whole request as enforced by the Supabase SDK
+    val requestTimeout: Duration = 60.seconds,
+    val storageTransferTimeout: Duration = 90.seconds,
+    // Shared connection pool, reused by every plugin and by image loading
+    val maxIdleConnections: Int = 5,
+    val keepAlive: Duration = 5.minutes,
+    val gzipResponses: Boolean = true,
+    val logTraffic: Boolean = false
+) {
+    fun timeoutsFor(path: String): HttpTimeouts = when {
+        path.startsWith("/storage/") -> storage
+        path.startsWith("/auth/") -> auth
+        path.startsWith("/functions/") -> functions
+        else -> rest
+    }
+}
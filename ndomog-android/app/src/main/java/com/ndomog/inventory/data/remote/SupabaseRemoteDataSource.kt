@@ -0,0 +1,215 @@
+package com.ndomog.inventory.data.remote
+
+import com.ndomog.inventory.BuildConfig
+import com.ndomog.inventory.data.models.ActivityLog
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.models.ItemPhotoInsert
+import io.github.jan.supabase.gotrue.auth
+import io.github.jan.supabase.postgrest.from
+import io.github.jan.supabase.postgrest.postgrest
+import io.github.jan.supabase.postgrest.query.Order
+import io.ktor.client.HttpClient
+import io.ktor.client.plugins.compression.ContentEncoding
+import io.ktor.client.request.header
+import io.ktor.client.request.parameter
+import io.ktor.client.request.post
+import io.ktor.client.request.prepareGet
+import io.ktor.client.request.setBody
+import io.ktor.client.statement.bodyAsChannel
+import io.ktor.client.statement.bodyAsText
+import io.ktor.http.ContentType
+import io.ktor.http.HttpHeaders
+import io.ktor.http.content.TextContent
+import io.ktor.http.isSuccess
+import io.ktor.utils.io.jvm.javaio.toInputStream
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.builtins.ListSerializer
+import kotlinx.serialization.json.DecodeSequenceMode
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonObject
+import kotlinx.serialization.json.buildJsonObject
+import kotlinx.serialization.json.decodeToSequence
+import kotlinx.serialization.json.put
+
+/**
+ * [RemoteDataSource] backed by Supabase. Item pages are streamed and edge functions
+ * called with [httpClient], which should share the engine of [supabase].
+ */
+class SupabaseRemoteDataSource(
+    private val supabase: io.github.jan.supabase.SupabaseClient,
+    private val httpClient: HttpClient,
+    private val supabaseUrl: String = BuildConfig.SUPABASE_URL,
+    private val supabaseKey: String = BuildConfig.SUPABASE_KEY
+) : RemoteDataSource {
+    companion object {
+        private val json = Json { ignoreUnknownKeys = true }
+
+        /**
+         * Streaming client on the shared engine (and connection pool) of [SupabaseClient].
+         */
+        fun createDefault(): SupabaseRemoteDataSource = SupabaseRemoteDataSource(
+            supabase = SupabaseClient.client,
+            httpClient = HttpClient(SupabaseClient.httpEngine) {
+                install(ContentEncoding) {
+                    gzip()
+                }
+            }
+        )
+    }
+
+    override suspend fun fetchItemDigests(bucketCount: Int): List<BucketDigest> {
+        return supabase.postgrest
+            .rpc("inventory_digest", buildJsonObject { put("bucket_count", bucketCount) })
+            .decodeList<BucketDigest>()
+    }
+
+    @OptIn(ExperimentalSerializationApi::class)
+    override suspend fun streamItems(
+        offset: Long,
+        limit: Int,
+        filters: List<Pair<String, String>>,
+        onItem: suspend (Item) -> Unit
+    ): Int {
+        val accessToken = runCatching { supabase.auth.currentSessionOrNull()?.accessToken }.getOrNull()
+            ?: supabaseKey
+
+        return httpClient.prepareGet("$supabaseUrl/rest/v1/items") {
+            parameter("select", RemoteColumns.ITEM.value)
+            parameter("is_deleted", "eq.false")
+            filters.forEach { (column, condition) -> parameter(column, condition) }
+            parameter("order", "id.asc")
+            parameter("offset", offset)
+            parameter("limit", limit)
+            header("apikey", supabaseKey)
+            header(HttpHeaders.Authorization, "Bearer $accessToken")
+        }.execute { response ->
+            if (!response.status.isSuccess()) {
+                throw IllegalStateException("Item fetch failed: ${response.status}")
+            }
+
+            var count = 0
+            response.bodyAsChannel().toInputStream().use { stream ->
+                json.decodeToSequence<Item>(stream, DecodeSequenceMode.ARRAY_WRAPPED).forEach { item ->
+                    onItem(item)
+                    count++
+                }
+            }
+            count
+        }
+    }
+
+    override suspend fun fetchItemPhotos(fromItemId: String?, toItemId: String?): List<ItemPhoto> {
+        return supabase.from("item_photos")
+            .selectAllPaged<ItemPhoto>(RemoteColumns.ITEM_PHOTO) {
+                if (fromItemId != null) gte("item_id", fromItemId)
+                if (toItemId != null) lt("item_id", toItemId)
+            }
+    }
+
+    override suspend fun fetchPhotosForItem(itemId: String): List<ItemPhoto> {
+        return supabase.from("item_photos")
+            .select(RemoteColumns.ITEM_PHOTO) {
+                filter {
+                    eq("item_id", itemId)
+                }
+                order("position", Order.ASCENDING)
+            }
+            .decodeList<ItemPhoto>()
+    }
+
+    override suspend fun insertItemPhotos(photos: List<ItemPhoto>) {
+        // Rows carry client-generated ids so the local cache matches the server
+        supabase.from("item_photos").insert(
+            photos.map { ItemPhotoInsert(it.id, it.itemId, it.url, it.thumbnailUrl, it.position) }
+        )
+    }
+
+    override suspend fun deleteItemPhotos(ids: List<String>) {
+        supabase.from("item_photos").delete {
+            filter {
+                isIn("id", ids)
+            }
+        }
+    }
+
+    override suspend fun updateItemPhotoPosition(id: String, position: Int) {
+        supabase.from("item_photos").update(buildJsonObject { put("position", position) }) {
+            filter {
+                eq("id", id)
+            }
+        }
+    }
+
+    override suspend fun insertItem(item: Item) {
+        supabase.from("items").insert(item)
+    }
+
+    override suspend fun updateItem(item: Item) {
+        supabase.from("items").update(item) {
+            filter {
+                eq("id", item.id)
+            }
+        }
+    }
+
+    override suspend fun updateItemFields(id: String, fields: JsonObject) {
+        supabase.from("items").update(fields) {
+            filter {
+                eq("id", id)
+            }
+        }
+    }
+
+    override suspend fun insertCategory(fields: JsonObject) {
+        supabase.from("categories").insert(fields)
+    }
+
+    override suspend fun insertActivityLog(log: ActivityLog) {
+        supabase.from("activity_logs").insert(log)
+    }
+
+    override suspend fun fetchOtherUserIds(excludingUserId: String): List<String> {
+        return supabase.from("profiles")
+            .selectAllPaged<RemoteId>(RemoteColumns.PROFILE_ID) {
+                neq("id", excludingUserId)
+            }
+            .map { it.id }
+    }
+
+    override suspend fun insertNotifications(notifications: List<NotificationInsert>) {
+        supabase.from("notifications").insert(notifications)
+    }
+
+    override suspend fun lookupBarcode(barcode: String): BarcodeLookupResponse {
+        val accessToken = runCatching { supabase.auth.currentSessionOrNull()?.accessToken }.getOrNull()
+            ?: supabaseKey
+
+        val response = httpClient.post("$supabaseUrl/functions/v1/barcode-lookup") {
+            header("apikey", supabaseKey)
+            header(HttpHeaders.Authorization, "Bearer $accessToken")
+            setBody(TextContent(buildJsonObject { put("barcode", barcode) }.toString(), ContentType.Application.Json))
+        }
+        if (!response.status.isSuccess()) {
+            throw IllegalStateException("Barcode lookup failed: ${response.status}")
+        }
+        return json.decodeFromString(response.bodyAsText())
+    }
+
+    override suspend fun commitStockTake(
+        sessionId: String,
+        counts: List<StockTakeCount>,
+        note: String?
+    ): List<StockTakeAdjustment> {
+        return supabase.postgrest
+            .rpc(
+                "commit_stock_take",
+                buildJsonObject {
+                    put("session_id", sessionId)
+                    put("counts", json.encodeToJsonElement(ListSerializer(StockTakeCount.serializer()), counts))
+                    put("note", note)
+                }
+            )
+            .decodeList<StockTakeAdjustment>()
+    }
+}
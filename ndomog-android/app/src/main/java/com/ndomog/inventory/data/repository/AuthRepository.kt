@@ -1,6 +1,7 @@
 package com.ndomog.inventory.data.repository
 
 import com.ndomog.inventory.data.models.Profile
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
 import io.github.jan.supabase.gotrue.auth
 import io.github.jan.supabase.gotrue.providers.builtin.Email
@@ -9,8 +10,9 @@ import io.github.jan.supabase.postgrest.from
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
 
-class AuthRepository {
-    private val supabase = SupabaseClient.client
+class AuthRepository(
+    private val supabase: io.github.jan.supabase.SupabaseClient = SupabaseClient.client
+) {
 
     suspend fun signUp(email: String, password: String): Result<Unit> {
         return try {
@@ -56,6 +58,10 @@ class AuthRepository {
         return supabase.auth.currentSessionOrNull()?.user?.email
     }
 
+    fun getAccessToken(): String? {
+        return supabase.auth.currentSessionOrNull()?.accessToken
+    }
+
     fun isLoggedIn(): Boolean {
         return supabase.auth.currentSessionOrNull() != null
     }
@@ -68,8 +74,9 @@ class AuthRepository {
     suspend fun fetchProfile(userId: String): Profile? {
         return try {
             supabase.from("profiles")
-                .select {
+                .select(RemoteColumns.PROFILE) {
                     filter { eq("id", userId) }
+                    limit(1)
                 }
                 .decodeList<Profile>()
                 .firstOrNull()
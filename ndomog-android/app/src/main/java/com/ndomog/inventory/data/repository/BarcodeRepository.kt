@@ -0,0 +1,83 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.BarcodeLookupDao
+import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.models.BarcodeLookup
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import kotlinx.coroutines.CancellationException
+import timber.log.Timber
+
+sealed interface BarcodeResolution {
+    val barcode: String
+
+    /** An item in the inventory carries the code. */
+    data class KnownItem(override val barcode: String, val item: Item) : BarcodeResolution
+
+    /** No item carries the code, but a product database knows it. */
+    data class Product(override val barcode: String, val lookup: BarcodeLookup) : BarcodeResolution
+
+    /** Nobody knows the code. */
+    data class Unknown(override val barcode: String) : BarcodeResolution
+
+    /** No item carries the code and the lookup could not be made, e.g. offline. */
+    data class Unavailable(override val barcode: String, val message: String) : BarcodeResolution
+}
+
+/**
+ * Resolves scanned barcodes, locally whenever possible.
+ *
+ * Items are found through the indexed barcode column, so known parts resolve
+ * offline. Only codes no item carries go to the barcode-lookup edge function,
+ * and its answer is cached in Room; misses are retried after [MISS_TTL_MS].
+ */
+class BarcodeRepository(
+    private val itemDao: ItemDao,
+    private val barcodeLookupDao: BarcodeLookupDao,
+    private val remote: RemoteDataSource
+) {
+    companion object {
+        // Product databases grow, so an unknown code is asked about again after a week
+        const val MISS_TTL_MS = 7L * 24 * 60 * 60 * 1000
+    }
+
+    suspend fun resolve(rawBarcode: String): BarcodeResolution {
+        val barcode = rawBarcode.trim()
+        itemDao.getItemByBarcode(barcode)?.let { return BarcodeResolution.KnownItem(barcode, it) }
+
+        val cached = barcodeLookupDao.getLookup(barcode)
+        if (cached != null && (cached.found || System.currentTimeMillis() - cached.fetchedAt < MISS_TTL_MS)) {
+            return cached.toResolution()
+        }
+
+        return try {
+            val response = remote.lookupBarcode(barcode)
+            val product = response.product
+            val lookup = if (response.found && product != null) {
+                BarcodeLookup(
+                    barcode = barcode,
+                    found = true,
+                    name = product.name,
+                    category = product.category,
+                    details = product.details,
+                    imageUrl = product.imageUrl,
+                    brand = product.brand
+                )
+            } else {
+                BarcodeLookup(barcode = barcode, found = false)
+            }
+            barcodeLookupDao.insertLookup(lookup)
+            lookup.toResolution()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Timber.w(e, "Barcode lookup for $barcode failed")
+            // An expired miss is still better than nothing
+            cached?.toResolution() ?: BarcodeResolution.Unavailable(barcode, "Couldn't look up barcode $barcode")
+        }
+    }
+
+    private fun BarcodeLookup.toResolution(): BarcodeResolution {
+        return if (found) BarcodeResolution.Product(barcode, this) else BarcodeResolution.Unknown(barcode)
+    }
+}
@@ -0,0 +1,60 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.models.ItemDigestRow
+import com.ndomog.inventory.data.remote.BucketDigest
+import java.security.MessageDigest
+import java.time.OffsetDateTime
+
+/**
+ * Client half of the `inventory_digest` RPC. Must stay in step with the SQL in
+ * `supabase/migrations/20260201090000_add_inventory_digest.sql`.
+ */
+object CatalogDigest {
+    const val BUCKET_COUNT = 16
+
+    fun bucketOf(id: String, bucketCount: Int = BUCKET_COUNT): Int {
+        val firstByte = id.take(2).toIntOrNull(16) ?: 0
+        return firstByte * bucketCount / 256
+    }
+
+    /**
+     * Lower (inclusive) and upper (exclusive, null for the last bucket) id bounds of [bucket].
+     */
+    fun idRange(bucket: Int, bucketCount: Int = BUCKET_COUNT): Pair<String, String?> {
+        val lowByte = (bucket * 256 + bucketCount - 1) / bucketCount
+        val highByte = ((bucket + 1) * 256 + bucketCount - 1) / bucketCount
+        return Pair(uuidPrefix(lowByte), if (highByte >= 256) null else uuidPrefix(highByte))
+    }
+
+    fun localDigests(rows: List<ItemDigestRow>, bucketCount: Int = BUCKET_COUNT): Map<Int, BucketDigest> {
+        return rows.groupBy { bucketOf(it.id, bucketCount) }
+            .mapValues { (bucket, bucketRows) ->
+                val joined = bucketRows.sortedBy { it.id }
+                    .joinToString(",") { "${it.id}:${epochMillis(it.updatedAt)}" }
+                BucketDigest(bucket, bucketRows.size.toLong(), md5Hex(joined))
+            }
+    }
+
+    /**
+     * Buckets whose contents differ, including buckets present on only one side.
+     */
+    fun mismatchedBuckets(remote: Map<Int, BucketDigest>, local: Map<Int, BucketDigest>): Set<Int> {
+        return (remote.keys + local.keys).filterTo(sortedSetOf()) { remote[it] != local[it] }
+    }
+
+    private fun epochMillis(timestamp: String?): Long {
+        if (timestamp == null) return 0
+        return try {
+            OffsetDateTime.parse(timestamp).toInstant().toEpochMilli()
+        } catch (e: Exception) {
+            0
+        }
+    }
+
+    private fun md5Hex(value: String): String {
+        val bytes = MessageDigest.getInstance("MD5").digest(value.toByteArray(Charsets.UTF_8))
+        return bytes.joinToString("") { "%02x".format(it) }
+    }
+
+    private fun uuidPrefix(byte: Int) = "%02x000000-0000-0000-0000-000000000000".format(byte)
+}
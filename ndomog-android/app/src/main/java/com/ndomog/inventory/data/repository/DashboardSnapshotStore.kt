@@ -0,0 +1,160 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.models.DashboardStats
+import com.ndomog.inventory.data.models.Item
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * What the dashboard shows before Room has answered: the first screenful of
+ * items, the category filter and the totals.
+ */
+data class DashboardSnapshot(
+    val items: List<Item>,
+    val categories: List<String>,
+    val stats: DashboardStats
+)
+
+/**
+ * Compact binary copy of the dashboard's first screen, written after each
+ * successful sync and memory-mapped on cold start.
+ *
+ * Only the fields the list card needs are stored. The file is replaced
+ * atomically, so a crash mid-write leaves the previous snapshot in place.
+ */
+class DashboardSnapshotStore(
+    private val file: File,
+    private val itemDao: ItemDao,
+    private val rowCount: Int = DEFAULT_ROW_COUNT
+) {
+    companion object {
+        const val DEFAULT_ROW_COUNT = 20
+
+        private const val MAGIC = 0x4E444D53 // "NDMS"
+        private const val VERSION = 2
+    }
+
+    suspend fun read(): DashboardSnapshot? = withContext(Dispatchers.IO) {
+        if (!file.exists()) return@withContext null
+        try {
+            RandomAccessFile(file, "r").use { raf ->
+                val buffer = raf.channel.map(FileChannel.MapMode.READ_ONLY, 0, raf.length())
+                decode(buffer)
+            }
+        } catch (e: Exception) {
+            Timber.w(e, "Discarding unreadable dashboard snapshot")
+            file.delete()
+            null
+        }
+    }
+
+    /**
+     * Captures the current Room contents. Call after a sync has finished writing.
+     */
+    suspend fun capture() = withContext(Dispatchers.IO) {
+        try {
+            val snapshot = DashboardSnapshot(
+                items = itemDao.getFirstItemsByName(rowCount),
+                categories = itemDao.observeCategoryNames().first(),
+                stats = itemDao.observeDashboardStats().first()
+            )
+            write(snapshot)
+        } catch (e: Exception) {
+            Timber.w(e, "Failed to write dashboard snapshot")
+        }
+    }
+
+    fun clear() {
+        file.delete()
+    }
+
+    private fun write(snapshot: DashboardSnapshot) {
+        val tmp = File(file.parentFile, "${file.name}.tmp")
+        DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { out ->
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+
+            out.writeInt(snapshot.stats.totalQuantity)
+            out.writeDouble(snapshot.stats.totalCost)
+            out.writeDouble(snapshot.stats.potentialProfit)
+            out.writeInt(snapshot.stats.lowStockCount)
+
+            out.writeInt(snapshot.categories.size)
+            snapshot.categories.forEach { out.writeString(it) }
+
+            out.writeInt(snapshot.items.size)
+            snapshot.items.forEach { item ->
+                out.writeString(item.id)
+                out.writeString(item.name)
+                out.writeString(item.category)
+                out.writeString(item.details)
+                out.writeString(item.photoUrl)
+                out.writeString(item.thumbnailUrl)
+                out.writeDouble(item.buyingPrice)
+                out.writeDouble(item.sellingPrice)
+                out.writeInt(item.quantity)
+                out.writeInt(item.lowStockThreshold)
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete()
+            Timber.w("Could not replace dashboard snapshot")
+        }
+    }
+
+    private fun decode(buffer: ByteBuffer): DashboardSnapshot? {
+        if (buffer.int != MAGIC || buffer.int != VERSION) return null
+
+        val stats = DashboardStats(
+            totalQuantity = buffer.int,
+            totalCost = buffer.double,
+            potentialProfit = buffer.double,
+            lowStockCount = buffer.int
+        )
+        val categories = List(buffer.int) { buffer.readString() ?: "" }
+        val items = List(buffer.int) {
+            Item(
+                id = buffer.readString() ?: "",
+                name = buffer.readString() ?: "",
+                category = buffer.readString() ?: "",
+                details = buffer.readString(),
+                photoUrl = buffer.readString(),
+                thumbnailUrl = buffer.readString(),
+                buyingPrice = buffer.double,
+                sellingPrice = buffer.double,
+                quantity = buffer.int,
+                lowStockThreshold = buffer.int
+            )
+        }
+        return DashboardSnapshot(items, categories, stats)
+    }
+
+    // Length-prefixed UTF-8; -1 marks null
+    private fun DataOutputStream.writeString(value: String?) {
+        if (value == null) {
+            writeInt(-1)
+            return
+        }
+        val bytes = value.toByteArray(Charsets.UTF_8)
+        writeInt(bytes.size)
+        write(bytes)
+    }
+
+    private fun ByteBuffer.readString(): String? {
+        val length = int
+        if (length < 0) return null
+        val bytes = ByteArray(length)
+        get(bytes)
+        return String(bytes, Charsets.UTF_8)
+    }
+}
@@ -0,0 +1,149 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.local.ItemPhotoDao
+import com.ndomog.inventory.data.local.PendingActionDao
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.remote.BucketDigest
+import com.ndomog.inventory.data.remote.DEFAULT_PAGE_SIZE
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+
+/**
+ * Outcome of a catalogue refresh.
+ */
+data class IngestResult(
+    val itemCount: Int,
+    val removedCount: Int,
+    // Digest buckets that were downloaded; zero when nothing had changed
+    val bucketsFetched: Int = CatalogDigest.BUCKET_COUNT
+)
+
+/**
+ * Streams the remote item catalogue straight into Room.
+ *
+ * Each page of the response is decoded element by element and written in
+ * batches of [batchSize], so peak memory is one batch regardless of how big
+ * the inventory grows. Only ids are kept for the whole run, to remove items
+ * that no longer exist remotely.
+ *
+ * [refreshChanged] first compares per-bucket digests with the server and only
+ * downloads the id ranges that differ, so an unchanged catalogue costs one
+ * small RPC call.
+ *
+ * Photos are refreshed for the same id ranges as their items. The server bumps
+ * an item's `updated_at` when its photos change, so the digest covers them too.
+ */
+class ItemCatalogIngest(
+    private val itemDao: ItemDao,
+    private val pendingActionDao: PendingActionDao,
+    private val itemPhotoDao: ItemPhotoDao,
+    private val remote: RemoteDataSource,
+    private val batchSize: Int = DEFAULT_BATCH_SIZE,
+    private val pageSize: Int = DEFAULT_PAGE_SIZE
+) {
+    companion object {
+        const val DEFAULT_BATCH_SIZE = 200
+
+        // SQLite allows at most 999 bound variables per statement on older devices
+        private const val MAX_SQL_VARIABLES = 900
+    }
+
+    suspend fun refreshAll(): IngestResult = withContext(Dispatchers.IO) {
+        val remoteIds = HashSet<String>()
+        ingestPages(emptyList(), remoteIds)
+        val removed = removeStale(remoteIds) { true }
+        refreshPhotos(null, null)
+
+        Timber.d("Ingested ${remoteIds.size} items, removed $removed stale items")
+        IngestResult(itemCount = remoteIds.size, removedCount = removed)
+    }
+
+    /**
+     * Downloads only the buckets whose digest differs from the local cache.
+     * Falls back to [refreshAll] if the digest RPC is unavailable.
+     */
+    suspend fun refreshChanged(): IngestResult = withContext(Dispatchers.IO) {
+        val remoteDigests = try {
+            fetchRemoteDigests()
+        } catch (e: Exception) {
+            Timber.w(e, "inventory_digest unavailable, refreshing all items")
+            return@withContext refreshAll()
+        }
+        val local = CatalogDigest.localDigests(itemDao.getDigestRows())
+        val mismatched = CatalogDigest.mismatchedBuckets(remoteDigests, local)
+        val remoteCount = remoteDigests.values.sumOf { it.rowCount }.toInt()
+
+        if (mismatched.isEmpty()) {
+            Timber.d("Item catalogue unchanged ($remoteCount items), skipping download")
+            return@withContext IngestResult(itemCount = remoteCount, removedCount = 0, bucketsFetched = 0)
+        }
+        if (mismatched.size == CatalogDigest.BUCKET_COUNT) {
+            return@withContext refreshAll()
+        }
+
+        var removed = 0
+        for (bucket in mismatched) {
+            val (lowerId, upperId) = CatalogDigest.idRange(bucket)
+            val filters = buildList {
+                add("id" to "gte.$lowerId")
+                if (upperId != null) add("id" to "lt.$upperId")
+            }
+            val remoteIds = HashSet<String>()
+            ingestPages(filters, remoteIds)
+            removed += removeStale(remoteIds) { CatalogDigest.bucketOf(it) == bucket }
+            refreshPhotos(lowerId, upperId)
+        }
+
+        Timber.d("Refreshed ${mismatched.size} of ${CatalogDigest.BUCKET_COUNT} item buckets, removed $removed stale items")
+        IngestResult(itemCount = remoteCount, removedCount = removed, bucketsFetched = mismatched.size)
+    }
+
+    private suspend fun fetchRemoteDigests(): Map<Int, BucketDigest> {
+        return remote.fetchItemDigests(CatalogDigest.BUCKET_COUNT)
+            .associateBy { it.bucket }
+    }
+
+    private suspend fun refreshPhotos(fromItemId: String?, toItemId: String?) {
+        val photos = remote.fetchItemPhotos(fromItemId, toItemId)
+        itemPhotoDao.replacePhotosInRange(fromItemId ?: "", toItemId, photos)
+    }
+
+    private suspend fun ingestPages(filters: List<Pair<String, String>>, remoteIds: MutableSet<String>) {
+        var from = 0L
+        while (true) {
+            val pageCount = ingestPage(from, filters, remoteIds)
+            if (pageCount < pageSize) break
+            from += pageSize
+        }
+    }
+
+    // Drops local items in scope that the server no longer has, but keeps
+    // anything with pending offline changes
+    private suspend fun removeStale(remoteIds: Set<String>, inScope: (String) -> Boolean): Int {
+        val keepIds = remoteIds + pendingActionDao.getPendingEntityIds()
+        val staleIds = itemDao.getAllIds().filter { inScope(it) && it !in keepIds }
+        staleIds.chunked(MAX_SQL_VARIABLES).forEach { itemDao.deleteItemsByIds(it) }
+        return staleIds.size
+    }
+
+    private suspend fun ingestPage(
+        from: Long,
+        filters: List<Pair<String, String>>,
+        remoteIds: MutableSet<String>
+    ): Int {
+        val batch = ArrayList<Item>(batchSize)
+        val count = remote.streamItems(from, pageSize, filters) { item ->
+            batch += item
+            remoteIds += item.id
+            if (batch.size == batchSize) {
+                itemDao.insertItems(batch)
+                batch.clear()
+            }
+        }
+        if (batch.isNotEmpty()) itemDao.insertItems(batch)
+        return count
+    }
+}
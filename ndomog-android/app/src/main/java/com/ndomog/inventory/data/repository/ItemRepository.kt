@@ -1,87 +1,152 @@
 package com.ndomog.inventory.data.repository
 
 import com.ndomog.inventory.data.local.ActivityLogDao
+import com.ndomog.inventory.data.local.InventoryQuery
 import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.local.ItemPhotoDao
 import com.ndomog.inventory.data.local.PendingActionDao
 import com.ndomog.inventory.data.local.ProfileDao
 import com.ndomog.inventory.data.models.ActionType
 import com.ndomog.inventory.data.models.ActivityLog
+import com.ndomog.inventory.data.models.DashboardStats
 import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
 import com.ndomog.inventory.data.models.PendingAction
-import com.ndomog.inventory.data.models.Profile
-import com.ndomog.inventory.data.remote.SupabaseClient
-import io.github.jan.supabase.postgrest.from
-import io.github.jan.supabase.postgrest.query.Columns
+import com.ndomog.inventory.data.remote.HttpMetrics
+import com.ndomog.inventory.data.remote.NotificationInsert
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
-import kotlinx.serialization.Serializable
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.mapLatest
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.buildJsonObject
+import kotlinx.serialization.json.put
 import timber.log.Timber
 import java.util.UUID
 
-@Serializable
-data class NotificationInsert(
-    val id: String,
-    val user_id: String,
-    val action_user_id: String,
-    val action_user_email: String,
-    val action: String,
-    val item_name: String,
-    val details: String?,
-    val is_read: Boolean = false
-)
-
 class ItemRepository(
     private val itemDao: ItemDao,
     private val pendingActionDao: PendingActionDao,
+    private val itemPhotoDao: ItemPhotoDao,
     private val activityLogDao: ActivityLogDao,
     private val profileDao: ProfileDao,
-    private val authRepository: AuthRepository
+    private val authRepository: AuthRepository,
+    private val remote: RemoteDataSource,
+    private val searchIndex: ItemSearchIndex
 ) {
-    private val supabase = SupabaseClient.client
+    private val catalogIngest = ItemCatalogIngest(itemDao, pendingActionDao, itemPhotoDao, remote)
 
     // Observe all items from local database
     fun observeItems(): Flow<List<Item>> = itemDao.getAllItems()
 
-    // Load items - tries online first, falls back to cache
-    suspend fun loadItems(isOnline: Boolean): Result<Pair<List<Item>, Boolean>> {
-        return try {
-            if (isOnline) {
-                // Fetch from Supabase
-                val items = supabase.from("items")
-                    .select {
-                        filter {
-                            eq("is_deleted", false)
-                        }
-                    }
-                    .decodeList<Item>()
+    /** Live items matching [query]; re-emits whenever items change. */
+    fun observeItems(query: InventoryQuery): Flow<List<Item>> = itemDao.observeItems(query)
+
+    /** Live number of items matching [query], without loading them. */
+    fun observeCount(query: InventoryQuery): Flow<Int> = itemDao.observeCount(query)
+
+    /** Live counts of saved [queries], by the same keys. */
+    fun <K> observeCounts(queries: Map<K, InventoryQuery>): Flow<Map<K, Int>> {
+        if (queries.isEmpty()) return flowOf(emptyMap())
+        val keys = queries.keys.toList()
+        return combine(keys.map { itemDao.observeCount(queries.getValue(it)) }) { counts ->
+            keys.zip(counts.toList()).toMap()
+        }
+    }
 
-                // Cache locally and remove stale items (but keep items with pending actions)
-                itemDao.insertItems(items)
-                val remoteIds = items.map { it.id }.toSet()
-                val pendingIds = pendingActionDao.getPendingEntityIds().toSet()
-                val keepIds = (remoteIds + pendingIds).toList()
-                if (keepIds.isEmpty()) {
-                    itemDao.deleteAll()
+    /**
+     * Live items fuzzily matching [text] in [categories] (empty for all), best
+     * match first. Re-ranks when item text changes and re-emits on any item
+     * change. [text] must pass [ItemSearchIndex.canSearch].
+     *
+     * If the index had too many candidates to rank, every item whose text
+     * contains [text], ignoring separators and case, follows the ranked ones.
+     * Those are exact matches only; typos are tolerated among ranked items.
+     * Ranking runs on [Dispatchers.Default].
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    fun searchItems(text: String, categories: Set<String>): Flow<List<Item>> {
+        return searchIndex.observeQueueSize()
+            .mapLatest { queued ->
+                // Reindexing empties the queue, which emits again and runs the search
+                if (queued > 0) {
+                    searchIndex.catchUp()
+                    null
+                } else {
+                    searchIndex.search(text)
+                }
+            }
+            .filterNotNull()
+            .distinctUntilChanged()
+            .flatMapLatest { result ->
+                val ids = result.ids
+                val ranked = if (ids.isEmpty()) {
+                    flowOf(emptyList())
                 } else {
-                    itemDao.deleteItemsNotIn(keepIds)
+                    itemDao.observeItemsByIds(ids).map { items ->
+                        val byId = items
+                            .filter { categories.isEmpty() || it.category in categories }
+                            .associateBy { it.id }
+                        ids.mapNotNull { byId[it] }
+                    }
+                }
+                if (!result.truncated) return@flatMapLatest ranked
+                combine(ranked, searchIndex.observeSubstringMatches(text)) { best, matches ->
+                    val shown = best.mapTo(HashSet()) { it.id }
+                    best + matches.filter { it.id !in shown && (categories.isEmpty() || it.category in categories) }
                 }
-                Result.success(Pair(items, false))
+            }
+            .flowOn(Dispatchers.Default)
+    }
+
+    fun observeStats(): Flow<DashboardStats> = itemDao.observeDashboardStats()
+
+    fun observeCategoryNames(): Flow<List<String>> = itemDao.observeCategoryNames()
+
+    // Load items - tries online first, falls back to cache
+    // Returns the number of items now cached and whether they came from the cache.
+    // The list itself is read through observeItems().
+    suspend fun loadItems(isOnline: Boolean): Result<Pair<Int, Boolean>> {
+        return try {
+            if (isOnline) {
+                val bytesBefore = HttpMetrics.totalResponseBytes()
+                // Stream from Supabase into the local cache, removing stale items
+                // (but keeping items with pending actions)
+                val result = catalogIngest.refreshChanged()
+                Timber.d("Loaded ${result.itemCount} items using ${HttpMetrics.totalResponseBytes() - bytesBefore} bytes on the wire")
+                Result.success(Pair(result.itemCount, false))
             } else {
                 // Load from cache
-                val cachedItems = itemDao.getItems()
-                Result.success(Pair(cachedItems, true))
+                Result.success(Pair(itemDao.countItems(), true))
             }
         } catch (e: Exception) {
             Timber.e(e, "Error loading items, falling back to cache")
-            val cachedItems = itemDao.getItems()
-            Result.success(Pair(cachedItems, true))
+            Result.success(Pair(itemDao.countItems(), true))
         }
     }
 
     // Get single item
     suspend fun getItem(id: String): Item? = itemDao.getItemById(id)
 
+    /**
+     * Photos of [item] from the local cache, or its cover photo alone if none are cached.
+     */
+    suspend fun getPhotos(item: Item): List<ItemPhoto> {
+        val cached = itemPhotoDao.getPhotosForItem(item.id)
+        if (cached.isNotEmpty()) return cached
+        val cover = item.photoUrl ?: return emptyList()
+        return listOf(ItemPhoto(itemId = item.id, url = cover, thumbnailUrl = item.thumbnailUrl))
+    }
+
     // Add item - queues for sync if offline
     suspend fun addItem(item: Item, isOnline: Boolean) {
         // Save locally first
@@ -90,7 +155,7 @@ class ItemRepository(
         if (isOnline) {
             try {
                 // Sync to Supabase immediately
-                supabase.from("items").insert(item)
+                remote.insertItem(item)
                 logActivity("CREATE", item.id, item.name, "Added new item: ${item.name}")
                 sendNotificationsToOtherUsers("added", item.name, "Added new item to inventory")
             } catch (e: Exception) {
@@ -109,11 +174,7 @@ class ItemRepository(
 
         if (isOnline) {
             try {
-                supabase.from("items").update(item) {
-                    filter {
-                        eq("id", item.id)
-                    }
-                }
+                remote.updateItem(item)
                 logActivity("UPDATE", item.id, item.name, "Updated item: ${item.name}")
                 sendNotificationsToOtherUsers("updated", item.name, "Updated item details")
             } catch (e: Exception) {
@@ -133,11 +194,7 @@ class ItemRepository(
 
         if (isOnline) {
             try {
-                supabase.from("items").update(mapOf("quantity" to quantity)) {
-                    filter {
-                        eq("id", id)
-                    }
-                }
+                remote.updateItemFields(id, buildJsonObject { put("quantity", quantity) })
                 // Get item name for logging
                 val item = itemDao.getItemById(id)
                 val changeText = if (quantity > oldQuantity) "Added ${quantity - oldQuantity} units" else "Removed ${oldQuantity - quantity} units"
@@ -164,17 +221,14 @@ class ItemRepository(
 
         if (isOnline) {
             try {
-                supabase.from("items").update(
-                    mapOf(
-                        "is_deleted" to true,
-                        "deleted_at" to now,
-                        "deleted_by" to userId
-                    )
-                ) {
-                    filter {
-                        eq("id", id)
+                remote.updateItemFields(
+                    id,
+                    buildJsonObject {
+                        put("is_deleted", true)
+                        put("deleted_at", now)
+                        put("deleted_by", userId)
                     }
-                }
+                )
                 logActivity("DELETE", id, item?.name ?: "Unknown", "Deleted item: ${item?.name ?: "Unknown"}")
                 sendNotificationsToOtherUsers("deleted", item?.name ?: "Unknown", "Removed item from inventory")
             } catch (e: Exception) {
@@ -218,7 +272,7 @@ class ItemRepository(
 
                 // Try to sync to Supabase
                 try {
-                    supabase.from("activity_logs").insert(activityLog)
+                    remote.insertActivityLog(activityLog)
                 } catch (e: Exception) {
                     Timber.e(e, "Failed to sync activity log online")
                 }
@@ -237,13 +291,7 @@ class ItemRepository(
                 ?: "unknown@local"
             
             // Get all other users from profiles table
-            val allProfiles = supabase.from("profiles")
-                .select()
-                .decodeList<Profile>()
-            
-            val otherUserIds = allProfiles
-                .filter { it.id != currentUserId }
-                .map { it.id }
+            val otherUserIds = remote.fetchOtherUserIds(currentUserId)
             
             if (otherUserIds.isEmpty()) {
                 Timber.d("No other users to notify")
@@ -265,7 +313,7 @@ class ItemRepository(
             }
             
             // Insert all notifications
-            supabase.from("notifications").insert(notifications)
+            remote.insertNotifications(notifications)
             Timber.d("Sent notifications to ${notifications.size} users")
         } catch (e: Exception) {
             Timber.e(e, "Failed to send notifications to other users")
@@ -0,0 +1,148 @@
+package com.ndomog.inventory.data.repository
+
+import androidx.room.withTransaction
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemSearchText
+import com.ndomog.inventory.data.models.ItemTrigram
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Ids from [ItemSearchIndex.search], best first. [truncated] is true when more
+ * items shared the query's trigrams than could be ranked, so matches may be missing.
+ */
+data class SearchResult(val ids: List<String>, val truncated: Boolean = false)
+
+/**
+ * Fuzzy search over item names and details that tolerates the way part
+ * numbers get typed.
+ *
+ * Text is normalised to lower-case letters and digits only, so
+ * "Denso 096140-0030", "0961400030" and "096140 0030" all compare equal.
+ * Items are indexed by the trigrams of their normalised text; candidates
+ * sharing enough trigrams with the query are ranked by the edit distance of
+ * the query to the closest substring of their name or details.
+ *
+ * Triggers on items queue every changed row, and [catchUp] reindexes just
+ * those, so the index never needs a full rebuild.
+ */
+class ItemSearchIndex(private val database: NdomogDatabase) {
+    companion object {
+        // Ranked candidates per search; also keeps row lookups under SQLite's variable limit
+        const val MAX_CANDIDATES = 500
+
+        private const val REINDEX_BATCH = 500
+
+        fun normalize(text: String): String = buildString(text.length) {
+            for (char in text) {
+                if (char.isLetterOrDigit()) append(char.lowercaseChar())
+            }
+        }
+
+        fun trigrams(normalized: String): Set<String> {
+            if (normalized.length < 3) return emptySet()
+            return (0..normalized.length - 3).mapTo(HashSet()) { normalized.substring(it, it + 3) }
+        }
+
+        /** True if [query] is long enough for trigram lookup. */
+        fun canSearch(query: String): Boolean = normalize(query).length >= 3
+
+        // Short queries must match exactly, longer ones may carry a typo or two
+        fun allowedEdits(length: Int): Int = when {
+            length <= 4 -> 0
+            length <= 8 -> 1
+            else -> 2
+        }
+
+        /**
+         * Fewest edits turning [pattern] into any substring of [text]
+         * (Sellers' variant of Levenshtein distance).
+         */
+        fun substringEditDistance(pattern: String, text: String): Int {
+            var previous = IntArray(pattern.length + 1) { it }
+            var current = IntArray(pattern.length + 1)
+            var best = pattern.length
+            for (char in text) {
+                current[0] = 0
+                for (i in 1..pattern.length) {
+                    val substitution = previous[i - 1] + if (pattern[i - 1] == char) 0 else 1
+                    current[i] = minOf(substitution, previous[i] + 1, current[i - 1] + 1)
+                }
+                best = minOf(best, current[pattern.length])
+                val swap = previous
+                previous = current
+                current = swap
+            }
+            return best
+        }
+    }
+
+    private val dao = database.itemSearchDao()
+
+    /** Emits whenever items are queued for reindexing, i.e. after every item write. */
+    fun observeQueueSize(): Flow<Int> = dao.observeQueueSize()
+
+    /** Reindexes every queued item. */
+    suspend fun catchUp() {
+        while (true) {
+            val ids = dao.getQueuedIds(REINDEX_BATCH)
+            if (ids.isEmpty()) return
+            // Rows are read inside the transaction, so a concurrent edit is either seen here or re-queued after it
+            database.withTransaction {
+                val texts = dao.getSearchRows(ids).map { row ->
+                    ItemSearchText(row.id, normalize(row.name), normalize(row.details.orEmpty()))
+                }
+                val trigrams = texts.flatMap { text ->
+                    (trigrams(text.name) + trigrams(text.details)).map { ItemTrigram(it, text.itemId) }
+                }
+                dao.deleteTrigrams(ids)
+                dao.insertTrigrams(trigrams)
+                dao.deleteSearchText(ids)
+                dao.insertSearchText(texts)
+                dao.dequeue(ids)
+            }
+        }
+    }
+
+    /**
+     * Live items whose normalised name or details contain the normalised
+     * [query], by name. Unranked and uncapped, so "0961400030" still finds
+     * "096140-0030" when [search] had too many candidates to rank. Call
+     * [catchUp] first for current results.
+     */
+    fun observeSubstringMatches(query: String): Flow<List<Item>> = dao.observeNormalizedMatches(normalize(query))
+
+    /**
+     * Items matching [query], best first. Empty if the query is too short for
+     * trigram lookup; see [canSearch]. Only the [MAX_CANDIDATES] items sharing
+     * the most trigrams are ranked; the result says if there were more.
+     */
+    suspend fun search(query: String): SearchResult {
+        val pattern = normalize(query)
+        val grams = trigrams(pattern)
+        if (grams.isEmpty()) return SearchResult(emptyList())
+        catchUp()
+
+        // Each edit breaks at most three of the query's trigrams
+        val allowed = allowedEdits(pattern.length)
+        val minHits = maxOf(1, grams.size - 3 * allowed)
+        // One extra candidate tells whether the cap cut any off
+        val found = dao.findCandidates(grams.toList(), minHits, MAX_CANDIDATES + 1)
+        if (found.isEmpty()) return SearchResult(emptyList())
+        val hits = found.take(MAX_CANDIDATES)
+
+        val rows = dao.getSearchRows(hits.map { it.itemId }).associateBy { it.id }
+        val ids = hits
+            .mapNotNull { hit ->
+                val row = rows[hit.itemId] ?: return@mapNotNull null
+                val distance = minOf(
+                    substringEditDistance(pattern, normalize(row.name)),
+                    row.details?.let { substringEditDistance(pattern, normalize(it)) } ?: Int.MAX_VALUE
+                )
+                if (distance <= allowed) Triple(hit.itemId, distance, hit.hits) else null
+            }
+            .sortedWith(compareBy<Triple<String, Int, Int>> { it.second }.thenByDescending { it.third })
+            .map { it.first }
+        return SearchResult(ids, truncated = found.size > MAX_CANDIDATES)
+    }
+}
@@ -0,0 +1,86 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.ItemPhotoDao
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import timber.log.Timber
+import java.util.UUID
+
+/**
+ * Row-level changes that turn an item's current photo set into the desired one.
+ */
+data class PhotoSetChanges(
+    val added: List<ItemPhoto>,
+    val removed: List<ItemPhoto>,
+    // Kept rows whose position changed, carrying the new position
+    val moved: List<ItemPhoto>,
+    // The complete photo set once the changes are applied, in display order
+    val result: List<ItemPhoto>
+) {
+    val isEmpty: Boolean get() = added.isEmpty() && removed.isEmpty() && moved.isEmpty()
+}
+
+/**
+ * Saves an item's photo set by applying only what changed since the current
+ * server rows, instead of deleting and re-inserting every row.
+ *
+ * Photos are matched by URL. Objects of removed photos stay in Storage:
+ * content-addressed ones may be shared with other items or devices, so the
+ * server's gc-item-photos job deletes them, and older per-item objects, once
+ * nothing refers to them.
+ */
+class PhotoSetReconciler(
+    private val itemPhotoDao: ItemPhotoDao,
+    private val remote: RemoteDataSource
+) {
+    companion object {
+        fun diff(itemId: String, current: List<ItemPhoto>, desired: List<ItemPhoto>): PhotoSetChanges {
+            val currentByUrl = current.associateBy { it.url }
+            val result = desired.distinctBy { it.url }.mapIndexed { index, photo ->
+                val existing = currentByUrl[photo.url]
+                existing?.copy(position = index)
+                    ?: photo.copy(
+                        id = photo.id.ifBlank { UUID.randomUUID().toString() },
+                        itemId = itemId,
+                        position = index
+                    )
+            }
+            val keptUrls = result.mapTo(HashSet()) { it.url }
+            return PhotoSetChanges(
+                added = result.filter { it.url !in currentByUrl },
+                removed = current.filter { it.url !in keptUrls },
+                moved = result.filter { row -> currentByUrl[row.url]?.let { it.position != row.position } == true },
+                result = result
+            )
+        }
+    }
+
+    /**
+     * Makes [desired] the photo set of [itemId], in list order, and returns the saved rows.
+     */
+    suspend fun reconcile(itemId: String, desired: List<ItemPhoto>): List<ItemPhoto> {
+        val current = remote.fetchPhotosForItem(itemId)
+        val changes = diff(itemId, current, desired)
+        if (changes.isEmpty) {
+            // Nothing to write on the server; the cache still takes the server rows
+            itemPhotoDao.replacePhotosForItem(itemId, changes.result)
+            Timber.d("Photos of item $itemId are unchanged")
+            return changes.result
+        }
+
+        if (changes.removed.isNotEmpty()) {
+            remote.deleteItemPhotos(changes.removed.map { it.id })
+        }
+        changes.moved.forEach { remote.updateItemPhotoPosition(it.id, it.position) }
+        if (changes.added.isNotEmpty()) {
+            remote.insertItemPhotos(changes.added)
+        }
+        itemPhotoDao.replacePhotosForItem(itemId, changes.result)
+
+        Timber.d(
+            "Saved photos of item $itemId: ${changes.added.size} added, " +
+                "${changes.removed.size} removed, ${changes.moved.size} moved"
+        )
+        return changes.result
+    }
+}
@@ -0,0 +1,57 @@
+package com.ndomog.inventory.data.repository
+
+import android.os.SystemClock
+import com.ndomog.inventory.data.local.ProfileDao
+import com.ndomog.inventory.data.models.Profile
+import com.ndomog.inventory.data.remote.RemoteColumns
+import com.ndomog.inventory.data.remote.selectAllPaged
+import io.github.jan.supabase.SupabaseClient
+import io.github.jan.supabase.postgrest.from
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import timber.log.Timber
+
+/**
+ * App-wide cache of user profiles, shared by every screen that shows who did what.
+ *
+ * Profiles are refreshed from Supabase at most once per [ttlMs] and mirrored into
+ * Room, which is also the fallback when offline.
+ */
+class ProfileCache(
+    private val profileDao: ProfileDao,
+    private val supabase: SupabaseClient,
+    private val ttlMs: Long = DEFAULT_TTL_MS
+) {
+    companion object {
+        const val DEFAULT_TTL_MS = 5 * 60 * 1000L
+    }
+
+    private val mutex = Mutex()
+    private var profilesById: Map<String, Profile> = emptyMap()
+    private var loadedAt = 0L
+
+    suspend fun getAll(forceRefresh: Boolean = false): Map<String, Profile> = mutex.withLock {
+        val isFresh = loadedAt != 0L && SystemClock.elapsedRealtime() - loadedAt < ttlMs
+        if (isFresh && !forceRefresh) return@withLock profilesById
+
+        try {
+            val profiles = supabase.from("profiles")
+                .selectAllPaged<Profile>(RemoteColumns.PROFILE)
+            profileDao.insertProfiles(profiles)
+            profilesById = profiles.associateBy { it.id }
+            loadedAt = SystemClock.elapsedRealtime()
+        } catch (e: Exception) {
+            Timber.w(e, "Failed to refresh profiles, using local copy")
+            if (profilesById.isEmpty()) {
+                profilesById = profileDao.getAllProfiles().associateBy { it.id }
+            }
+        }
+        profilesById
+    }
+
+    suspend fun get(id: String): Profile? = getAll()[id] ?: profileDao.getProfileById(id)
+
+    fun invalidate() {
+        loadedAt = 0L
+    }
+}
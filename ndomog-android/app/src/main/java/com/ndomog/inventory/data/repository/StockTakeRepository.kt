@@ -0,0 +1,159 @@
+package com.ndomog.inventory.data.repository
+
+import androidx.room.withTransaction
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.StockTakeLine
+import com.ndomog.inventory.data.models.StockTakeSession
+import com.ndomog.inventory.data.models.StockTakeVariance
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import com.ndomog.inventory.data.remote.StockTakeCount
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.Flow
+import timber.log.Timber
+import java.util.UUID
+
+// What a committed stock take changed
+data class StockTakeSummary(
+    val lineCount: Int,
+    val adjustedCount: Int,
+    val netVariance: Int
+)
+
+// An item counted by scanning its barcode, and its count so far
+data class StockTakeScan(
+    val item: Item,
+    val counted: Int
+)
+
+/**
+ * Stock takes (cycle counts): physical counts that accumulate in Room and
+ * reach the server as one batch.
+ *
+ * Counting never touches the network, so scans and typed counts cost a local
+ * write each. [commit] sends the whole count to the commit_stock_take RPC,
+ * which applies it in one transaction with a single activity log entry and
+ * one notification per other user, then writes the counts into the local
+ * items.
+ *
+ * The session is marked submitted before it is sent and its lines are frozen
+ * from then on; counts made meanwhile go to a new session. A failed commit
+ * keeps the submitted session, and the next [commit] retries it with the same
+ * lines, which is harmless if the server already applied them.
+ *
+ * Items created offline are unknown to the server until their ADD_ITEM
+ * syncs, so their lines are held back in the next session. Only the counts
+ * the server reports as applied are written locally.
+ */
+class StockTakeRepository(
+    private val database: NdomogDatabase,
+    private val remote: RemoteDataSource
+) {
+    private val dao = database.stockTakeDao()
+    private val itemDao = database.itemDao()
+    private val pendingActionDao = database.pendingActionDao()
+
+    /**
+     * The session on screen: one awaiting a commit retry, else the one being
+     * counted, or null when no stock take is in progress.
+     */
+    fun observeSession(): Flow<StockTakeSession?> = dao.observeOpenSession()
+
+    /** Counted items of [sessionId], largest variance first. */
+    fun observeVariances(sessionId: String): Flow<List<StockTakeVariance>> = dao.observeVariances(sessionId)
+
+    suspend fun openSession(): StockTakeSession = dao.openSession(UUID.randomUUID().toString())
+
+    /** Adds [units] to the count of the item carrying [barcode]; null if no item carries it. */
+    suspend fun countBarcode(barcode: String, units: Int = 1): StockTakeScan? {
+        val item = itemDao.getItemByBarcode(barcode.trim()) ?: return null
+        return StockTakeScan(item, addUnits(item.id, units))
+    }
+
+    // Counting runs in transactions so it never lands in a session as it is submitted
+
+    /** Adds [units], which may be negative, to the item's count and returns the new count. */
+    suspend fun addUnits(itemId: String, units: Int): Int = database.withTransaction {
+        dao.addToLine(openSession().id, itemId, units)
+    }
+
+    suspend fun setCount(itemId: String, counted: Int) = database.withTransaction {
+        dao.upsertLine(StockTakeLine(openSession().id, itemId, counted.coerceAtLeast(0)))
+    }
+
+    suspend fun removeLine(itemId: String) = database.withTransaction {
+        val session = dao.getCountingSession() ?: return@withTransaction
+        dao.deleteLine(session.id, itemId)
+    }
+
+    suspend fun discard() {
+        val session = dao.getOpenSession() ?: return
+        dao.deleteSession(session.id)
+    }
+
+    /** Retries the session awaiting a commit if there is one, else submits the session being counted. */
+    suspend fun commit(): Result<StockTakeSummary> {
+        var heldBack = 0
+        val (session, lines) = database.withTransaction {
+            dao.getSubmittedSession()?.let { return@withTransaction it to dao.getLines(it.id) }
+            val session = dao.getCountingSession() ?: return@withTransaction null to emptyList()
+            val unsynced = pendingActionDao.getPendingEntityIds(ActionType.ADD_ITEM).toSet()
+            val (held, lines) = dao.getLines(session.id).partition { it.itemId in unsynced }
+            heldBack = held.size
+            if (lines.isNotEmpty()) {
+                if (held.isNotEmpty()) {
+                    val next = StockTakeSession(UUID.randomUUID().toString(), note = session.note)
+                    dao.insertSession(next)
+                    dao.moveLines(session.id, next.id, held.map { it.itemId })
+                }
+                dao.markSubmitted(session.id, System.currentTimeMillis())
+            }
+            session to lines
+        }
+        if (session == null) return Result.failure(IllegalStateException("No stock take in progress"))
+        if (lines.isEmpty()) {
+            val message = if (heldBack > 0) "New items must sync before their counts can be committed" else "Nothing has been counted yet"
+            return Result.failure(IllegalStateException(message))
+        }
+
+        return try {
+            val adjustments = remote.commitStockTake(
+                session.id,
+                lines.map { StockTakeCount(it.itemId, it.counted) },
+                session.note
+            )
+            val applied = adjustments.associateBy { it.itemId }
+            database.withTransaction {
+                for (line in lines) {
+                    // Skipped items were deleted or unknown; their queued changes stay
+                    val adjustment = applied[line.itemId] ?: continue
+                    // The count supersedes quantity changes still waiting to sync
+                    pendingActionDao.deletePendingActions(ActionType.UPDATE_QUANTITY, line.itemId)
+                    val timestamp = adjustment.updatedAt
+                    if (timestamp != null) {
+                        itemDao.updateQuantityAndTimestamp(line.itemId, adjustment.newQuantity, timestamp)
+                    } else {
+                        itemDao.updateQuantity(line.itemId, adjustment.newQuantity)
+                    }
+                }
+                dao.deleteSession(session.id)
+            }
+            if (applied.size < lines.size) {
+                Timber.w("Stock take ${session.id}: server skipped ${lines.size - applied.size} deleted or unknown items")
+            }
+            val summary = StockTakeSummary(
+                lineCount = lines.size,
+                adjustedCount = adjustments.count { it.newQuantity != it.previousQuantity },
+                netVariance = adjustments.sumOf { it.newQuantity - it.previousQuantity }
+            )
+            Timber.d("Committed stock take ${session.id}: $summary")
+            Result.success(summary)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Timber.e(e, "Failed to commit stock take ${session.id}")
+            Result.failure(e)
+        }
+    }
+}
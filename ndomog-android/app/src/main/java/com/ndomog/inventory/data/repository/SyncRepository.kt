@@ -1,28 +1,41 @@
 package com.ndomog.inventory.data.repository
 
 import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.local.ItemPhotoDao
 import com.ndomog.inventory.data.local.PendingActionDao
 import com.ndomog.inventory.data.models.ActionType
 import com.ndomog.inventory.data.models.Item
 import com.ndomog.inventory.data.models.SyncResult
-import com.ndomog.inventory.data.remote.SupabaseClient
-import io.github.jan.supabase.postgrest.from
+import com.ndomog.inventory.data.remote.HttpMetrics
+import com.ndomog.inventory.data.remote.RemoteDataSource
 import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.buildJsonObject
+import kotlinx.serialization.json.jsonObject
+import kotlinx.serialization.json.put
 import timber.log.Timber
 
 class SyncRepository(
     private val itemDao: ItemDao,
-    private val pendingActionDao: PendingActionDao
+    private val pendingActionDao: PendingActionDao,
+    private val itemPhotoDao: ItemPhotoDao,
+    private val remote: RemoteDataSource
 ) {
-    private val supabase = SupabaseClient.client
     private val json = Json { ignoreUnknownKeys = true }
+    private val catalogIngest = ItemCatalogIngest(itemDao, pendingActionDao, itemPhotoDao, remote)
+    private val photoReconciler = PhotoSetReconciler(itemPhotoDao, remote)
 
     suspend fun syncPendingActions(): SyncResult {
         val errors = mutableListOf<String>()
         var actionsSynced = 0
+        val bytesBefore = HttpMetrics.totalResponseBytes()
 
         try {
+            // Photo sets go last: they need the item on the server, and their cover
+            // photo must win over the one in a queued item edit
             val pendingActions = pendingActionDao.getPendingActions()
+                .sortedBy { it.type == ActionType.SYNC_PHOTOS }
+            // Items whose queued insert failed in this pass
+            val unsyncedItems = mutableSetOf<String>()
 
             if (pendingActions.isEmpty()) {
                 return SyncResult(success = true, actionsSynced = 0)
@@ -35,46 +48,57 @@ class SyncRepository(
                     when (action.type) {
                         ActionType.ADD_ITEM -> {
                             val item = json.decodeFromString<Item>(action.data)
-                            supabase.from("items").insert(item)
+                            remote.insertItem(item)
                         }
                         
                         ActionType.UPDATE_ITEM -> {
                             val item = json.decodeFromString<Item>(action.data)
-                            supabase.from("items").update(item) {
-                                filter {
-                                    eq("id", action.entityId)
-                                }
-                            }
+                            remote.updateItem(item.copy(id = action.entityId))
                         }
                         
                         ActionType.UPDATE_QUANTITY -> {
-                            val data = json.decodeFromString<Map<String, Int>>(action.data)
-                            supabase.from("items").update(data) {
-                                filter {
-                                    eq("id", action.entityId)
-                                }
-                            }
+                            val data = json.parseToJsonElement(action.data).jsonObject
+                            remote.updateItemFields(action.entityId, data)
                         }
                         
                         ActionType.DELETE_ITEM -> {
-                            val data = json.decodeFromString<Map<String, Any>>(action.data)
-                            supabase.from("items").update(
-                                mapOf(
-                                    "is_deleted" to true,
-                                    "deleted_at" to data["deleted_at"],
-                                    "deleted_by" to data["deleted_by"]
-                                )
-                            ) {
-                                filter {
-                                    eq("id", action.entityId)
+                            val data = json.decodeFromString<Map<String, String>>(action.data)
+                            remote.updateItemFields(
+                                action.entityId,
+                                buildJsonObject {
+                                    put("is_deleted", true)
+                                    put("deleted_at", data["deleted_at"])
+                                    put("deleted_by", data["deleted_by"])
                                 }
-                            }
+                            )
                         }
                         
                         ActionType.ADD_CATEGORY -> {
                             // Handle category addition
-                            val categoryData = json.decodeFromString<Map<String, String>>(action.data)
-                            supabase.from("categories").insert(categoryData)
+                            val categoryData = json.parseToJsonElement(action.data).jsonObject
+                            remote.insertCategory(categoryData)
+                        }
+
+                        ActionType.SYNC_PHOTOS -> {
+                            if (action.entityId in unsyncedItems) {
+                                // Retried with the item's insert on the next sync
+                                continue
+                            }
+                            val photos = itemPhotoDao.getPhotosForItem(action.entityId)
+                            if (photos.any { !it.url.startsWith("http://") && !it.url.startsWith("https://") }) {
+                                // Still uploading; PhotoUploadWorker syncs again once it is done
+                                continue
+                            }
+                            val saved = photoReconciler.reconcile(action.entityId, photos)
+                            val cover = saved.firstOrNull()
+                            remote.updateItemFields(
+                                action.entityId,
+                                buildJsonObject {
+                                    put("photo_url", cover?.url)
+                                    put("thumbnail_url", cover?.thumbnailUrl)
+                                }
+                            )
+                            itemDao.updatePhotoUrls(action.entityId, cover?.url, cover?.thumbnailUrl)
                         }
                     }
 
@@ -84,6 +108,7 @@ class SyncRepository(
                     
                 } catch (e: Exception) {
                     Timber.e(e, "Failed to sync action ${action.id}")
+                    if (action.type == ActionType.ADD_ITEM) unsyncedItems += action.entityId
                     errors.add("Failed to sync ${action.type}: ${e.message}")
                 }
             }
@@ -92,27 +117,13 @@ class SyncRepository(
             pendingActionDao.deleteSyncedActions()
 
             // Refresh local cache
-            val items = supabase.from("items")
-                .select {
-                    filter {
-                        eq("is_deleted", false)
-                    }
-                }
-                .decodeList<Item>()
-            itemDao.insertItems(items)
-            val remoteIds = items.map { it.id }.toSet()
-            val pendingIds = pendingActionDao.getPendingEntityIds().toSet()
-            val keepIds = (remoteIds + pendingIds).toList()
-            if (keepIds.isEmpty()) {
-                itemDao.deleteAll()
-            } else {
-                itemDao.deleteItemsNotIn(keepIds)
-            }
+            val refresh = catalogIngest.refreshChanged()
+            Timber.d("Sync received ${HttpMetrics.totalResponseBytes() - bytesBefore} bytes on the wire")
 
             return SyncResult(
                 success = errors.isEmpty(),
                 actionsSynced = actionsSynced,
-                itemsSynced = items.size,
+                itemsSynced = refresh.itemCount,
                 errors = errors
             )
 
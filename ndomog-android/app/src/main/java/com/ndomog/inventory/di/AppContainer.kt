@@ -0,0 +1,200 @@
+package com.ndomog.inventory.di
+
+import android.content.Context
+import android.os.Environment
+import android.os.SystemClock
+import androidx.room.Room
+import coil.ImageLoader
+import com.ndomog.inventory.data.local.MIGRATION_1_2
+import com.ndomog.inventory.data.local.MIGRATION_2_3
+import com.ndomog.inventory.data.local.MIGRATION_3_4
+import com.ndomog.inventory.data.local.MIGRATION_4_5
+import com.ndomog.inventory.data.local.MIGRATION_5_6
+import com.ndomog.inventory.data.local.MIGRATION_6_7
+import com.ndomog.inventory.data.local.MIGRATION_7_8
+import com.ndomog.inventory.data.local.MIGRATION_8_9
+import com.ndomog.inventory.data.local.MIGRATION_9_10
+import com.ndomog.inventory.data.local.MIGRATION_10_11
+import com.ndomog.inventory.data.local.MIGRATION_11_12
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import com.ndomog.inventory.data.remote.SupabaseClient
+import com.ndomog.inventory.data.remote.SupabaseRemoteDataSource
+import com.ndomog.inventory.data.repository.AuthRepository
+import com.ndomog.inventory.data.repository.BarcodeRepository
+import com.ndomog.inventory.data.repository.DashboardSnapshotStore
+import com.ndomog.inventory.data.repository.ItemRepository
+import com.ndomog.inventory.data.repository.ItemSearchIndex
+import com.ndomog.inventory.data.repository.ProfileCache
+import com.ndomog.inventory.data.repository.StockTakeRepository
+import com.ndomog.inventory.data.repository.SyncRepository
+import com.ndomog.inventory.BuildConfig
+import com.ndomog.inventory.media.AppImageLoader
+import com.ndomog.inventory.media.ImageProcessor
+import com.ndomog.inventory.media.MediaCacheManager
+import com.ndomog.inventory.media.PhotoSourceCache
+import com.ndomog.inventory.media.PhotoUploadQueue
+import com.ndomog.inventory.media.PhotoUploader
+import com.ndomog.inventory.media.StorageAuthInterceptor
+import com.ndomog.inventory.media.StorageUploader
+import com.ndomog.inventory.utils.BenchmarkSeeder
+import com.ndomog.inventory.utils.PinPreferences
+import com.ndomog.inventory.utils.SecurityStateStore
+import com.ndomog.inventory.utils.ThemePreferences
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import timber.log.Timber
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Application-scoped singletons. Everything is created lazily on first use and
+ * shared by all screens, so caches inside repositories live as long as the app.
+ *
+ * Creation time of each dependency is recorded in [creationTimings].
+ */
+class AppContainer(context: Context) {
+    private val appContext = context.applicationContext
+
+    private val timings = ConcurrentHashMap<String, Long>()
+
+    /** Milliseconds spent creating each dependency, by name. */
+    val creationTimings: Map<String, Long> get() = timings.toMap()
+
+    // Work that should outlive any single screen
+    val applicationScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+    // Benchmark builds seeded by :benchmark stay offline and skip login
+    val benchmarkMode: Boolean by lazy {
+        BenchmarkSeeder.isBenchmarkMode(appContext)
+    }
+
+    val supabase: io.github.jan.supabase.SupabaseClient
+        get() = SupabaseClient.client
+
+    val database: NdomogDatabase by timedLazy("database") {
+        Room.databaseBuilder(
+            appContext,
+            NdomogDatabase::class.java,
+            "ndomog_inventory.db"
+        ).addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12)
+            .addCallback(NdomogDatabase.CALLBACK)
+            .build()
+    }
+
+    val remoteDataSource: RemoteDataSource by timedLazy("remoteDataSource") {
+        SupabaseRemoteDataSource.createDefault()
+    }
+
+    val authRepository: AuthRepository by timedLazy("authRepository") {
+        AuthRepository(supabase)
+    }
+
+    val profileCache: ProfileCache by timedLazy("profileCache") {
+        ProfileCache(database.profileDao(), supabase)
+    }
+
+    val itemRepository: ItemRepository by timedLazy("itemRepository") {
+        ItemRepository(
+            database.itemDao(),
+            database.pendingActionDao(),
+            database.itemPhotoDao(),
+            database.activityLogDao(),
+            database.profileDao(),
+            authRepository,
+            remoteDataSource,
+            itemSearchIndex
+        )
+    }
+
+    val itemSearchIndex: ItemSearchIndex by timedLazy("itemSearchIndex") {
+        ItemSearchIndex(database)
+    }
+
+    val barcodeRepository: BarcodeRepository by timedLazy("barcodeRepository") {
+        BarcodeRepository(database.itemDao(), database.barcodeLookupDao(), remoteDataSource)
+    }
+
+    val stockTakeRepository: StockTakeRepository by timedLazy("stockTakeRepository") {
+        StockTakeRepository(database, remoteDataSource)
+    }
+
+    val syncRepository: SyncRepository by timedLazy("syncRepository") {
+        SyncRepository(database.itemDao(), database.pendingActionDao(), database.itemPhotoDao(), remoteDataSource)
+    }
+
+    val photoUploader: PhotoUploader by timedLazy("photoUploader") {
+        PhotoUploader(
+            supabase,
+            ImageProcessor(appContext),
+            StorageUploader.createDefault(),
+            pendingUploadDir
+        )
+    }
+
+    val photoUploadQueue: PhotoUploadQueue by timedLazy("photoUploadQueue") {
+        PhotoUploadQueue(
+            appContext,
+            database.photoUploadDao(),
+            database.itemPhotoDao(),
+            database.pendingActionDao(),
+            photoUploader,
+            mediaCacheManager
+        )
+    }
+
+    val dashboardSnapshotStore: DashboardSnapshotStore by timedLazy("dashboardSnapshotStore") {
+        DashboardSnapshotStore(File(appContext.filesDir, "dashboard.snapshot"), database.itemDao())
+    }
+
+    // Starts reading preferences on a background thread as soon as it is created
+    val securityStateStore: SecurityStateStore by timedLazy("securityStateStore") {
+        SecurityStateStore(PinPreferences(appContext), ThemePreferences(appContext), applicationScope)
+    }
+
+    private val storageAuthInterceptor: StorageAuthInterceptor by lazy {
+        StorageAuthInterceptor(BuildConfig.SUPABASE_URL, BuildConfig.SUPABASE_KEY) {
+            authRepository.getAccessToken()
+        }
+    }
+
+    val imageLoader: ImageLoader by timedLazy("imageLoader") {
+        AppImageLoader.create(appContext, SupabaseClient.okHttpClient, storageAuthInterceptor)
+    }
+
+    // Full-size originals for the zoomable photo viewer
+    val photoSourceCache: PhotoSourceCache by timedLazy("photoSourceCache") {
+        PhotoSourceCache(
+            originalsDir,
+            SupabaseClient.okHttpClient.newBuilder()
+                .addInterceptor(storageAuthInterceptor)
+                .build()
+        )
+    }
+
+    // Camera captures, pending uploads and photo caches under one storage budget
+    val mediaCacheManager: MediaCacheManager by timedLazy("mediaCacheManager") {
+        MediaCacheManager(
+            captureDir = appContext.getExternalFilesDir(Environment.DIRECTORY_PICTURES)
+                ?: File(appContext.filesDir, Environment.DIRECTORY_PICTURES),
+            originalsDir = originalsDir,
+            pendingUploadDir = pendingUploadDir,
+            fileProviderAuthority = "${appContext.packageName}.fileprovider",
+            imageDiskCache = { imageLoader.diskCache }
+        )
+    }
+
+    private val pendingUploadDir: File get() = File(appContext.filesDir, "photo_uploads")
+
+    private val originalsDir: File get() = File(appContext.cacheDir, "photo_originals")
+
+    private fun <T> timedLazy(name: String, create: () -> T): Lazy<T> = lazy {
+        val startedAt = SystemClock.elapsedRealtimeNanos()
+        val value = create()
+        val elapsedMs = (SystemClock.elapsedRealtimeNanos() - startedAt) / 1_000_000
+        timings[name] = elapsedMs
+        Timber.d("Created $name in ${elapsedMs}ms")
+        value
+    }
+}
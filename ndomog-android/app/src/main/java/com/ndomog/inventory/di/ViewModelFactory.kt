@@ -7,36 +7,42 @@ import com.ndomog.inventory.presentation.activity.ActivityViewModel
 import com.ndomog.inventory.presentation.notifications.NotificationsViewModel
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
-import com.ndomog.inventory.data.repository.AuthRepository
-import com.ndomog.inventory.data.local.NdomogDatabase
-import com.ndomog.inventory.data.repository.ItemRepository
-import com.ndomog.inventory.data.repository.SyncRepository
 import com.ndomog.inventory.presentation.dashboard.DashboardViewModel
+import com.ndomog.inventory.presentation.stocktake.StockTakeViewModel
 
 class ViewModelFactory(
-    private val authRepository: AuthRepository,
-    private val database: NdomogDatabase
+    private val container: AppContainer
 ) : ViewModelProvider.Factory {
 
     @Suppress("UNCHECKED_CAST")
     override fun <T : ViewModel> create(modelClass: Class<T>): T {
+        val database = container.database
         return when {
             modelClass.isAssignableFrom(AuthViewModel::class.java) -> {
-                AuthViewModel(authRepository, database.profileDao()) as T
+                AuthViewModel(container.authRepository, database.profileDao()) as T
             }
             modelClass.isAssignableFrom(DashboardViewModel::class.java) -> {
-                val itemRepository = ItemRepository(
-                    database.itemDao(),
-                    database.pendingActionDao(),
-                    database.activityLogDao(),
-                    database.profileDao(),
-                    authRepository
-                )
-                val syncRepository = SyncRepository(database.itemDao(), database.pendingActionDao())
-                DashboardViewModel(itemRepository, syncRepository) as T
+                DashboardViewModel(
+                    container.itemRepository,
+                    container.syncRepository,
+                    container.dashboardSnapshotStore,
+                    container.photoUploadQueue,
+                    container.mediaCacheManager,
+                    container.barcodeRepository,
+                    offline = container.benchmarkMode
+                ) as T
+            }
+            modelClass.isAssignableFrom(StockTakeViewModel::class.java) -> {
+                StockTakeViewModel(container.stockTakeRepository, container.itemRepository) as T
             }
             modelClass.isAssignableFrom(ProfileViewModel::class.java) -> {
-                ProfileViewModel(authRepository, database.profileDao()) as T
+                ProfileViewModel(
+                    container.authRepository,
+                    database.profileDao(),
+                    container.photoUploader,
+                    container.mediaCacheManager,
+                    container.dashboardSnapshotStore
+                ) as T
             }
             modelClass.isAssignableFrom(CategoriesViewModel::class.java) -> {
                 CategoriesViewModel(database.categoryDao(), database.itemDao()) as T
@@ -45,7 +51,7 @@ class ViewModelFactory(
                 ActivityViewModel(database) as T
             }
             modelClass.isAssignableFrom(NotificationsViewModel::class.java) -> {
-                NotificationsViewModel(authRepository) as T
+                NotificationsViewModel(container.authRepository, container.profileCache) as T
             }
             else -> throw IllegalArgumentException("Unknown ViewModel class: ${modelClass.name}")
         }
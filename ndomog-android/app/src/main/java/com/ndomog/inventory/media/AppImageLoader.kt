@@ -0,0 +1,51 @@
+package com.ndomog.inventory.media
+
+import android.content.Context
+import coil.ImageLoader
+import coil.disk.DiskCache
+import coil.memory.MemoryCache
+import okhttp3.OkHttpClient
+
+/**
+ * Builds the app-wide Coil [ImageLoader].
+ *
+ * Item photos get a fresh path on every upload, so a generous disk cache is
+ * safe; the memory cache is capped well below Coil's default so large
+ * inventories don't crowd out the rest of the app.
+ */
+object AppImageLoader {
+    // Share of the app's memory class used for decoded bitmaps
+    const val MEMORY_CACHE_PERCENT = 0.15
+
+    const val DISK_CACHE_BYTES = 128L * 1024 * 1024
+
+    fun create(
+        context: Context,
+        okHttpClient: OkHttpClient,
+        storageAuth: StorageAuthInterceptor
+    ): ImageLoader {
+        val appContext = context.applicationContext
+        return ImageLoader.Builder(appContext)
+            // Reuse the Supabase connection pool for image downloads
+            .okHttpClient {
+                okHttpClient.newBuilder()
+                    .addInterceptor(storageAuth)
+                    .build()
+            }
+            .memoryCache {
+                MemoryCache.Builder(appContext)
+                    .maxSizePercent(MEMORY_CACHE_PERCENT)
+                    .build()
+            }
+            .diskCache {
+                DiskCache.Builder()
+                    .directory(appContext.cacheDir.resolve("image_cache"))
+                    .maxSizeBytes(DISK_CACHE_BYTES)
+                    .build()
+            }
+            .components {
+                add(CoalescingInterceptor())
+            }
+            .build()
+    }
+}
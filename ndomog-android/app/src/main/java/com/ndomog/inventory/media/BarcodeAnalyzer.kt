@@ -0,0 +1,78 @@
+package com.ndomog.inventory.media
+
+import androidx.annotation.OptIn
+import androidx.camera.core.ExperimentalGetImage
+import androidx.camera.core.ImageAnalysis
+import androidx.camera.core.ImageProxy
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions
+import com.google.mlkit.vision.barcode.BarcodeScanning
+import com.google.mlkit.vision.barcode.common.Barcode
+import com.google.mlkit.vision.common.InputImage
+import timber.log.Timber
+
+/**
+ * CameraX analyzer that decodes barcodes with ML Kit on the device.
+ *
+ * Each frame is closed once ML Kit is done with it, so with
+ * [ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST] frames arriving meanwhile are
+ * dropped rather than queued. [onBarcode] is called once per distinct code,
+ * or, with [rearmAfterEmptyFrames], again for the same code once it has been
+ * out of view for that many frames, so counting units can rescan one label.
+ */
+class BarcodeAnalyzer(
+    private val rearmAfterEmptyFrames: Int? = null,
+    private val onBarcode: (String) -> Unit
+) : ImageAnalysis.Analyzer {
+    private val scanner = BarcodeScanning.getClient(
+        BarcodeScannerOptions.Builder()
+            // Retail codes plus the symbologies printed on part labels
+            .setBarcodeFormats(
+                Barcode.FORMAT_EAN_13,
+                Barcode.FORMAT_EAN_8,
+                Barcode.FORMAT_UPC_A,
+                Barcode.FORMAT_UPC_E,
+                Barcode.FORMAT_CODE_128,
+                Barcode.FORMAT_CODE_39,
+                Barcode.FORMAT_QR_CODE,
+                Barcode.FORMAT_DATA_MATRIX
+            )
+            .build()
+    )
+
+    @Volatile
+    private var lastValue: String? = null
+
+    // Consecutive frames without a code; results arrive one at a time
+    private var emptyFrames = 0
+
+    @OptIn(ExperimentalGetImage::class)
+    override fun analyze(imageProxy: ImageProxy) {
+        val mediaImage = imageProxy.image
+        if (mediaImage == null) {
+            imageProxy.close()
+            return
+        }
+
+        scanner.process(InputImage.fromMediaImage(mediaImage, imageProxy.imageInfo.rotationDegrees))
+            .addOnSuccessListener { barcodes ->
+                val value = barcodes.firstNotNullOfOrNull { it.rawValue?.trim()?.takeIf(String::isNotEmpty) }
+                if (value == null) {
+                    emptyFrames++
+                    // A single blurred frame must not count the same label twice
+                    if (rearmAfterEmptyFrames != null && emptyFrames >= rearmAfterEmptyFrames) lastValue = null
+                    return@addOnSuccessListener
+                }
+                emptyFrames = 0
+                if (value != lastValue) {
+                    lastValue = value
+                    onBarcode(value)
+                }
+            }
+            .addOnFailureListener { Timber.w(it, "Barcode analysis failed") }
+            .addOnCompleteListener { imageProxy.close() }
+    }
+
+    fun close() {
+        scanner.close()
+    }
+}
@@ -0,0 +1,48 @@
+package com.ndomog.inventory.media
+
+import coil.intercept.Interceptor
+import coil.request.ImageResult
+import coil.request.SuccessResult
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Shares one load between identical requests that are in flight at the same
+ * time, e.g. a prefetch and the list card it was made for. A waiter whose
+ * leader fails or is cancelled loads the image itself.
+ */
+class CoalescingInterceptor : Interceptor {
+    private val inFlight = ConcurrentHashMap<String, CompletableDeferred<ImageResult>>()
+
+    override suspend fun intercept(chain: Interceptor.Chain): ImageResult {
+        val data = chain.request.data
+        if (data !is String || !data.startsWith("http")) {
+            return chain.proceed(chain.request)
+        }
+
+        val key = "$data@${chain.size}"
+        val leader = CompletableDeferred<ImageResult>()
+        val existing = inFlight.putIfAbsent(key, leader)
+        if (existing != null) {
+            val shared = runCatching { existing.await() }.getOrNull()
+            currentCoroutineContext().ensureActive()
+            if (shared is SuccessResult) {
+                return shared.copy(request = chain.request)
+            }
+            return chain.proceed(chain.request)
+        }
+
+        try {
+            val result = chain.proceed(chain.request)
+            leader.complete(result)
+            return result
+        } catch (e: Throwable) {
+            leader.completeExceptionally(e)
+            throw e
+        } finally {
+            inFlight.remove(key, leader)
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.ndomog.inventory.media
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Matrix
+import android.net.Uri
+import android.os.Build
+import androidx.exifinterface.media.ExifInterface
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.IOException
+import java.util.UUID
+import kotlin.math.max
+
+data class ImageProcessingConfig(
+    // Longest edge of uploaded photos, in pixels
+    val maxEdgePx: Int = 1600,
+    // WebP quality, 0-100
+    val quality: Int = 80
+)
+
+/**
+ * A recompressed image in the app cache. The caller owns [file] and should
+ * delete it once uploaded.
+ */
+data class ProcessedImage(
+    val file: File,
+    val width: Int,
+    val height: Int
+) {
+    val contentType: String get() = "image/webp"
+    val extension: String get() = "webp"
+}
+
+/**
+ * Turns camera and gallery images into upload-sized WebP files.
+ *
+ * The source is decoded with an `inSampleSize` close to the target so a 12 MP
+ * photo never sits in memory at full size, then rotated according to its EXIF
+ * orientation and scaled so its longest edge is at most the requested size.
+ */
+class ImageProcessor(
+    context: Context,
+    private val config: ImageProcessingConfig = ImageProcessingConfig()
+) {
+    private val appContext = context.applicationContext
+    private val outputDir = File(appContext.cacheDir, "processed_images")
+
+    suspend fun process(
+        uri: Uri,
+        maxEdgePx: Int = config.maxEdgePx,
+        quality: Int = config.quality
+    ): ProcessedImage = withContext(Dispatchers.IO) {
+        val bitmap = decodeScaled(uri, maxEdgePx)
+        val oriented = applyOrientation(bitmap, readOrientation(uri), maxEdgePx)
+        if (oriented !== bitmap) bitmap.recycle()
+        try {
+            writeWebp(oriented, quality)
+        } finally {
+            oriented.recycle()
+        }
+    }
+
+    private fun decodeScaled(uri: Uri, maxEdgePx: Int): Bitmap {
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        openStream(uri).use { BitmapFactory.decodeStream(it, null, bounds) }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw IOException("Unsupported image")
+        }
+
+        val options = BitmapFactory.Options().apply {
+            inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, maxEdgePx)
+        }
+        return openStream(uri).use { BitmapFactory.decodeStream(it, null, options) }
+            ?: throw IOException("Failed to decode image")
+    }
+
+    // Largest power of two that keeps the longest edge at or above the target
+    private fun sampleSizeFor(width: Int, height: Int, maxEdgePx: Int): Int {
+        var sampleSize = 1
+        val longestEdge = max(width, height)
+        while (longestEdge / (sampleSize * 2) >= maxEdgePx) {
+            sampleSize *= 2
+        }
+        return sampleSize
+    }
+
+    private fun readOrientation(uri: Uri): Int {
+        return try {
+            openStream(uri).use { ExifInterface(it) }
+                .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)
+        } catch (e: IOException) {
+            ExifInterface.ORIENTATION_NORMAL
+        }
+    }
+
+    private fun applyOrientation(bitmap: Bitmap, orientation: Int, maxEdgePx: Int): Bitmap {
+        val matrix = Matrix()
+        when (orientation) {
+            ExifInterface.ORIENTATION_FLIP_HORIZONTAL -> matrix.setScale(-1f, 1f)
+            ExifInterface.ORIENTATION_ROTATE_180 -> matrix.setRotate(180f)
+            ExifInterface.ORIENTATION_FLIP_VERTICAL -> matrix.setScale(1f, -1f)
+            ExifInterface.ORIENTATION_TRANSPOSE -> {
+                matrix.setRotate(90f)
+                matrix.postScale(-1f, 1f)
+            }
+            ExifInterface.ORIENTATION_ROTATE_90 -> matrix.setRotate(90f)
+            ExifInterface.ORIENTATION_TRANSVERSE -> {
+                matrix.setRotate(-90f)
+                matrix.postScale(-1f, 1f)
+            }
+            ExifInterface.ORIENTATION_ROTATE_270 -> matrix.setRotate(-90f)
+        }
+
+        val longestEdge = max(bitmap.width, bitmap.height)
+        if (longestEdge > maxEdgePx) {
+            val scale = maxEdgePx.toFloat() / longestEdge
+            matrix.postScale(scale, scale)
+        }
+        if (matrix.isIdentity) return bitmap
+
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.width, bitmap.height, matrix, true)
+    }
+
+    private fun writeWebp(bitmap: Bitmap, quality: Int): ProcessedImage {
+        outputDir.mkdirs()
+        val file = File(outputDir, "${UUID.randomUUID()}.webp")
+        @Suppress("DEPRECATION")
+        val format = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            Bitmap.CompressFormat.WEBP_LOSSY
+        } else {
+            Bitmap.CompressFormat.WEBP
+        }
+        file.outputStream().buffered().use { out ->
+            if (!bitmap.compress(format, quality.coerceIn(0, 100), out)) {
+                throw IOException("Failed to encode image")
+            }
+        }
+        return ProcessedImage(file, bitmap.width, bitmap.height)
+    }
+
+    private fun openStream(uri: Uri) = appContext.contentResolver.openInputStream(uri)
+        ?: throw IOException("Cannot open $uri")
+}
@@ -0,0 +1,140 @@
+package com.ndomog.inventory.media
+
+import android.net.Uri
+import coil.annotation.ExperimentalCoilApi
+import coil.disk.DiskCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import java.io.File
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+
+/**
+ * Bytes each kind of photo takes on the device.
+ */
+data class MediaUsage(
+    val captureBytes: Long = 0,
+    val imageCacheBytes: Long = 0,
+    val originalsBytes: Long = 0,
+    val pendingUploadBytes: Long = 0,
+    val budgetBytes: Long = 0
+) {
+    val totalBytes: Long get() = captureBytes + imageCacheBytes + originalsBytes + pendingUploadBytes
+}
+
+/**
+ * Owns the photo files the app keeps on the device and holds them to a shared
+ * byte budget.
+ *
+ * Camera captures are created here in [captureDir] and deleted with
+ * [releaseCapture] once the photo they hold is safely stored elsewhere. When
+ * the captures, the viewer's originals in [originalsDir] and Coil's disk
+ * cache together exceed [budgetBytes], [enforceBudget] deletes the least
+ * recently used captures and originals. Coil keeps its own LRU below its
+ * size cap, so it is counted against the budget but not trimmed file by file.
+ * Photos in [pendingUploadDir] are the only copy until uploaded and are never
+ * evicted.
+ */
+class MediaCacheManager(
+    private val captureDir: File,
+    private val originalsDir: File,
+    private val pendingUploadDir: File,
+    private val fileProviderAuthority: String,
+    private val imageDiskCache: () -> DiskCache?,
+    private val budgetBytes: Long = DEFAULT_BUDGET_BYTES
+) {
+    companion object {
+        const val DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024
+
+        const val ITEM_PHOTO_PREFIX = "JPEG_"
+        const val AVATAR_PREFIX = "AVATAR_"
+
+        // Newer captures may still belong to an open dialog or a running upload
+        const val CAPTURE_GRACE_MS = 24L * 60 * 60 * 1000
+
+        private val CAPTURE_PREFIXES = listOf(ITEM_PHOTO_PREFIX, AVATAR_PREFIX)
+    }
+
+    /** Creates an empty file for the camera to write a new photo into. */
+    fun newCaptureFile(prefix: String): File {
+        val timeStamp = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(Date())
+        captureDir.mkdirs()
+        return File.createTempFile("${prefix}${timeStamp}_", ".jpg", captureDir)
+    }
+
+    /**
+     * Deletes the capture behind [uri] once it is no longer needed. URIs that
+     * do not point at one of our captures, e.g. gallery picks, are ignored.
+     */
+    suspend fun releaseCapture(uri: Uri) = withContext(Dispatchers.IO) {
+        val file = captureFileFor(uri) ?: return@withContext
+        if (file.delete()) Timber.d("Released capture ${file.name}")
+    }
+
+    suspend fun usage(): MediaUsage = withContext(Dispatchers.IO) {
+        MediaUsage(
+            captureBytes = captures().sumOf { it.length() },
+            imageCacheBytes = imageDiskCache()?.size ?: 0,
+            originalsBytes = filesIn(originalsDir).sumOf { it.length() },
+            pendingUploadBytes = filesIn(pendingUploadDir).sumOf { it.length() },
+            budgetBytes = budgetBytes
+        )
+    }
+
+    /**
+     * Deletes the least recently used captures and originals until everything
+     * but pending uploads fits in the budget. Returns the bytes freed.
+     */
+    suspend fun enforceBudget(): Long = withContext(Dispatchers.IO) {
+        val protectedSince = System.currentTimeMillis() - CAPTURE_GRACE_MS
+        val captures = captures()
+        val originals = filesIn(originalsDir)
+        var total = (imageDiskCache()?.size ?: 0) +
+            captures.sumOf { it.length() } +
+            originals.sumOf { it.length() }
+        if (total <= budgetBytes) return@withContext 0L
+
+        var freed = 0L
+        val candidates = (captures.filter { it.lastModified() < protectedSince } + originals)
+            .sortedBy { it.lastModified() }
+        for (file in candidates) {
+            if (total <= budgetBytes) break
+            val length = file.length()
+            if (file.delete()) {
+                total -= length
+                freed += length
+            }
+        }
+        Timber.d("Media cache over budget, freed $freed bytes")
+        freed
+    }
+
+    /** Empties Coil's disk cache, the originals and all but recent captures. */
+    @OptIn(ExperimentalCoilApi::class)
+    suspend fun clear() = withContext(Dispatchers.IO) {
+        imageDiskCache()?.clear()
+        filesIn(originalsDir).forEach { it.delete() }
+        val protectedSince = System.currentTimeMillis() - CAPTURE_GRACE_MS
+        captures().filter { it.lastModified() < protectedSince }.forEach { it.delete() }
+    }
+
+    private fun captureFileFor(uri: Uri): File? {
+        val name = when (uri.scheme) {
+            "content" -> uri.takeIf { it.authority == fileProviderAuthority }?.lastPathSegment
+            "file" -> uri.path?.let(::File)?.takeIf { it.parentFile == captureDir }?.name
+            else -> null
+        } ?: return null
+        if (CAPTURE_PREFIXES.none { name.startsWith(it) }) return null
+        return File(captureDir, name).takeIf { it.isFile }
+    }
+
+    private fun captures(): List<File> {
+        return filesIn(captureDir).filter { file -> CAPTURE_PREFIXES.any { file.name.startsWith(it) } }
+    }
+
+    private fun filesIn(directory: File): List<File> {
+        return directory.listFiles()?.filter { it.isFile } ?: emptyList()
+    }
+}
@@ -0,0 +1,72 @@
+package com.ndomog.inventory.media
+
+import android.net.Uri
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okio.buffer
+import okio.sink
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+
+/**
+ * Full-size photos as local files, for viewers that decode regions of an image
+ * instead of the whole thing.
+ *
+ * Remote photos are downloaded once into [directory] and reused until the
+ * directory grows past [maxBytes], when the least recently opened are dropped.
+ * Photos still waiting to be uploaded are served from their local file.
+ */
+class PhotoSourceCache(
+    private val directory: File,
+    private val okHttpClient: OkHttpClient,
+    private val maxBytes: Long = DEFAULT_MAX_BYTES
+) {
+    companion object {
+        const val DEFAULT_MAX_BYTES = 64L * 1024 * 1024
+    }
+
+    suspend fun fileFor(url: String): File = withContext(Dispatchers.IO) {
+        if (url.startsWith("file:")) {
+            return@withContext File(requireNotNull(Uri.parse(url).path) { "Invalid file URL $url" })
+        }
+
+        val file = File(directory, keyFor(url))
+        if (file.exists()) {
+            file.setLastModified(System.currentTimeMillis())
+            return@withContext file
+        }
+
+        directory.mkdirs()
+        val tmp = File.createTempFile("download", ".tmp", directory)
+        try {
+            okHttpClient.newCall(Request.Builder().url(url).build()).execute().use { response ->
+                if (!response.isSuccessful) throw IOException("Download of $url failed: ${response.code}")
+                val body = response.body ?: throw IOException("Download of $url returned no body")
+                tmp.sink().buffer().use { it.writeAll(body.source()) }
+            }
+            if (!tmp.renameTo(file)) throw IOException("Could not store $url")
+        } finally {
+            tmp.delete()
+        }
+        trim()
+        file
+    }
+
+    private fun trim() {
+        val files = directory.listFiles()?.sortedByDescending { it.lastModified() } ?: return
+        var total = 0L
+        for (file in files) {
+            total += file.length()
+            if (total > maxBytes) file.delete()
+        }
+    }
+
+    private fun keyFor(url: String): String {
+        return MessageDigest.getInstance("SHA-256")
+            .digest(url.toByteArray())
+            .joinToString("") { "%02x".format(it) }
+    }
+}
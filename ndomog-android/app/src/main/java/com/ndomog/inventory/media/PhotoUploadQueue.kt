@@ -0,0 +1,181 @@
+package com.ndomog.inventory.media
+
+import android.content.Context
+import android.net.Uri
+import androidx.work.BackoffPolicy
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkRequest
+import com.ndomog.inventory.data.local.ItemPhotoDao
+import com.ndomog.inventory.data.local.PendingActionDao
+import com.ndomog.inventory.data.local.PhotoUploadDao
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.models.PendingAction
+import com.ndomog.inventory.data.models.PhotoUpload
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import timber.log.Timber
+import java.io.File
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * Saves item photo sets locally straight away and uploads new photos in the
+ * background.
+ *
+ * New photos are processed into app storage and cached in item_photos with
+ * their file URL, so they show at once. [PhotoUploadWorker] uploads them,
+ * swaps in the remote URLs and then replays the item's `SYNC_PHOTOS` outbox
+ * action, which pushes the finished set and cover photo to Supabase.
+ */
+class PhotoUploadQueue(
+    context: Context,
+    private val photoUploadDao: PhotoUploadDao,
+    private val itemPhotoDao: ItemPhotoDao,
+    private val pendingActionDao: PendingActionDao,
+    private val photoUploader: PhotoUploader,
+    private val mediaCacheManager: MediaCacheManager
+) {
+    companion object {
+        const val WORK_NAME = "photo-uploads"
+        const val MAX_PARALLEL_UPLOADS = 3
+    }
+
+    private val appContext = context.applicationContext
+
+    val uploadCount: Flow<Int> = photoUploadDao.observeUploadCount()
+
+    /**
+     * Makes [photos] the photo set of [itemId], in list order, and returns the
+     * rows now cached. Entries with a local URI are queued for upload, and
+     * camera captures among them deleted once their processed copy is queued.
+     */
+    suspend fun save(itemId: String, photos: List<ItemPhoto>): List<ItemPhoto> {
+        val cached = itemPhotoDao.getPhotosForItem(itemId).associateBy { it.id }
+        val queuedUris = mutableListOf<Uri>()
+        val saved = photos.mapIndexed { index, photo ->
+            val current = cached[photo.id]
+            when {
+                // Possibly uploaded since the caller read it, so take the cached row
+                current != null -> current.copy(position = index)
+                isRemoteUrl(photo.url) -> photo.copy(
+                    id = photo.id.ifBlank { UUID.randomUUID().toString() },
+                    itemId = itemId,
+                    position = index
+                )
+                else -> Uri.parse(photo.url).let { uri ->
+                    queuedUris += uri
+                    enqueue(itemId, uri, index)
+                }
+            }
+        }
+
+        val keptIds = saved.mapTo(HashSet()) { it.id }
+        photoUploadDao.getUploadsForItem(itemId)
+            .filter { it.id !in keptIds }
+            .forEach { discard(it) }
+
+        itemPhotoDao.replacePhotosForItem(itemId, saved)
+        pendingActionDao.deletePendingActions(ActionType.SYNC_PHOTOS, itemId)
+        pendingActionDao.insertAction(PendingAction(type = ActionType.SYNC_PHOTOS, entityId = itemId, data = "{}"))
+        schedule()
+        queuedUris.forEach { mediaCacheManager.releaseCapture(it) }
+        return saved
+    }
+
+    /** Schedules the worker if uploads were left over from an earlier run. */
+    suspend fun resumePending() {
+        if (photoUploadDao.getUploads().isNotEmpty()) schedule()
+    }
+
+    /**
+     * Uploads every queued photo, at most [MAX_PARALLEL_UPLOADS] at a time.
+     * Returns false if any upload failed and should be retried.
+     */
+    suspend fun uploadAll(): Boolean = coroutineScope {
+        val semaphore = Semaphore(MAX_PARALLEL_UPLOADS)
+        photoUploadDao.getUploads()
+            .map { upload -> async { semaphore.withPermit { upload(upload) } } }
+            .awaitAll()
+            .all { it }
+    }
+
+    private suspend fun upload(upload: PhotoUpload): Boolean {
+        return try {
+            val uploaded = photoUploader.uploadQueued(upload) { uploadUrl, offset ->
+                photoUploadDao.updateProgress(upload.id, uploadUrl, offset)
+            }
+            // Removed from the item while it was uploading: the objects are left
+            // to the server's garbage collection, as another item may share them
+            if (photoUploadDao.getUpload(upload.id) != null) {
+                itemPhotoDao.updatePhotoUrls(upload.id, uploaded.url, uploaded.thumbnailUrl)
+                photoUploadDao.deleteUpload(upload.id)
+            }
+            deleteFiles(upload)
+            true
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Timber.w(e, "Upload of photo ${upload.id} failed, attempt ${upload.attempts + 1}")
+            photoUploadDao.incrementAttempts(upload.id)
+            false
+        }
+    }
+
+    private suspend fun enqueue(itemId: String, uri: Uri, position: Int): ItemPhoto {
+        val prepared = photoUploader.prepareItemPhoto(uri)
+        val upload = PhotoUpload(
+            id = UUID.randomUUID().toString(),
+            itemId = itemId,
+            filePath = prepared.file.path,
+            thumbnailPath = prepared.thumbnailFile.path,
+            storagePath = prepared.storagePath,
+            thumbnailStoragePath = prepared.thumbnailStoragePath
+        )
+        photoUploadDao.insertUpload(upload)
+        return ItemPhoto(
+            id = upload.id,
+            itemId = itemId,
+            url = Uri.fromFile(prepared.file).toString(),
+            thumbnailUrl = Uri.fromFile(prepared.thumbnailFile).toString(),
+            position = position
+        )
+    }
+
+    private suspend fun discard(upload: PhotoUpload) {
+        photoUploadDao.deleteUpload(upload.id)
+        deleteFiles(upload)
+    }
+
+    private fun deleteFiles(upload: PhotoUpload) {
+        File(upload.filePath).delete()
+        File(upload.thumbnailPath).delete()
+    }
+
+    private fun schedule() {
+        val request = OneTimeWorkRequestBuilder<PhotoUploadWorker>()
+            .setConstraints(
+                Constraints.Builder()
+                    .setRequiredNetworkType(NetworkType.CONNECTED)
+                    .build()
+            )
+            .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, WorkRequest.MIN_BACKOFF_MILLIS, TimeUnit.MILLISECONDS)
+            .build()
+        // Appending lets a running worker finish while a new one picks up what was added meanwhile
+        WorkManager.getInstance(appContext)
+            .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request)
+    }
+
+    private fun isRemoteUrl(value: String): Boolean {
+        return value.startsWith("http://") || value.startsWith("https://")
+    }
+}
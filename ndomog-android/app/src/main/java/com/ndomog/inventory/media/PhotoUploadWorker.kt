@@ -0,0 +1,31 @@
+package com.ndomog.inventory.media
+
+import android.content.Context
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import com.ndomog.inventory.NdomogApplication
+import timber.log.Timber
+
+/**
+ * Drains the [PhotoUploadQueue], then replays the outbox so the finished photo
+ * sets reach Supabase.
+ */
+class PhotoUploadWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+    companion object {
+        // Afterwards the outbox and leftover uploads wait for the next sync or app start
+        private const val MAX_RUN_ATTEMPTS = 8
+    }
+
+    override suspend fun doWork(): Result {
+        val container = (applicationContext as NdomogApplication).container
+        val uploaded = container.photoUploadQueue.uploadAll()
+        val sync = container.syncRepository.syncPendingActions()
+        if (uploaded && sync.success) return Result.success()
+
+        Timber.w("Photo uploads incomplete (uploads ok: $uploaded, sync errors: ${sync.errors})")
+        return if (runAttemptCount + 1 >= MAX_RUN_ATTEMPTS) Result.failure() else Result.retry()
+    }
+}
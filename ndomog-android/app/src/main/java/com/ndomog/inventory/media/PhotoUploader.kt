@@ -0,0 +1,152 @@
+package com.ndomog.inventory.media
+
+import android.net.Uri
+import com.ndomog.inventory.data.models.PhotoUpload
+import io.github.jan.supabase.storage.storage
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.security.MessageDigest
+import java.util.UUID
+
+data class UploadedPhoto(
+    val url: String,
+    val thumbnailUrl: String
+)
+
+/** A photo and its thumbnail processed into app storage, waiting to be uploaded. */
+data class PreparedPhoto(
+    val file: File,
+    val thumbnailFile: File,
+    val storagePath: String,
+    val thumbnailStoragePath: String
+)
+
+/**
+ * Processes and uploads item photos and avatars.
+ */
+class PhotoUploader(
+    private val supabase: io.github.jan.supabase.SupabaseClient,
+    private val imageProcessor: ImageProcessor,
+    private val storageUploader: StorageUploader,
+    private val pendingDir: File
+) {
+    companion object {
+        const val ITEM_PHOTO_BUCKET = "item-photos"
+        const val AVATAR_BUCKET = "avatars"
+
+        // Avatars never render larger than a profile header
+        const val AVATAR_MAX_EDGE_PX = 512
+
+        // List cards show photos at 40dp, i.e. 160px on xxxhdpi screens
+        const val THUMBNAIL_MAX_EDGE_PX = 160
+        const val THUMBNAIL_QUALITY = 70
+
+        // ImageProcessor always writes WebP
+        private const val PHOTO_CONTENT_TYPE = "image/webp"
+
+        // Folder of content-addressed item photos, shared by every item
+        private const val CONTENT_PREFIX = "sha256"
+    }
+
+    /**
+     * Processes [uri] into a photo and a thumbnail kept in [pendingDir] until
+     * they are uploaded, which survives the source being revoked or deleted.
+     *
+     * Storage paths are derived from the SHA-256 of the processed photo, so the
+     * same picture attached to several items is stored once and shared.
+     */
+    suspend fun prepareItemPhoto(uri: Uri): PreparedPhoto {
+        val image = imageProcessor.process(uri)
+        try {
+            // Derive the thumbnail from the already downscaled image, not the original
+            val thumbnail = imageProcessor.process(
+                Uri.fromFile(image.file),
+                maxEdgePx = THUMBNAIL_MAX_EDGE_PX,
+                quality = THUMBNAIL_QUALITY
+            )
+            val hash = sha256Hex(image.file)
+            // Local names stay unique: two queued copies of one picture must not share files
+            val name = UUID.randomUUID().toString()
+            return PreparedPhoto(
+                file = moveToPending(image.file, "$name.${image.extension}"),
+                thumbnailFile = moveToPending(thumbnail.file, "${name}_thumb.${thumbnail.extension}"),
+                storagePath = "$CONTENT_PREFIX/$hash.${image.extension}",
+                thumbnailStoragePath = "$CONTENT_PREFIX/${hash}_thumb.${thumbnail.extension}"
+            )
+        } finally {
+            image.file.delete()
+        }
+    }
+
+    /**
+     * Uploads a queued photo, resuming an interrupted transfer of the full-size
+     * image, and returns the public URLs of both renditions. Renditions already
+     * in the bucket are not uploaded again.
+     */
+    suspend fun uploadQueued(
+        upload: PhotoUpload,
+        onProgress: suspend (uploadUrl: String, offset: Long) -> Unit
+    ): UploadedPhoto {
+        if (!storageUploader.exists(ITEM_PHOTO_BUCKET, upload.storagePath)) {
+            storageUploader.uploadResumable(
+                ITEM_PHOTO_BUCKET,
+                upload.storagePath,
+                File(upload.filePath),
+                PHOTO_CONTENT_TYPE,
+                upload.uploadUrl,
+                onProgress
+            )
+        }
+        if (!storageUploader.exists(ITEM_PHOTO_BUCKET, upload.thumbnailStoragePath)) {
+            // Thumbnails are a few kilobytes, not worth a resumable session
+            storageUploader.upload(
+                ITEM_PHOTO_BUCKET,
+                upload.thumbnailStoragePath,
+                File(upload.thumbnailPath),
+                PHOTO_CONTENT_TYPE,
+                upsert = true
+            )
+        }
+        val bucket = supabase.storage.from(ITEM_PHOTO_BUCKET)
+        return UploadedPhoto(
+            url = bucket.publicUrl(upload.storagePath),
+            thumbnailUrl = bucket.publicUrl(upload.thumbnailStoragePath)
+        )
+    }
+
+    private suspend fun sha256Hex(file: File): String = withContext(Dispatchers.IO) {
+        val digest = MessageDigest.getInstance("SHA-256")
+        file.inputStream().use { input ->
+            val buffer = ByteArray(DEFAULT_BUFFER_SIZE)
+            while (true) {
+                val read = input.read(buffer)
+                if (read < 0) break
+                digest.update(buffer, 0, read)
+            }
+        }
+        digest.digest().joinToString("") { "%02x".format(it) }
+    }
+
+    private fun moveToPending(file: File, name: String): File {
+        pendingDir.mkdirs()
+        val target = File(pendingDir, name)
+        if (!file.renameTo(target)) {
+            file.copyTo(target, overwrite = true)
+            file.delete()
+        }
+        return target
+    }
+
+    /** Uploads [userId]'s avatar, replacing any previous one, and returns its authenticated URL. */
+    suspend fun uploadAvatar(userId: String, uri: Uri): String {
+        val image = imageProcessor.process(uri, maxEdgePx = AVATAR_MAX_EDGE_PX)
+        try {
+            val path = "users/$userId/avatar.${image.extension}"
+            storageUploader.upload(AVATAR_BUCKET, path, image.file, image.contentType, upsert = true)
+            return supabase.storage.from(AVATAR_BUCKET).authenticatedUrl(path)
+        } finally {
+            image.file.delete()
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ndomog.inventory.media
+
+import okhttp3.HttpUrl.Companion.toHttpUrlOrNull
+import okhttp3.Interceptor
+import okhttp3.Response
+
+/**
+ * Adds Supabase credentials to image requests for private Storage objects, so
+ * screens can hand plain URLs to Coil. Public objects are left untouched.
+ */
+class StorageAuthInterceptor(
+    supabaseUrl: String,
+    private val supabaseKey: String,
+    private val accessToken: () -> String?
+) : Interceptor {
+    private val supabaseHost = supabaseUrl.toHttpUrlOrNull()?.host
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val path = request.url.encodedPath
+        val isPrivateObject = request.url.host == supabaseHost &&
+            path.startsWith("/storage/v1/object/") &&
+            !path.startsWith("/storage/v1/object/public/")
+        if (!isPrivateObject || request.header("Authorization") != null) {
+            return chain.proceed(request)
+        }
+
+        val token = accessToken() ?: supabaseKey
+        return chain.proceed(
+            request.newBuilder()
+                .header("apikey", supabaseKey)
+                .header("Authorization", "Bearer $token")
+                .build()
+        )
+    }
+}
@@ -0,0 +1,152 @@
+package com.ndomog.inventory.media
+
+import android.util.Base64
+import com.ndomog.inventory.BuildConfig
+import com.ndomog.inventory.data.remote.SupabaseClient
+import io.github.jan.supabase.gotrue.auth
+import io.ktor.client.HttpClient
+import io.ktor.client.request.HttpRequestBuilder
+import io.ktor.client.request.head
+import io.ktor.client.request.header
+import io.ktor.client.request.patch
+import io.ktor.client.request.post
+import io.ktor.client.request.setBody
+import io.ktor.client.statement.bodyAsText
+import io.ktor.http.ContentType
+import io.ktor.http.HttpHeaders
+import io.ktor.http.content.ByteArrayContent
+import io.ktor.http.content.LocalFileContent
+import io.ktor.http.isSuccess
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+
+/**
+ * Uploads files to Supabase Storage by streaming them from disk, instead of
+ * reading them into a `ByteArray` first.
+ *
+ * [uploadResumable] uses the TUS endpoint instead, so a transfer cut off by a
+ * lost connection continues from the last confirmed chunk.
+ */
+class StorageUploader(
+    private val supabase: io.github.jan.supabase.SupabaseClient,
+    private val httpClient: HttpClient,
+    private val supabaseUrl: String = BuildConfig.SUPABASE_URL,
+    private val supabaseKey: String = BuildConfig.SUPABASE_KEY
+) {
+    companion object {
+        // Supabase only accepts 6 MB chunks on the resumable endpoint
+        const val TUS_CHUNK_SIZE = 6 * 1024 * 1024
+        private const val TUS_VERSION = "1.0.0"
+        private val OFFSET_OCTET_STREAM = ContentType("application", "offset+octet-stream")
+
+        fun createDefault(): StorageUploader = StorageUploader(
+            supabase = SupabaseClient.client,
+            httpClient = HttpClient(SupabaseClient.httpEngine)
+        )
+    }
+
+    suspend fun upload(bucket: String, path: String, file: File, contentType: String, upsert: Boolean = false) {
+        val accessToken = accessToken()
+        val response = httpClient.post("$supabaseUrl/storage/v1/object/$bucket/$path") {
+            header("apikey", supabaseKey)
+            header(HttpHeaders.Authorization, "Bearer $accessToken")
+            header("x-upsert", upsert.toString())
+            setBody(LocalFileContent(file, ContentType.parse(contentType)))
+        }
+        if (!response.status.isSuccess()) {
+            throw IOException("Upload to $bucket failed: ${response.status} ${response.bodyAsText()}")
+        }
+    }
+
+    /** Whether [path] already exists in [bucket]. */
+    suspend fun exists(bucket: String, path: String): Boolean {
+        val accessToken = accessToken()
+        val response = httpClient.head("$supabaseUrl/storage/v1/object/$bucket/$path") {
+            header("apikey", supabaseKey)
+            header(HttpHeaders.Authorization, "Bearer $accessToken")
+        }
+        return response.status.isSuccess()
+    }
+
+    /**
+     * Uploads [file] with the TUS protocol. Pass the [uploadUrl] of an earlier,
+     * interrupted attempt to resume it; [onProgress] receives the upload URL and
+     * the confirmed offset after every chunk so the caller can persist them.
+     */
+    suspend fun uploadResumable(
+        bucket: String,
+        path: String,
+        file: File,
+        contentType: String,
+        uploadUrl: String?,
+        onProgress: suspend (uploadUrl: String, offset: Long) -> Unit
+    ) {
+        val accessToken = accessToken()
+        val length = file.length()
+
+        var url = uploadUrl
+        var offset = 0L
+        if (url != null) {
+            val head = httpClient.head(url) { tusHeaders(accessToken) }
+            val confirmed = head.headers["Upload-Offset"]?.toLongOrNull()
+            // Sessions expire server-side; start over when this one is gone
+            if (head.status.isSuccess() && confirmed != null) offset = confirmed else url = null
+        }
+        if (url == null) {
+            url = createUpload(bucket, path, length, contentType, accessToken)
+            onProgress(url, 0)
+        }
+
+        RandomAccessFile(file, "r").use { raf ->
+            val buffer = ByteArray(minOf(TUS_CHUNK_SIZE.toLong(), length).toInt().coerceAtLeast(1))
+            while (offset < length) {
+                val size = minOf(buffer.size.toLong(), length - offset).toInt()
+                withContext(Dispatchers.IO) {
+                    raf.seek(offset)
+                    raf.readFully(buffer, 0, size)
+                }
+                val response = httpClient.patch(url) {
+                    tusHeaders(accessToken)
+                    header("Upload-Offset", offset.toString())
+                    setBody(ByteArrayContent(buffer.copyOf(size), OFFSET_OCTET_STREAM))
+                }
+                if (!response.status.isSuccess()) {
+                    throw IOException("Resumable upload to $bucket failed: ${response.status} ${response.bodyAsText()}")
+                }
+                offset = response.headers["Upload-Offset"]?.toLongOrNull() ?: (offset + size)
+                onProgress(url, offset)
+            }
+        }
+    }
+
+    private suspend fun createUpload(bucket: String, path: String, length: Long, contentType: String, accessToken: String): String {
+        val response = httpClient.post("$supabaseUrl/storage/v1/upload/resumable") {
+            tusHeaders(accessToken)
+            // Retrying after a completed but unconfirmed upload must not fail on the existing object
+            header("x-upsert", "true")
+            header("Upload-Length", length.toString())
+            header(
+                "Upload-Metadata",
+                listOf("bucketName" to bucket, "objectName" to path, "contentType" to contentType)
+                    .joinToString(",") { (key, value) -> "$key ${Base64.encodeToString(value.toByteArray(), Base64.NO_WRAP)}" }
+            )
+        }
+        if (!response.status.isSuccess()) {
+            throw IOException("Creating resumable upload to $bucket failed: ${response.status} ${response.bodyAsText()}")
+        }
+        return response.headers[HttpHeaders.Location] ?: throw IOException("Resumable upload to $bucket returned no location")
+    }
+
+    // The session's token, or the anon key when signed out or auth is not installed
+    private fun accessToken(): String =
+        runCatching { supabase.auth.currentSessionOrNull()?.accessToken }.getOrNull() ?: supabaseKey
+
+    private fun HttpRequestBuilder.tusHeaders(accessToken: String) {
+        header("apikey", supabaseKey)
+        header(HttpHeaders.Authorization, "Bearer $accessToken")
+        header("Tus-Resumable", TUS_VERSION)
+    }
+}
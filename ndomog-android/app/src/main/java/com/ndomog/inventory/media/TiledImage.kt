@@ -0,0 +1,118 @@
+package com.ndomog.inventory.media
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.BitmapRegionDecoder
+import android.graphics.Rect
+import android.os.Build
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+
+/**
+ * Tile-sized bitmaps shared by every page of a viewer, so zooming and swiping
+ * reuse memory instead of allocating a bitmap per tile.
+ */
+class TileBitmapPool(private val maxCount: Int = DEFAULT_MAX_COUNT) {
+    companion object {
+        const val DEFAULT_MAX_COUNT = 16
+
+        // Photos are opaque, so RGB_565 halves tile memory without visible loss
+        val CONFIG = Bitmap.Config.RGB_565
+        private val TILE_BYTES = TiledImage.TILE_SIZE_PX * TiledImage.TILE_SIZE_PX * 2
+    }
+
+    private val free = ArrayDeque<Bitmap>()
+
+    @Synchronized
+    fun get(): Bitmap? = free.removeFirstOrNull()
+
+    /** Takes [bitmap] back for reuse, or recycles it; it must no longer be drawn. */
+    @Synchronized
+    fun put(bitmap: Bitmap) {
+        if (bitmap.isRecycled) return
+        if (free.size < maxCount && bitmap.isMutable && bitmap.allocationByteCount >= TILE_BYTES) {
+            free.addLast(bitmap)
+        } else {
+            bitmap.recycle()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        free.forEach { it.recycle() }
+        free.clear()
+    }
+}
+
+/**
+ * Region decoder over one image file. The whole image is decoded at a sample
+ * size close to the screen, and zoomed-in views decode only the visible
+ * [TILE_SIZE_PX] tiles at a finer sample size, so a photo is never held in
+ * memory at full resolution.
+ */
+class TiledImage private constructor(
+    private val decoder: BitmapRegionDecoder,
+    private val pool: TileBitmapPool
+) : Closeable {
+    companion object {
+        // Tile edge in decoded pixels, whatever the sample size
+        const val TILE_SIZE_PX = 512
+
+        fun open(file: File, pool: TileBitmapPool): TiledImage {
+            val decoder = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                BitmapRegionDecoder.newInstance(file.path)
+            } else {
+                @Suppress("DEPRECATION")
+                BitmapRegionDecoder.newInstance(file.path, false)
+            } ?: throw IOException("Unsupported image")
+            return TiledImage(decoder, pool)
+        }
+
+        /**
+         * Largest power-of-two sample size that still gives at least one decoded
+         * pixel per screen pixel when the image is drawn at [scale].
+         */
+        fun sampleSizeFor(scale: Float): Int {
+            var sampleSize = 1
+            while (scale * sampleSize * 2 <= 1f) {
+                sampleSize *= 2
+            }
+            return sampleSize
+        }
+    }
+
+    val width: Int get() = decoder.width
+    val height: Int get() = decoder.height
+
+    /** Decodes the whole image; the bitmap belongs to the caller. */
+    fun decodeFull(sampleSize: Int): Bitmap? = decode(Rect(0, 0, width, height), sampleSize, pooled = false)
+
+    /** Decodes one tile into a pooled bitmap; hand it back with [TileBitmapPool.put]. */
+    fun decodeTile(region: Rect, sampleSize: Int): Bitmap? = decode(region, sampleSize, pooled = true)
+
+    private fun decode(region: Rect, sampleSize: Int, pooled: Boolean): Bitmap? {
+        val options = BitmapFactory.Options().apply {
+            inSampleSize = sampleSize
+            inPreferredConfig = TileBitmapPool.CONFIG
+            inMutable = pooled
+            inBitmap = if (pooled) pool.get() else null
+        }
+        return try {
+            decoder.decodeRegion(region, options)
+        } catch (e: IllegalArgumentException) {
+            // The pooled bitmap did not fit; decode into a fresh one
+            options.inBitmap?.let { pool.put(it) }
+            options.inBitmap = null
+            decoder.decodeRegion(region, options)
+        } catch (e: IllegalStateException) {
+            // Closed while decoding, e.g. the page was swiped away
+            options.inBitmap?.let { pool.put(it) }
+            null
+        }
+    }
+
+    override fun close() {
+        decoder.recycle()
+    }
+}
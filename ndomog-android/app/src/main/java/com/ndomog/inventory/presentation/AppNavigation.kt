@@ -1,20 +1,20 @@
 package com.ndomog.inventory.presentation
 
-import com.ndomog.inventory.data.local.NdomogDatabase
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.remember
 import androidx.navigation.compose.NavHost
 import androidx.navigation.compose.composable
 import androidx.navigation.compose.rememberNavController
-import com.ndomog.inventory.data.repository.AuthRepository
 import com.ndomog.inventory.presentation.auth.AuthViewModel
 import com.ndomog.inventory.presentation.auth.LoginScreen
 import androidx.lifecycle.viewmodel.compose.viewModel
+import com.ndomog.inventory.di.AppContainer
 import com.ndomog.inventory.di.ViewModelFactory
 import com.ndomog.inventory.presentation.categories.CategoriesScreen
 import com.ndomog.inventory.presentation.dashboard.DashboardScreen
 import com.ndomog.inventory.presentation.profile.ProfileScreen
 import com.ndomog.inventory.presentation.notifications.NotificationsScreen
+import com.ndomog.inventory.presentation.stocktake.StockTakeScreen
 
 object Routes {
     const val LOGIN = "login"
@@ -22,19 +22,21 @@ object Routes {
     const val PROFILE = "profile"
     const val CATEGORIES = "categories"
     const val NOTIFICATIONS = "notifications"
+    const val STOCK_TAKE = "stock_take"
 }
 
 @Composable
 fun AppNavigation(
-    authRepository: AuthRepository,
-    database: NdomogDatabase
+    container: AppContainer
 ) {
     val navController = rememberNavController()
-    val authViewModel: AuthViewModel = viewModel(factory = ViewModelFactory(authRepository, database))
+    // One factory for every route; it hands out the container's shared repositories
+    val viewModelFactory = remember(container) { ViewModelFactory(container) }
+    val authViewModel: AuthViewModel = viewModel(factory = viewModelFactory)
     
     // Determine the start destination based on authentication state
     val startDestination = remember {
-        if (authRepository.isLoggedIn()) Routes.DASHBOARD else Routes.LOGIN
+        if (container.benchmarkMode || container.authRepository.isLoggedIn()) Routes.DASHBOARD else Routes.LOGIN
     }
 
     NavHost(navController = navController, startDestination = startDestination) {
@@ -46,7 +48,6 @@ fun AppNavigation(
             }
         }
         composable(Routes.DASHBOARD) {
-            val viewModelFactory = ViewModelFactory(authRepository, database)
             DashboardScreen(
                 onLogout = {
                     authViewModel.onLoggedOut()
@@ -57,14 +58,16 @@ fun AppNavigation(
                 onNavigateToProfile = { navController.navigate(Routes.PROFILE) },
                 onNavigateToCategories = { navController.navigate(Routes.CATEGORIES) },
                 onNavigateToNotifications = { navController.navigate(Routes.NOTIFICATIONS) },
-                viewModelFactory = viewModelFactory
+                onNavigateToStockTake = { navController.navigate(Routes.STOCK_TAKE) },
+                viewModelFactory = viewModelFactory,
+                photoSourceCache = container.photoSourceCache
             )
         }
         composable(Routes.PROFILE) {
-            val viewModelFactory = ViewModelFactory(authRepository, database)
             ProfileScreen(
                 onBack = { navController.popBackStack() },
                 viewModelFactory = viewModelFactory,
+                securityStateStore = container.securityStateStore,
                 onLogout = {
                     authViewModel.onLoggedOut()
                     navController.navigate(Routes.LOGIN) {
@@ -74,12 +77,13 @@ fun AppNavigation(
             )
         }
         composable(Routes.CATEGORIES) {
-            val viewModelFactory = ViewModelFactory(authRepository, database)
             CategoriesScreen(onBack = { navController.popBackStack() }, viewModelFactory = viewModelFactory)
         }
         composable(Routes.NOTIFICATIONS) {
-            val viewModelFactory = ViewModelFactory(authRepository, database)
             NotificationsScreen(onBack = { navController.popBackStack() }, viewModelFactory = viewModelFactory)
         }
+        composable(Routes.STOCK_TAKE) {
+            StockTakeScreen(onBack = { navController.popBackStack() }, viewModelFactory = viewModelFactory)
+        }
     }
 }
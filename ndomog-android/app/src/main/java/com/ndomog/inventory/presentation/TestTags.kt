@@ -0,0 +1,11 @@
+package com.ndomog.inventory.presentation
+
+/**
+ * Compose test tags exposed as resource ids, used by UI Automator in `:benchmark`.
+ */
+object TestTags {
+    const val DASHBOARD_ITEM_LIST = "dashboard_item_list"
+    const val DASHBOARD_SEARCH = "dashboard_search"
+    const val DASHBOARD_ADD_ITEM = "dashboard_add_item"
+    const val ADD_EDIT_ITEM_DIALOG = "add_edit_item_dialog"
+}
@@ -27,13 +27,12 @@ import androidx.compose.ui.unit.sp
 import androidx.core.content.ContextCompat
 import androidx.fragment.app.FragmentActivity
 import com.ndomog.inventory.presentation.theme.NdomogColors
-import com.ndomog.inventory.utils.PinPreferences
-import kotlinx.coroutines.flow.first
+import com.ndomog.inventory.utils.SecurityStateStore
 import kotlinx.coroutines.launch
 
 @Composable
 fun PinLockScreen(
-    pinPreferences: PinPreferences,
+    securityStateStore: SecurityStateStore,
     onUnlock: () -> Unit,
     onBiometricUnlock: () -> Unit = {}
 ) {
@@ -42,15 +41,11 @@ fun PinLockScreen(
     
     var enteredPin by remember { mutableStateOf("") }
     var error by remember { mutableStateOf<String?>(null) }
-    var storedPinHash by remember { mutableStateOf("") }
-    var isBiometricEnabled by remember { mutableStateOf(false) }
+    val securityState by securityStateStore.security.collectAsState()
+    val isBiometricEnabled = securityState.isBiometricEnabled
     var biometricAvailable by remember { mutableStateOf(false) }
     
-    // Load stored PIN hash and biometric settings
     LaunchedEffect(Unit) {
-        storedPinHash = pinPreferences.pinHash.first() ?: ""
-        isBiometricEnabled = pinPreferences.isBiometricEnabled.first()
-        
         // Check if biometric hardware is available
         val biometricManager = BiometricManager.from(context)
         biometricAvailable = when (biometricManager.canAuthenticate(BiometricManager.Authenticators.BIOMETRIC_STRONG)) {
@@ -67,7 +62,7 @@ fun PinLockScreen(
     // Check PIN when 4 digits entered
     LaunchedEffect(enteredPin) {
         if (enteredPin.length == 4) {
-            if (enteredPin == storedPinHash) {
+            if (securityStateStore.verifyPin(enteredPin)) {
                 onUnlock()
             } else {
                 error = "Incorrect PIN"
@@ -5,7 +5,9 @@ import androidx.lifecycle.viewModelScope
 import com.ndomog.inventory.data.local.CategoryDao
 import com.ndomog.inventory.data.local.ItemDao
 import com.ndomog.inventory.data.models.Category
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
+import com.ndomog.inventory.data.remote.selectAllPaged
 import io.github.jan.supabase.postgrest.from
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
@@ -43,8 +45,7 @@ class CategoriesViewModel(
             try {
                 if (isOnline) {
                     val supabaseCategories = SupabaseClient.client.from("categories")
-                        .select()
-                        .decodeList<Category>()
+                        .selectAllPaged<Category>(RemoteColumns.CATEGORY, orderBy = "name")
                     categoryDao.insertCategories(supabaseCategories)
                 }
             } catch (e: Exception) {
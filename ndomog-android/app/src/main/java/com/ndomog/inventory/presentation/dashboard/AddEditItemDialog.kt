@@ -3,7 +3,6 @@ package com.ndomog.inventory.presentation.dashboard
 import android.Manifest
 import android.content.pm.PackageManager
 import android.net.Uri
-import android.os.Environment
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.background
@@ -20,10 +19,14 @@ import androidx.compose.material.icons.filled.*
 import androidx.compose.material3.*
 import androidx.compose.runtime.*
 import androidx.compose.ui.Alignment
+import androidx.compose.ui.ExperimentalComposeUiApi
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.clip
 import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.testTag
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.semantics.testTagsAsResourceId
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.input.KeyboardType
 import androidx.compose.ui.unit.dp
@@ -33,40 +36,42 @@ import androidx.compose.ui.window.DialogProperties
 import androidx.core.content.ContextCompat
 import androidx.core.content.FileProvider
 import coil.compose.AsyncImage
-import com.ndomog.inventory.data.remote.SupabaseClient
 import com.ndomog.inventory.data.models.Item
 import com.ndomog.inventory.data.models.ItemPhoto
-import com.ndomog.inventory.data.models.ItemPhotoInsert
+import com.ndomog.inventory.presentation.TestTags
 import com.ndomog.inventory.presentation.theme.NdomogColors
-import io.github.jan.supabase.postgrest.from
-import io.github.jan.supabase.storage.storage
-import java.io.File
-import java.text.SimpleDateFormat
-import java.util.Date
-import java.util.Locale
 import java.util.UUID
 import kotlinx.coroutines.launch
 
-@OptIn(ExperimentalMaterial3Api::class)
+@OptIn(ExperimentalMaterial3Api::class, ExperimentalComposeUiApi::class)
 @Composable
 fun AddEditItemDialog(
     showDialog: Boolean,
     onDismiss: () -> Unit,
     onConfirm: (item: Item) -> Unit,
     existingItem: Item? = null,
-    categories: List<String> = emptyList()
+    categories: List<String> = emptyList(),
+    photoEditor: ItemPhotoEditor,
+    // Prefills a new item, e.g. from a scanned barcode; ignored when editing
+    initialValues: Item? = null
 ) {
     if (!showDialog) return
 
     val context = LocalContext.current
     val scope = rememberCoroutineScope()
     
-    var name by remember { mutableStateOf(existingItem?.name ?: "") }
-    var category by remember { mutableStateOf(existingItem?.category ?: "") }
+    val prefill = existingItem ?: initialValues
+    var name by remember { mutableStateOf(prefill?.name ?: "") }
+    var category by remember { mutableStateOf(prefill?.category ?: "") }
     var isNewCategory by remember { mutableStateOf(false) }
     var newCategoryName by remember { mutableStateOf("") }
-    var details by remember { mutableStateOf(existingItem?.details ?: "") }
+    var details by remember { mutableStateOf(prefill?.details ?: "") }
+    var barcode by remember { mutableStateOf(prefill?.barcode ?: "") }
     val photoUrls = remember { mutableStateListOf<String>() }
+    // Thumbnail for each remote entry of photoUrls, when one exists
+    val thumbnailUrls = remember { mutableStateMapOf<String, String>() }
+    // Cached row behind each loaded entry of photoUrls
+    val loadedPhotos = remember { mutableStateMapOf<String, ItemPhoto>() }
     var buyingPrice by remember { mutableStateOf(existingItem?.buyingPrice?.toString() ?: "0") }
     var sellingPrice by remember { mutableStateOf(existingItem?.sellingPrice?.toString() ?: "0") }
     var quantity by remember { mutableStateOf(existingItem?.quantity?.toString() ?: "0") }
@@ -80,34 +85,6 @@ fun AddEditItemDialog(
     var isUploading by remember { mutableStateOf(false) }
     var isLoadingPhotos by remember { mutableStateOf(false) }
 
-    fun getImageExtension(uri: Uri): String {
-        val mimeType = context.contentResolver.getType(uri)
-        return when (mimeType) {
-            "image/png" -> "png"
-            "image/webp" -> "webp"
-            "image/jpeg" -> "jpg"
-            else -> "jpg"
-        }
-    }
-
-    fun readBytesFromUri(uri: Uri): ByteArray? {
-        return try {
-            context.contentResolver.openInputStream(uri)?.use { input ->
-                input.readBytes()
-            }
-        } catch (_: Exception) {
-            null
-        }
-    }
-
-    suspend fun uploadItemPhoto(itemId: String, uri: Uri): String {
-        val bytes = readBytesFromUri(uri) ?: throw Exception("Failed to read image")
-        val ext = getImageExtension(uri)
-        val path = "items/$itemId/${UUID.randomUUID()}.$ext"
-        SupabaseClient.client.storage.from("item-photos").upload(path, bytes, upsert = false)
-        return SupabaseClient.client.storage.from("item-photos").publicUrl(path)
-    }
-
     fun isRemoteUrl(value: String): Boolean {
         return value.startsWith("http://") || value.startsWith("https://")
     }
@@ -120,13 +97,6 @@ fun AddEditItemDialog(
         photoUrls.add(url)
     }
     
-    // Create a temporary file for camera photo
-    fun createImageFile(): File {
-        val timeStamp = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(Date())
-        val storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES)
-        return File.createTempFile("JPEG_${timeStamp}_", ".jpg", storageDir)
-    }
-    
     // Image picker launcher
     val imagePickerLauncher = rememberLauncherForActivityResult(
         contract = ActivityResultContracts.GetContent()
@@ -153,7 +123,7 @@ fun AddEditItemDialog(
     ) { isGranted ->
         if (isGranted) {
             try {
-                val photoFile = createImageFile()
+                val photoFile = photoEditor.newCaptureFile()
                 tempPhotoUri = FileProvider.getUriForFile(
                     context,
                     "${context.packageName}.fileprovider",
@@ -180,7 +150,7 @@ fun AddEditItemDialog(
             val permission = Manifest.permission.CAMERA
             when {
                 ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED -> {
-                    val photoFile = createImageFile()
+                    val photoFile = photoEditor.newCaptureFile()
                     tempPhotoUri = FileProvider.getUriForFile(
                         context,
                         "${context.packageName}.fileprovider",
@@ -202,20 +172,16 @@ fun AddEditItemDialog(
     LaunchedEffect(showDialog, existingItem?.id) {
         if (!showDialog) return@LaunchedEffect
         photoUrls.clear()
+        thumbnailUrls.clear()
+        loadedPhotos.clear()
         if (existingItem?.id == null) return@LaunchedEffect
         isLoadingPhotos = true
         try {
-            val rows = SupabaseClient.client
-                .from("item_photos")
-                .select {
-                    filter { eq("item_id", existingItem.id) }
-                }
-                .decodeList<ItemPhoto>()
-                .sortedWith(compareBy<ItemPhoto> { it.position }.thenBy { it.createdAt ?: "" })
-            if (rows.isNotEmpty()) {
-                photoUrls.addAll(rows.map { it.url }.take(5))
-            } else if (!existingItem.photoUrl.isNullOrBlank()) {
-                existingItem.photoUrl?.let { photoUrls.add(it) }
+            val rows = photoEditor.loadPhotos(existingItem).take(5)
+            photoUrls.addAll(rows.map { it.url })
+            rows.forEach { row ->
+                row.thumbnailUrl?.let { thumbnailUrls[row.url] = it }
+                loadedPhotos[row.url] = row
             }
         } catch (_: Exception) {
             if (!existingItem?.photoUrl.isNullOrBlank()) {
@@ -231,9 +197,12 @@ fun AddEditItemDialog(
         properties = DialogProperties(usePlatformDefaultWidth = false)
     ) {
         Card(
+            // Dialogs are a separate window, so resource ids must be enabled here too
             modifier = Modifier
                 .fillMaxWidth()
-                .padding(16.dp),
+                .padding(16.dp)
+                .semantics { testTagsAsResourceId = true }
+                .testTag(TestTags.ADD_EDIT_ITEM_DIALOG),
             colors = CardDefaults.cardColors(
                 containerColor = NdomogColors.DarkCard
             ),
@@ -506,6 +475,27 @@ fun AddEditItemDialog(
                 
                 Spacer(modifier = Modifier.height(16.dp))
 
+                // Barcode (optional)
+                Text(
+                    "Barcode (optional)",
+                    style = MaterialTheme.typography.labelMedium.copy(
+                        color = NdomogColors.TextMuted,
+                        fontWeight = FontWeight.Medium
+                    ),
+                    modifier = Modifier.padding(bottom = 6.dp)
+                )
+                OutlinedTextField(
+                    value = barcode,
+                    onValueChange = { barcode = it },
+                    placeholder = { Text("EAN, UPC or part label code", color = NdomogColors.TextMuted.copy(alpha = 0.5f)) },
+                    modifier = Modifier.fillMaxWidth(),
+                    colors = dialogTextFieldColors(),
+                    shape = RoundedCornerShape(8.dp),
+                    singleLine = true
+                )
+
+                Spacer(modifier = Modifier.height(16.dp))
+
                 // Photos (optional)
                 Text(
                     "Photos (optional) - up to 5",
@@ -538,7 +528,7 @@ fun AddEditItemDialog(
                                     .background(NdomogColors.DarkSecondary)
                             ) {
                                 AsyncImage(
-                                    model = url,
+                                    model = thumbnailUrls[url] ?: url,
                                     contentDescription = "Item photo ${index + 1}",
                                     modifier = Modifier.fillMaxSize(),
                                     contentScale = ContentScale.Crop
@@ -786,47 +776,33 @@ fun AddEditItemDialog(
                             val itemId = existingItem?.id ?: UUID.randomUUID().toString()
                             scope.launch {
                                 isUploading = true
-                                val requestedPhotos = photoUrls.take(5)
-                                val uploadedUrls = mutableListOf<String>()
-                                for (entry in requestedPhotos) {
-                                    if (isRemoteUrl(entry)) {
-                                        uploadedUrls.add(entry)
-                                        continue
-                                    }
-                                    val uri = runCatching { Uri.parse(entry) }.getOrNull()
-                                    if (uri == null) continue
-                                    try {
-                                        val uploaded = uploadItemPhoto(itemId, uri)
-                                        uploadedUrls.add(uploaded)
-                                    } catch (e: Exception) {
-                                        uploadError = e.message ?: "Failed to upload image"
-                                        isUploading = false
-                                        return@launch
-                                    }
-                                }
-                                val finalPhotoUrl: String? = uploadedUrls.firstOrNull()
-                                // Replace photos for this item
-                                try {
-                                    SupabaseClient.client.from("item_photos").delete {
-                                        filter { eq("item_id", itemId) }
-                                    }
-                                    if (uploadedUrls.isNotEmpty()) {
-                                        val inserts = uploadedUrls.mapIndexed { index, url ->
-                                            ItemPhotoInsert(itemId = itemId, url = url, position = index)
+                                // Saved locally; new photos upload in the background
+                                val savedPhotos = try {
+                                    photoEditor.savePhotos(
+                                        itemId,
+                                        photoUrls.take(5).map { url ->
+                                            loadedPhotos[url] ?: ItemPhoto(
+                                                itemId = itemId,
+                                                url = url,
+                                                thumbnailUrl = thumbnailUrls[url]
+                                            )
                                         }
-                                        SupabaseClient.client.from("item_photos").insert(inserts)
-                                    }
+                                    )
                                 } catch (e: Exception) {
                                     uploadError = e.message ?: "Failed to save photos"
                                     isUploading = false
                                     return@launch
                                 }
+                                // The sync after the uploads sets the final cover photo
+                                val cover = savedPhotos.firstOrNull { isRemoteUrl(it.url) }
                                 val newItem = Item(
                                     id = itemId,
                                     name = name.trim(),
                                     category = finalCategory.trim(),
                                     details = details.trim().ifEmpty { null },
-                                    photoUrl = finalPhotoUrl,
+                                    barcode = barcode.trim().ifEmpty { null },
+                                    photoUrl = cover?.url,
+                                    thumbnailUrl = cover?.thumbnailUrl,
                                     buyingPrice = buyingPrice.toDoubleOrNull() ?: 0.0,
                                     sellingPrice = sellingPrice.toDoubleOrNull() ?: 0.0,
                                     quantity = quantity.toIntOrNull() ?: 0,
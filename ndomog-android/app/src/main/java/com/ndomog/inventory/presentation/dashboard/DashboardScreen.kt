@@ -1,6 +1,7 @@
 package com.ndomog.inventory.presentation.dashboard
 
 import android.annotation.SuppressLint
+import android.widget.Toast
 import androidx.compose.animation.AnimatedVisibility
 import androidx.compose.animation.core.animateFloatAsState
 import androidx.compose.animation.expandVertically
@@ -15,6 +16,7 @@ import androidx.compose.foundation.pager.rememberPagerState
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.lazy.LazyColumn
 import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.lazy.rememberLazyListState
 import androidx.compose.foundation.shape.CircleShape
 import androidx.compose.foundation.shape.RoundedCornerShape
 import androidx.compose.foundation.text.BasicTextField
@@ -32,6 +34,7 @@ import androidx.compose.ui.graphics.SolidColor
 import androidx.compose.ui.graphics.vector.ImageVector
 import androidx.compose.ui.layout.ContentScale
 import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.testTag
 import androidx.compose.ui.text.TextStyle
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.text.style.TextOverflow
@@ -40,15 +43,15 @@ import androidx.compose.ui.unit.sp
 import androidx.compose.ui.window.Dialog
 import androidx.lifecycle.viewmodel.compose.viewModel
 import coil.compose.AsyncImage
-import coil.request.ImageRequest
+import com.ndomog.inventory.data.local.StockLevel
 import com.ndomog.inventory.data.models.Item
-import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.repository.BarcodeResolution
 import com.ndomog.inventory.di.ViewModelFactory
+import com.ndomog.inventory.media.PhotoSourceCache
+import com.ndomog.inventory.media.TileBitmapPool
+import com.ndomog.inventory.presentation.TestTags
 import com.ndomog.inventory.presentation.notifications.NotificationsViewModel
 import com.ndomog.inventory.presentation.theme.NdomogColors
-import com.ndomog.inventory.data.remote.SupabaseClient
-import io.github.jan.supabase.gotrue.auth
-import io.github.jan.supabase.postgrest.from
 import kotlinx.coroutines.launch
 
 @SuppressLint("UnusedMaterial3ScaffoldPaddingParameter")
@@ -59,7 +62,9 @@ fun DashboardScreen(
     onNavigateToProfile: () -> Unit,
     onNavigateToCategories: () -> Unit,
     onNavigateToNotifications: () -> Unit = {},
+    onNavigateToStockTake: () -> Unit = {},
     viewModelFactory: ViewModelFactory,
+    photoSourceCache: PhotoSourceCache,
     userAvatarUrl: String? = null,
     userId: String = ""
 ) {
@@ -69,24 +74,32 @@ fun DashboardScreen(
         viewModel(factory = viewModelFactory)
     val notificationsViewModel: NotificationsViewModel = viewModel(factory = viewModelFactory)
     
-    val items by viewModel.items.collectAsState()
-    val isLoading by viewModel.isLoading.collectAsState()
-    val error by viewModel.error.collectAsState()
+    val uiState by viewModel.uiState.collectAsState()
+    val searchQuery by viewModel.searchQuery.collectAsState()
+    // Filtered by the ViewModel off the main thread and sorted alphabetically
+    val filteredItems = uiState.items
+    val stats = uiState.stats
+    val categories = uiState.categories
+    val selectedCategory = uiState.selectedCategory
+    val isLoading = uiState.isLoading
+    val error = uiState.error
     val userAvatar by profileViewModel.avatarUrl.collectAsState()
     val unreadCount by notificationsViewModel.unreadCount.collectAsState()
-    val accessToken = SupabaseClient.client.auth.currentSessionOrNull()?.accessToken
+    val barcodeResolution by viewModel.barcodeResolution.collectAsState()
+    val context = LocalContext.current
 
     var showAddEditDialog by remember { mutableStateOf(false) }
     var itemToEdit by remember { mutableStateOf<Item?>(null) }
+    // Values for a new item taken from a scanned barcode
+    var newItemPrefill by remember { mutableStateOf<Item?>(null) }
+    var showBarcodeScanner by remember { mutableStateOf(false) }
     var showDeleteDialog by remember { mutableStateOf<Item?>(null) }
     var showQuantityDialog by remember { mutableStateOf<Pair<Item, Int>?>(null) }
     var showPhotoViewer by remember { mutableStateOf<PhotoViewerState?>(null) }
     var isPhotoViewerLoading by remember { mutableStateOf(false) }
     val scope = rememberCoroutineScope()
     
-    // Search and filter state
-    var searchQuery by remember { mutableStateOf("") }
-    var selectedCategory by remember { mutableStateOf("all") }
+    // Search and filter state lives in the ViewModel
     var showCategoryDropdown by remember { mutableStateOf(false) }
     var expandedItemId by remember { mutableStateOf<String?>(null) }
     
@@ -95,27 +108,11 @@ fun DashboardScreen(
     var selectedItems by remember { mutableStateOf(setOf<String>()) }
     var showBulkUpdateDialog by remember { mutableStateOf(false) }
 
-    // Get unique categories from items
-    val categories = remember(items) { items.mapNotNull { it.category }.distinct().sorted() }
-    
-    // Filter and sort items alphabetically
-    val filteredItems = remember(items, searchQuery, selectedCategory) {
-        items
-            .filter { item ->
-                val matchesSearch = searchQuery.isEmpty() || 
-                    item.name.contains(searchQuery, ignoreCase = true) ||
-                    (item.details?.contains(searchQuery, ignoreCase = true) == true)
-                val matchesCategory = selectedCategory == "all" || item.category == selectedCategory
-                matchesSearch && matchesCategory
-            }
-            .sortedBy { it.name.lowercase() }
-    }
-
-    // Calculate dashboard stats
-    val totalItems = items.sumOf { it.quantity }
-    val totalCost = items.sumOf { it.buyingPrice * it.quantity }
-    val potentialProfit = items.sumOf { (it.sellingPrice - it.buyingPrice) * it.quantity }
-    val lowStockCount = items.count { it.quantity <= it.lowStockThreshold }
+    // Dashboard stats are aggregated in Room (or come from the cold-start snapshot)
+    val totalItems = stats.totalQuantity
+    val totalCost = stats.totalCost
+    val potentialProfit = stats.potentialProfit
+    val lowStockCount = stats.lowStockCount
 
     Scaffold(
         topBar = {
@@ -155,6 +152,22 @@ fun DashboardScreen(
                     scrolledContainerColor = NdomogColors.DarkCard
                 ),
                 actions = {
+                    IconButton(onClick = onNavigateToStockTake) {
+                        Icon(
+                            Icons.Filled.Checklist,
+                            contentDescription = "Stock take",
+                            tint = NdomogColors.TextMuted,
+                            modifier = Modifier.size(22.dp)
+                        )
+                    }
+                    IconButton(onClick = { showBarcodeScanner = true }) {
+                        Icon(
+                            Icons.Filled.QrCodeScanner,
+                            contentDescription = "Scan barcode",
+                            tint = NdomogColors.TextMuted,
+                            modifier = Modifier.size(22.dp)
+                        )
+                    }
                     // Notification Icon
                     IconButton(onClick = {
                         notificationsViewModel.markAllAsRead()
@@ -189,16 +202,9 @@ fun DashboardScreen(
                     IconButton(onClick = onNavigateToProfile) {
                         val avatarUrl = userAvatar
                         if (avatarUrl != null && avatarUrl.isNotEmpty()) {
-                            val model = if (!accessToken.isNullOrBlank() && avatarUrl.contains("/storage/v1/object/")) {
-                                ImageRequest.Builder(LocalContext.current)
-                                    .data(avatarUrl)
-                                    .addHeader("Authorization", "Bearer $accessToken")
-                                    .build()
-                            } else {
-                                avatarUrl
-                            }
+                            // Storage credentials are added by the shared ImageLoader
                             AsyncImage(
-                                model = model,
+                                model = avatarUrl,
                                 contentDescription = "Profile",
                                 modifier = Modifier
                                     .size(32.dp)
@@ -231,8 +237,10 @@ fun DashboardScreen(
             FloatingActionButton(
                 onClick = {
                     itemToEdit = null
+                    newItemPrefill = null
                     showAddEditDialog = true
                 },
+                modifier = Modifier.testTag(TestTags.DASHBOARD_ADD_ITEM),
                 containerColor = NdomogColors.Primary,
                 contentColor = NdomogColors.TextOnPrimary
             ) {
@@ -253,7 +261,8 @@ fun DashboardScreen(
                     color = NdomogColors.Primary,
                     trackColor = NdomogColors.DarkCard
                 )
-            } else if (error != null) {
+            }
+            if (error != null && !isLoading) {
                 Card(
                     modifier = Modifier
                         .fillMaxWidth()
@@ -268,9 +277,31 @@ fun DashboardScreen(
                         style = MaterialTheme.typography.bodySmall
                     )
                 }
-            } else {
+            } else if (!isLoading || uiState.isShowingSnapshot) {
+                // The cold-start snapshot stays readable under the progress bar
+                if (uiState.isShowingSnapshot) {
+                    Text(
+                        "Showing cached inventory, updating…",
+                        color = NdomogColors.TextMuted,
+                        style = MaterialTheme.typography.labelSmall,
+                        modifier = Modifier
+                            .fillMaxWidth()
+                            .padding(horizontal = 16.dp, vertical = 4.dp)
+                    )
+                }
+                val listState = rememberLazyListState()
+                // Stats row and search bar come before the items
+                ThumbnailPrefetcher(
+                    listState = listState,
+                    items = filteredItems,
+                    headerCount = 2,
+                    thumbnailSize = 40.dp
+                )
                 LazyColumn(
-                    modifier = Modifier.fillMaxSize(),
+                    state = listState,
+                    modifier = Modifier
+                        .fillMaxSize()
+                        .testTag(TestTags.DASHBOARD_ITEM_LIST),
                     contentPadding = PaddingValues(16.dp),
                     verticalArrangement = Arrangement.spacedBy(12.dp)
                 ) {
@@ -314,10 +345,13 @@ fun DashboardScreen(
                     item {
                         SearchBar(
                             searchQuery = searchQuery,
-                            onSearchChange = { searchQuery = it },
+                            onSearchChange = viewModel::setSearchQuery,
                             selectedCategory = selectedCategory,
                             categories = categories,
-                            onCategorySelect = { selectedCategory = it },
+                            onCategorySelect = viewModel::selectCategory,
+                            stockFilter = uiState.stockFilter,
+                            stockCounts = uiState.stockCounts,
+                            onStockFilterToggle = viewModel::toggleStockFilter,
                             showDropdown = showCategoryDropdown,
                             onDropdownToggle = { showCategoryDropdown = it },
                             bulkEditMode = bulkEditMode,
@@ -376,7 +410,7 @@ fun DashboardScreen(
                                 onImageClick = { clickedItem ->
                                     scope.launch {
                                         isPhotoViewerLoading = true
-                                        val urls = fetchItemPhotoUrls(clickedItem)
+                                        val urls = fetchItemPhotoUrls(viewModel, clickedItem)
                                         isPhotoViewerLoading = false
                                         if (urls.isNotEmpty()) {
                                             showPhotoViewer = PhotoViewerState(
@@ -417,8 +451,50 @@ fun DashboardScreen(
                 showAddEditDialog = false
             },
             existingItem = itemToEdit,
-            categories = categories
+            categories = categories,
+            photoEditor = viewModel,
+            initialValues = newItemPrefill
         )
+
+        if (showBarcodeScanner) {
+            BarcodeScannerDialog(
+                onBarcode = { code ->
+                    showBarcodeScanner = false
+                    viewModel.resolveBarcode(code)
+                },
+                onDismiss = { showBarcodeScanner = false }
+            )
+        }
+
+        // A known part goes straight to receiving stock; anything else starts a new item
+        LaunchedEffect(barcodeResolution) {
+            when (val resolution = barcodeResolution ?: return@LaunchedEffect) {
+                is BarcodeResolution.KnownItem -> showQuantityDialog = Pair(resolution.item, 1)
+                is BarcodeResolution.Product -> {
+                    val lookup = resolution.lookup
+                    val name = lookup.name.orEmpty()
+                    val brand = lookup.brand?.takeUnless { name.contains(it, ignoreCase = true) }
+                    itemToEdit = null
+                    newItemPrefill = Item(
+                        id = "",
+                        name = listOfNotNull(brand, name).joinToString(" ").trim(),
+                        category = lookup.category.orEmpty(),
+                        details = lookup.details,
+                        barcode = resolution.barcode
+                    )
+                    showAddEditDialog = true
+                }
+                is BarcodeResolution.Unknown -> {
+                    itemToEdit = null
+                    newItemPrefill = Item(id = "", name = "", category = "", barcode = resolution.barcode)
+                    showAddEditDialog = true
+                }
+                is BarcodeResolution.Unavailable -> {
+                    Toast.makeText(context, resolution.message, Toast.LENGTH_SHORT).show()
+                }
+            }
+            viewModel.clearBarcodeResolution()
+        }
         
         // Delete Confirmation Dialog
         showDeleteDialog?.let { item ->
@@ -471,6 +547,7 @@ fun DashboardScreen(
             PhotoViewerDialog(
                 photoUrls = state.photoUrls,
                 itemName = state.itemName,
+                photoSource = photoSourceCache,
                 initialIndex = state.initialIndex,
                 onDismiss = { showPhotoViewer = null }
             )
@@ -584,6 +661,9 @@ fun SearchBar(
     selectedCategory: String,
     categories: List<String>,
     onCategorySelect: (String) -> Unit,
+    stockFilter: StockLevel,
+    stockCounts: Map<StockLevel, Int>,
+    onStockFilterToggle: (StockLevel) -> Unit,
     showDropdown: Boolean,
     onDropdownToggle: (Boolean) -> Unit,
     bulkEditMode: Boolean,
@@ -626,7 +706,9 @@ fun SearchBar(
                             fontSize = 14.sp
                         ),
                         cursorBrush = SolidColor(NdomogColors.Primary),
-                        modifier = Modifier.weight(1f),
+                        modifier = Modifier
+                            .weight(1f)
+                            .testTag(TestTags.DASHBOARD_SEARCH),
                         singleLine = true,
                         decorationBox = { innerTextField ->
                             Box {
@@ -652,7 +734,7 @@ fun SearchBar(
                     Icon(
                         Icons.Filled.FilterList,
                         contentDescription = "Filter Categories",
-                        tint = if (selectedCategory == "all") NdomogColors.TextMuted else NdomogColors.Primary,
+                        tint = if (selectedCategory == DashboardViewModel.ALL_CATEGORIES) NdomogColors.TextMuted else NdomogColors.Primary,
                         modifier = Modifier.size(20.dp)
                     )
                 }
@@ -665,7 +747,7 @@ fun SearchBar(
                     DropdownMenuItem(
                         text = { Text("All Categories", color = NdomogColors.TextLight) },
                         onClick = {
-                            onCategorySelect("all")
+                            onCategorySelect(DashboardViewModel.ALL_CATEGORIES)
                             onDropdownToggle(false)
                         }
                     )
@@ -708,6 +790,26 @@ fun SearchBar(
             }
         }
 
+        // Stock chips, each with its live count
+        Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+            DashboardViewModel.STOCK_CHIPS.keys.forEach { level ->
+                val selected = stockFilter == level
+                Surface(
+                    onClick = { onStockFilterToggle(level) },
+                    shape = RoundedCornerShape(8.dp),
+                    color = if (selected) NdomogColors.Primary else NdomogColors.DarkSecondary,
+                    border = BorderStroke(1.dp, NdomogColors.DarkBorder)
+                ) {
+                    Text(
+                        "${if (level == StockLevel.LOW_STOCK) "Low stock" else "Out of stock"} (${stockCounts[level] ?: 0})",
+                        color = if (selected) NdomogColors.TextOnPrimary else NdomogColors.TextLight,
+                        style = MaterialTheme.typography.labelMedium,
+                        modifier = Modifier.padding(horizontal = 10.dp, vertical = 6.dp)
+                    )
+                }
+            }
+        }
+
         if (bulkEditMode && selectedCount > 0) {
             Row(
                 modifier = Modifier.fillMaxWidth(),
@@ -803,8 +905,9 @@ fun CompactItemCard(
                     contentAlignment = Alignment.Center
                 ) {
                     if (item.photoUrl != null) {
+                        // Thumbnail in the list; the full image only opens in the photo viewer
                         AsyncImage(
-                            model = item.photoUrl,
+                            model = item.thumbnailUrl ?: item.photoUrl,
                             contentDescription = item.name,
                             modifier = Modifier.fillMaxSize(),
                             contentScale = ContentScale.Crop
@@ -1129,11 +1232,17 @@ fun QuantityChangeDialog(
 fun PhotoViewerDialog(
     photoUrls: List<String>,
     itemName: String,
+    photoSource: PhotoSourceCache,
     initialIndex: Int = 0,
     onDismiss: () -> Unit
 ) {
     if (photoUrls.isEmpty()) return
     val scope = rememberCoroutineScope()
+    // Shared by all pages, so swiping reuses tile bitmaps instead of allocating
+    val tilePool = remember { TileBitmapPool() }
+    DisposableEffect(tilePool) {
+        onDispose { tilePool.clear() }
+    }
     val pagerState = rememberPagerState(
         initialPage = initialIndex.coerceIn(0, photoUrls.lastIndex),
         pageCount = { photoUrls.size }
@@ -1148,11 +1257,12 @@ fun PhotoViewerDialog(
         ) {
             Box(modifier = Modifier.fillMaxSize()) {
                 HorizontalPager(state = pagerState) { page ->
-                    AsyncImage(
-                        model = photoUrls[page],
+                    ZoomablePhoto(
+                        url = photoUrls[page],
                         contentDescription = itemName,
-                        modifier = Modifier.fillMaxSize(),
-                        contentScale = ContentScale.Fit
+                        photoSource = photoSource,
+                        tilePool = tilePool,
+                        modifier = Modifier.fillMaxSize()
                     )
                 }
                 IconButton(
@@ -1234,20 +1344,9 @@ data class PhotoViewerState(
     val initialIndex: Int = 0
 )
 
-private suspend fun fetchItemPhotoUrls(item: Item): List<String> {
+private suspend fun fetchItemPhotoUrls(photoEditor: ItemPhotoEditor, item: Item): List<String> {
     return try {
-        val rows = SupabaseClient.client
-            .from("item_photos")
-            .select {
-                filter { eq("item_id", item.id) }
-            }
-            .decodeList<ItemPhoto>()
-            .sortedWith(compareBy<ItemPhoto> { it.position }.thenBy { it.createdAt ?: "" })
-        if (rows.isNotEmpty()) {
-            rows.map { it.url }.take(5)
-        } else {
-            item.photoUrl?.let { listOf(it) } ?: emptyList()
-        }
+        photoEditor.loadPhotos(item).take(5).map { it.url }
     } catch (_: Exception) {
         item.photoUrl?.let { listOf(it) } ?: emptyList()
     }
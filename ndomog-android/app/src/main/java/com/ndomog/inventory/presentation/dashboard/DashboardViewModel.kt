@@ -2,51 +2,190 @@ package com.ndomog.inventory.presentation.dashboard
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import com.ndomog.inventory.data.local.InventoryQuery
+import com.ndomog.inventory.data.local.StockLevel
+import com.ndomog.inventory.data.models.DashboardStats
 import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.repository.BarcodeRepository
+import com.ndomog.inventory.data.repository.BarcodeResolution
+import com.ndomog.inventory.data.repository.DashboardSnapshotStore
 import com.ndomog.inventory.data.repository.ItemRepository
+import com.ndomog.inventory.data.repository.ItemSearchIndex
 import com.ndomog.inventory.data.repository.SyncRepository
+import com.ndomog.inventory.media.MediaCacheManager
+import com.ndomog.inventory.media.PhotoUploadQueue
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
+import java.io.File
+
+/**
+ * Everything the dashboard renders apart from the search text itself.
+ * [items] is already filtered by the applied search, category and stock chip,
+ * sorted by name, by quantity for low stock, or best match first for fuzzy searches.
+ */
+data class DashboardUiState(
+    val items: List<Item> = emptyList(),
+    val stats: DashboardStats = DashboardStats(),
+    val categories: List<String> = emptyList(),
+    val selectedCategory: String = DashboardViewModel.ALL_CATEGORIES,
+    // Stock chip narrowing the list, ANY when none is selected
+    val stockFilter: StockLevel = StockLevel.ANY,
+    // Live item count behind each stock chip
+    val stockCounts: Map<StockLevel, Int> = emptyMap(),
+    val isLoading: Boolean = false,
+    // True while the cold-start snapshot is on screen instead of live data
+    val isShowingSnapshot: Boolean = false,
+    val error: String? = null
+)
 
 class DashboardViewModel(
     private val itemRepository: ItemRepository,
-    private val syncRepository: SyncRepository
-) : ViewModel() {
+    private val syncRepository: SyncRepository,
+    private val snapshotStore: DashboardSnapshotStore,
+    private val photoUploadQueue: PhotoUploadQueue,
+    private val mediaCacheManager: MediaCacheManager,
+    private val barcodeRepository: BarcodeRepository,
+    // Serve only the local cache, e.g. for benchmark runs on seeded data
+    private val offline: Boolean = false
+) : ViewModel(), ItemPhotoEditor {
+
+    companion object {
+        const val ALL_CATEGORIES = "all"
+
+        // Quiet period after the last keystroke before the list is filtered again
+        const val SEARCH_DEBOUNCE_MS = 250L
+
+        // Saved queries behind the dashboard's stock chips
+        val STOCK_CHIPS = mapOf(
+            StockLevel.LOW_STOCK to InventoryQuery.LOW_STOCK,
+            StockLevel.OUT_OF_STOCK to InventoryQuery.OUT_OF_STOCK
+        )
+    }
+
+    private val _uiState = MutableStateFlow(DashboardUiState())
+    val uiState: StateFlow<DashboardUiState> = _uiState.asStateFlow()
 
-    private val _items = MutableStateFlow<List<Item>>(emptyList())
-    val items: StateFlow<List<Item>> = _items.asStateFlow()
+    // Bound to the search field, so it updates on every keystroke; the list follows debounced
+    private val _searchQuery = MutableStateFlow("")
+    val searchQuery: StateFlow<String> = _searchQuery.asStateFlow()
 
-    private val _isLoading = MutableStateFlow(false)
-    val isLoading: StateFlow<Boolean> = _isLoading.asStateFlow()
+    private val selectedCategory = MutableStateFlow(ALL_CATEGORIES)
+    private val stockFilter = MutableStateFlow(StockLevel.ANY)
 
-    private val _error = MutableStateFlow<String?>(null)
-    val error: StateFlow<String?> = _error.asStateFlow()
+    // Outcome of the last scan until the screen has acted on it
+    private val _barcodeResolution = MutableStateFlow<BarcodeResolution?>(null)
+    val barcodeResolution: StateFlow<BarcodeResolution?> = _barcodeResolution.asStateFlow()
+
+    // Set by the first live item list; all collectors run on the main thread
+    private var hasLiveData = false
+
+    // Live stats or categories may arrive first and must not be replaced by the snapshot
+    private var hasLiveStats = false
+    private var hasLiveCategories = false
 
     init {
-        loadItems()
-        // Observe items from the local database
+        // Show the last snapshot while Room opens; live data replaces it on first emission
+        viewModelScope.launch {
+            val snapshot = snapshotStore.read() ?: return@launch
+            if (hasLiveData) return@launch
+            _uiState.update {
+                it.copy(
+                    items = snapshot.items,
+                    stats = if (hasLiveStats) it.stats else snapshot.stats,
+                    categories = if (hasLiveCategories) it.categories else snapshot.categories,
+                    isShowingSnapshot = true
+                )
+            }
+        }
+        loadItems(isOnline = !offline)
+        observeFilteredItems()
+        viewModelScope.launch {
+            itemRepository.observeStats().collect { stats ->
+                hasLiveStats = true
+                _uiState.update { it.copy(stats = stats) }
+            }
+        }
+        viewModelScope.launch {
+            itemRepository.observeCategoryNames().collect { categories ->
+                hasLiveCategories = true
+                _uiState.update { it.copy(categories = categories) }
+            }
+        }
+        viewModelScope.launch {
+            itemRepository.observeCounts(STOCK_CHIPS).collect { counts ->
+                _uiState.update { it.copy(stockCounts = counts) }
+            }
+        }
+    }
+
+    fun setSearchQuery(query: String) {
+        _searchQuery.value = query
+    }
+
+    fun selectCategory(category: String) {
+        selectedCategory.value = category
+        _uiState.update { it.copy(selectedCategory = category) }
+    }
+
+    /** Selects the stock chip for [level], or clears it if it is already selected. */
+    fun toggleStockFilter(level: StockLevel) {
+        val applied = if (stockFilter.value == level) StockLevel.ANY else level
+        stockFilter.value = applied
+        _uiState.update { it.copy(stockFilter = applied) }
+    }
+
+    @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+    private fun observeFilteredItems() {
+        // Clearing the search applies at once; typing waits for a pause
+        val appliedQuery = _searchQuery
+            .debounce { if (it.isBlank()) 0L else SEARCH_DEBOUNCE_MS }
+            .distinctUntilChanged { old, new -> old.trim() == new.trim() }
         viewModelScope.launch {
-            itemRepository.observeItems().collect {
-                _items.value = it
+            combine(appliedQuery, selectedCategory, stockFilter) { query, category, stock ->
+                (STOCK_CHIPS[stock] ?: InventoryQuery()).copy(
+                    text = query,
+                    categories = if (category == ALL_CATEGORIES) emptySet() else setOf(category)
+                )
             }
+                .flatMapLatest { query ->
+                    // Part numbers need fuzzy matching; shorter text, or text under a
+                    // stock chip, falls back to a plain substring match
+                    val text = query.text.orEmpty()
+                    if (query.stock == StockLevel.ANY && ItemSearchIndex.canSearch(text)) {
+                        itemRepository.searchItems(text, query.categories)
+                    } else {
+                        itemRepository.observeItems(query)
+                    }
+                }
+                .collect { items ->
+                    hasLiveData = true
+                    _uiState.update { it.copy(items = items, isShowingSnapshot = false) }
+                }
         }
     }
 
     fun loadItems(isOnline: Boolean = true) {
         viewModelScope.launch {
-            _isLoading.value = true
-            _error.value = null
+            _uiState.update { it.copy(isLoading = true, error = null) }
             itemRepository.loadItems(isOnline)
-                .onSuccess { (items, fromCache) ->
-                    // The _items flow is already updated by the observeItems collector
-                    // No need to set _items.value here directly unless we want to show a loading state specific to the initial load
+                .onSuccess { (itemCount, fromCache) ->
+                    // The item list is already updated by the observeFilteredItems collector
+                    if (!fromCache) snapshotStore.capture()
                 }
-                .onFailure {
-                    _error.value = it.message ?: "Failed to load items"
+                .onFailure { e ->
+                    _uiState.update { it.copy(error = e.message ?: "Failed to load items") }
                 }
-            _isLoading.value = false
+            _uiState.update { it.copy(isLoading = false) }
         }
     }
 
@@ -54,9 +193,9 @@ class DashboardViewModel(
         viewModelScope.launch {
             try {
                 itemRepository.addItem(item, isOnline)
-                _error.value = null
+                setError(null)
             } catch (e: Exception) {
-                _error.value = e.message ?: "Failed to add item"
+                setError(e.message ?: "Failed to add item")
             }
         }
     }
@@ -65,9 +204,9 @@ class DashboardViewModel(
         viewModelScope.launch {
             try {
                 itemRepository.updateItem(item, isOnline)
-                _error.value = null
+                setError(null)
             } catch (e: Exception) {
-                _error.value = e.message ?: "Failed to update item"
+                setError(e.message ?: "Failed to update item")
             }
         }
     }
@@ -76,9 +215,9 @@ class DashboardViewModel(
         viewModelScope.launch {
             try {
                 itemRepository.updateQuantity(id, quantity, isOnline)
-                _error.value = null
+                setError(null)
             } catch (e: Exception) {
-                _error.value = e.message ?: "Failed to update quantity"
+                setError(e.message ?: "Failed to update quantity")
             }
         }
     }
@@ -87,22 +226,48 @@ class DashboardViewModel(
         viewModelScope.launch {
             try {
                 itemRepository.deleteItem(id, userId, isOnline)
-                _error.value = null
+                setError(null)
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to delete item")
+            }
+        }
+    }
+
+    fun resolveBarcode(barcode: String) {
+        viewModelScope.launch {
+            try {
+                _barcodeResolution.value = barcodeRepository.resolve(barcode)
             } catch (e: Exception) {
-                _error.value = e.message ?: "Failed to delete item"
+                setError(e.message ?: "Failed to look up barcode")
             }
         }
     }
 
+    fun clearBarcodeResolution() {
+        _barcodeResolution.value = null
+    }
+
+    override suspend fun loadPhotos(item: Item): List<ItemPhoto> = itemRepository.getPhotos(item)
+
+    override suspend fun savePhotos(itemId: String, photos: List<ItemPhoto>): List<ItemPhoto> =
+        photoUploadQueue.save(itemId, photos)
+
+    override fun newCaptureFile(): File = mediaCacheManager.newCaptureFile(MediaCacheManager.ITEM_PHOTO_PREFIX)
+
+    private fun setError(message: String?) {
+        _uiState.update { it.copy(error = message) }
+    }
+
     fun syncData(): StateFlow<Boolean> {
         val syncLoading = MutableStateFlow(false)
         viewModelScope.launch {
             syncLoading.value = true
             try {
-                syncRepository.syncPendingActions()
-                _error.value = null
+                val result = syncRepository.syncPendingActions()
+                if (result.success) snapshotStore.capture()
+                setError(null)
             } catch (e: Exception) {
-                _error.value = e.message ?: "Failed to sync data"
+                setError(e.message ?: "Failed to sync data")
             } finally {
                 syncLoading.value = false
             }
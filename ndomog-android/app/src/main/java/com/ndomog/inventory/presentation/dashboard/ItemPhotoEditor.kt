@@ -0,0 +1,27 @@
+package com.ndomog.inventory.presentation.dashboard
+
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
+import java.io.File
+
+/**
+ * Photo operations the add/edit dialog needs, so it does not reach into
+ * Supabase or Room itself.
+ */
+interface ItemPhotoEditor {
+    /** Photos of [item] in display order, read from the local cache. */
+    suspend fun loadPhotos(item: Item): List<ItemPhoto>
+
+    /**
+     * Makes [photos] the complete photo set of [itemId], in list order, and
+     * returns the saved rows. Saving is local; photos with a local URI are
+     * uploaded and the set synced in the background.
+     */
+    suspend fun savePhotos(itemId: String, photos: List<ItemPhoto>): List<ItemPhoto>
+
+    /**
+     * An empty file for the camera to write a new photo into. It is deleted
+     * once the photo is saved, or evicted later if the dialog is dismissed.
+     */
+    fun newCaptureFile(): File
+}
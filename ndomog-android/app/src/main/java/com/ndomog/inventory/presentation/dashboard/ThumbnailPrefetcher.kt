@@ -0,0 +1,53 @@
+package com.ndomog.inventory.presentation.dashboard
+
+import androidx.compose.foundation.lazy.LazyListState
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.snapshotFlow
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.unit.Dp
+import coil.imageLoader
+import coil.request.ImageRequest
+import com.ndomog.inventory.data.models.Item
+import kotlinx.coroutines.flow.distinctUntilChanged
+
+/**
+ * Warms the image cache with thumbnails of the [aheadCount] items just below
+ * the visible part of [listState], so fast scrolls land on loaded images.
+ *
+ * [headerCount] is the number of list entries shown before the first item.
+ */
+@Composable
+fun ThumbnailPrefetcher(
+    listState: LazyListState,
+    items: List<Item>,
+    headerCount: Int,
+    thumbnailSize: Dp,
+    aheadCount: Int = 10
+) {
+    val context = LocalContext.current
+    val sizePx = with(LocalDensity.current) { thumbnailSize.roundToPx() }
+
+    // Restarts when the filtered list changes, since indices then point elsewhere
+    LaunchedEffect(listState, items, sizePx) {
+        var prefetchedUpTo = -1
+        snapshotFlow { listState.layoutInfo.visibleItemsInfo.lastOrNull()?.index ?: 0 }
+            .distinctUntilChanged()
+            .collect { lastVisible ->
+                val from = maxOf(lastVisible - headerCount + 1, prefetchedUpTo + 1, 0)
+                val to = minOf(lastVisible - headerCount + aheadCount, items.lastIndex)
+                for (index in from..to) {
+                    val item = items[index]
+                    val url = item.thumbnailUrl ?: item.photoUrl ?: continue
+                    context.imageLoader.enqueue(
+                        ImageRequest.Builder(context)
+                            .data(url)
+                            .size(sizePx)
+                            .build()
+                    )
+                }
+                if (to >= from) prefetchedUpTo = to
+            }
+    }
+}
@@ -0,0 +1,344 @@
+package com.ndomog.inventory.presentation.dashboard
+
+import android.graphics.Bitmap
+import android.graphics.Rect
+import android.view.Choreographer
+import androidx.compose.foundation.Canvas
+import androidx.compose.foundation.gestures.awaitEachGesture
+import androidx.compose.foundation.gestures.awaitFirstDown
+import androidx.compose.foundation.gestures.calculatePan
+import androidx.compose.foundation.gestures.calculateZoom
+import androidx.compose.foundation.gestures.detectTapGestures
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.fillMaxSize
+import androidx.compose.foundation.layout.size
+import androidx.compose.material3.CircularProgressIndicator
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.DisposableEffect
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.Stable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableFloatStateOf
+import androidx.compose.runtime.mutableStateMapOf
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.remember
+import androidx.compose.runtime.setValue
+import androidx.compose.runtime.snapshotFlow
+import androidx.compose.runtime.withFrameNanos
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.geometry.Offset
+import androidx.compose.ui.graphics.asImageBitmap
+import androidx.compose.ui.input.pointer.pointerInput
+import androidx.compose.ui.input.pointer.positionChanged
+import androidx.compose.ui.layout.ContentScale
+import androidx.compose.ui.layout.onSizeChanged
+import androidx.compose.ui.semantics.contentDescription
+import androidx.compose.ui.semantics.semantics
+import androidx.compose.ui.unit.IntOffset
+import androidx.compose.ui.unit.IntSize
+import androidx.compose.ui.unit.dp
+import coil.compose.AsyncImage
+import com.ndomog.inventory.media.PhotoSourceCache
+import com.ndomog.inventory.media.TileBitmapPool
+import com.ndomog.inventory.media.TiledImage
+import com.ndomog.inventory.presentation.theme.NdomogColors
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.roundToInt
+
+private const val MAX_ZOOM = 6f
+private const val DOUBLE_TAP_ZOOM = 3f
+
+// Wait for the gesture to settle before decoding sharper tiles
+private const val TILE_DELAY_MS = 120L
+
+private data class TileKey(val sampleSize: Int, val region: Rect) {
+    // Pixels the region decodes to; a pooled bitmap may be larger, with the rest unused
+    val decodedSize: IntSize
+        get() = IntSize(
+            (region.width() + sampleSize - 1) / sampleSize,
+            (region.height() + sampleSize - 1) / sampleSize
+        )
+}
+
+/**
+ * Zoom and decode state of one [ZoomablePhoto] page.
+ */
+@Stable
+private class ZoomablePhotoState(private val pool: TileBitmapPool) {
+    var image: TiledImage? by mutableStateOf(null)
+    var failed by mutableStateOf(false)
+    var viewSize by mutableStateOf(IntSize.Zero)
+    var scale by mutableFloatStateOf(1f)
+    var offset by mutableStateOf(Offset.Zero)
+
+    // Whole image at roughly screen resolution, drawn under the tiles
+    var base: Bitmap? by mutableStateOf(null)
+    private var baseSampleSize = 1
+    val tiles = mutableStateMapOf<TileKey, Bitmap>()
+
+    // Tiles no longer shown, but possibly still drawn by a frame in flight
+    private val retired = mutableListOf<Bitmap>()
+
+    // One decode at a time per page keeps peak memory predictable
+    private val decodeLock = Mutex()
+
+    private val fitScale: Float
+        get() {
+            val image = image ?: return 1f
+            if (viewSize.width == 0 || viewSize.height == 0) return 1f
+            return min(viewSize.width.toFloat() / image.width, viewSize.height.toFloat() / image.height)
+        }
+
+    /** Screen pixels per image pixel. */
+    val drawScale: Float get() = fitScale * scale
+
+    /** Top-left corner of the image in view coordinates. */
+    fun origin(): Offset {
+        val image = image ?: return Offset.Zero
+        return Offset(
+            (viewSize.width - image.width * drawScale) / 2f + offset.x,
+            (viewSize.height - image.height * drawScale) / 2f + offset.y
+        )
+    }
+
+    fun transform(zoom: Float, pan: Offset) {
+        scale = (scale * zoom).coerceIn(1f, MAX_ZOOM)
+        offset = clampOffset(offset + pan)
+    }
+
+    fun toggleZoom() {
+        scale = if (scale > 1f) 1f else DOUBLE_TAP_ZOOM
+        offset = clampOffset(offset)
+    }
+
+    private fun clampOffset(value: Offset): Offset {
+        val image = image ?: return Offset.Zero
+        val maxX = max(0f, (image.width * drawScale - viewSize.width) / 2f)
+        val maxY = max(0f, (image.height * drawScale - viewSize.height) / 2f)
+        return Offset(value.x.coerceIn(-maxX, maxX), value.y.coerceIn(-maxY, maxY))
+    }
+
+    suspend fun loadBase() {
+        val image = image ?: return
+        if (viewSize == IntSize.Zero) return
+        val sampleSize = TiledImage.sampleSizeFor(fitScale)
+        if (base != null && sampleSize == baseSampleSize) return
+        val bitmap = decodeLock.withLock {
+            withContext(Dispatchers.IO) { image.decodeFull(sampleSize) }
+        } ?: return
+        // The previous base may still be in a frame being drawn, so it is left to GC
+        base = bitmap
+        baseSampleSize = sampleSize
+    }
+
+    /** Decodes the tiles covering the visible part of the image, if zoomed past the base. */
+    suspend fun updateTiles() {
+        val image = image ?: return
+        val sampleSize = TiledImage.sampleSizeFor(drawScale)
+        if (sampleSize >= baseSampleSize) {
+            clearTiles()
+            return
+        }
+
+        val wanted = visibleTiles(image, sampleSize)
+        tiles.keys.filter { it !in wanted }.forEach { key -> tiles.remove(key)?.let { retired += it } }
+        for (key in wanted) {
+            if (key in tiles) continue
+            val bitmap = decodeLock.withLock {
+                withContext(Dispatchers.IO) { image.decodeTile(key.region, key.sampleSize) }
+            } ?: continue
+            tiles[key] = bitmap
+        }
+        releaseRetired()
+    }
+
+    /**
+     * Hands retired tiles back to the pool once two frames have passed, so the
+     * last frame that drew them has finished. If cancelled meanwhile, they wait
+     * for the next call.
+     */
+    private suspend fun releaseRetired() {
+        if (retired.isEmpty()) return
+        val released = retired.toList()
+        repeat(2) { withFrameNanos { } }
+        retired.removeAll(released)
+        released.forEach { pool.put(it) }
+    }
+
+    private fun visibleTiles(image: TiledImage, sampleSize: Int): Set<TileKey> {
+        val origin = origin()
+        val left = ((-origin.x) / drawScale).coerceIn(0f, image.width.toFloat())
+        val top = ((-origin.y) / drawScale).coerceIn(0f, image.height.toFloat())
+        val right = ((viewSize.width - origin.x) / drawScale).coerceIn(0f, image.width.toFloat())
+        val bottom = ((viewSize.height - origin.y) / drawScale).coerceIn(0f, image.height.toFloat())
+        if (right <= left || bottom <= top) return emptySet()
+
+        val span = TiledImage.TILE_SIZE_PX * sampleSize
+        val keys = mutableSetOf<TileKey>()
+        for (row in (top.toInt() / span)..((bottom.toInt() - 1).coerceAtLeast(0) / span)) {
+            for (column in (left.toInt() / span)..((right.toInt() - 1).coerceAtLeast(0) / span)) {
+                val region = Rect(
+                    column * span,
+                    row * span,
+                    min((column + 1) * span, image.width),
+                    min((row + 1) * span, image.height)
+                )
+                if (!region.isEmpty) keys += TileKey(sampleSize, region)
+            }
+        }
+        return keys
+    }
+
+    private suspend fun clearTiles() {
+        retired += tiles.values
+        tiles.clear()
+        releaseRetired()
+    }
+
+    /**
+     * Retires every tile and hands them to the pool, shared with the other
+     * pages, two frames later. The page's own frame clock is gone by now, so
+     * this waits on the [Choreographer] instead. The base is left to GC.
+     */
+    fun dispose() {
+        retired += tiles.values
+        tiles.clear()
+        val released = retired.toList()
+        retired.clear()
+        if (released.isNotEmpty()) {
+            val choreographer = Choreographer.getInstance()
+            choreographer.postFrameCallback {
+                choreographer.postFrameCallback { released.forEach { pool.put(it) } }
+            }
+        }
+        base = null
+        image?.close()
+        image = null
+    }
+}
+
+/**
+ * Full-size photo with pinch and double-tap zoom.
+ *
+ * The photo is decoded at screen resolution first; zooming in decodes only
+ * the visible tiles at a finer sample size. Tile bitmaps come from [tilePool],
+ * shared by all pages, so memory stays flat whatever the source resolution.
+ * Falls back to a plain Coil image if the photo cannot be region-decoded.
+ */
+@Composable
+fun ZoomablePhoto(
+    url: String,
+    contentDescription: String?,
+    photoSource: PhotoSourceCache,
+    tilePool: TileBitmapPool,
+    modifier: Modifier = Modifier
+) {
+    val state = remember(url) { ZoomablePhotoState(tilePool) }
+
+    DisposableEffect(state) {
+        onDispose { state.dispose() }
+    }
+
+    LaunchedEffect(state) {
+        try {
+            val file = photoSource.fileFor(url)
+            state.image = withContext(Dispatchers.IO) { TiledImage.open(file, tilePool) }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Timber.w(e, "Falling back to a plain image for $url")
+            state.failed = true
+        }
+    }
+
+    LaunchedEffect(state) {
+        snapshotFlow { Triple(state.image, state.viewSize, state.drawScale to state.offset) }
+            .collectLatest {
+                state.loadBase()
+                delay(TILE_DELAY_MS)
+                state.updateTiles()
+            }
+    }
+
+    if (state.failed) {
+        AsyncImage(
+            model = url,
+            contentDescription = contentDescription,
+            modifier = modifier,
+            contentScale = ContentScale.Fit
+        )
+        return
+    }
+
+    Box(modifier = modifier) {
+        Canvas(
+            modifier = Modifier
+                .fillMaxSize()
+                .onSizeChanged { state.viewSize = it }
+                .semantics { contentDescription?.let { this.contentDescription = it } }
+                .pointerInput(state) {
+                    detectTapGestures(onDoubleTap = { state.toggleZoom() })
+                }
+                .pointerInput(state) {
+                    awaitEachGesture {
+                        awaitFirstDown(requireUnconsumed = false)
+                        do {
+                            val event = awaitPointerEvent()
+                            // Single-finger drags page the viewer unless zoomed in
+                            if (event.changes.size > 1 || state.scale > 1f) {
+                                state.transform(event.calculateZoom(), event.calculatePan())
+                                event.changes.forEach { if (it.positionChanged()) it.consume() }
+                            }
+                        } while (event.changes.any { it.pressed })
+                    }
+                }
+        ) {
+            val image = state.image ?: return@Canvas
+            val origin = state.origin()
+            val drawScale = state.drawScale
+            state.base?.let { base ->
+                drawImage(
+                    base.asImageBitmap(),
+                    dstOffset = IntOffset(origin.x.roundToInt(), origin.y.roundToInt()),
+                    dstSize = IntSize(
+                        (image.width * drawScale).roundToInt(),
+                        (image.height * drawScale).roundToInt()
+                    )
+                )
+            }
+            state.tiles.forEach { (key, tile) ->
+                val left = (origin.x + key.region.left * drawScale).roundToInt()
+                val top = (origin.y + key.region.top * drawScale).roundToInt()
+                drawImage(
+                    tile.asImageBitmap(),
+                    srcSize = key.decodedSize,
+                    dstOffset = IntOffset(left, top),
+                    // Round both edges so neighbouring tiles meet without seams
+                    dstSize = IntSize(
+                        (origin.x + key.region.right * drawScale).roundToInt() - left,
+                        (origin.y + key.region.bottom * drawScale).roundToInt() - top
+                    )
+                )
+            }
+        }
+
+        if (state.base == null) {
+            CircularProgressIndicator(
+                modifier = Modifier
+                    .align(Alignment.Center)
+                    .size(32.dp),
+                color = NdomogColors.Primary
+            )
+        }
+    }
+}
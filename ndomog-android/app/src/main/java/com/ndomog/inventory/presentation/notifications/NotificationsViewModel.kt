@@ -2,10 +2,12 @@ package com.ndomog.inventory.presentation.notifications
 
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.ndomog.inventory.data.models.Profile
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
 import com.ndomog.inventory.data.repository.AuthRepository
+import com.ndomog.inventory.data.repository.ProfileCache
 import io.github.jan.supabase.postgrest.from
+import io.github.jan.supabase.postgrest.query.Order
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -18,8 +20,14 @@ import java.time.Instant
 import java.util.Date
 
 class NotificationsViewModel(
-    private val authRepository: AuthRepository
+    private val authRepository: AuthRepository,
+    private val profileCache: ProfileCache
 ) : ViewModel() {
+    companion object {
+        // Only the most recent notifications are shown, so older rows are never downloaded
+        const val NOTIFICATIONS_LIMIT = 200L
+    }
+
     private val supabase = SupabaseClient.client
 
     private val _notifications = MutableStateFlow<List<Notification>>(emptyList())
@@ -49,18 +57,18 @@ class NotificationsViewModel(
 
                 var firstLoad = true
                 while (isActive) {
-                    val profiles = fetchProfiles()
-                    val profileById = profiles.associateBy { it.id }
+                    val profileById = profileCache.getAll()
                     val rows = supabase.from("notifications")
-                        .select {
+                        .select(RemoteColumns.NOTIFICATION) {
                             filter {
                                 eq("user_id", currentUser.id)
                             }
+                            order("created_at", Order.DESCENDING)
+                            limit(NOTIFICATIONS_LIMIT)
                         }
                         .decodeList<NotificationRow>()
 
                     val items = rows
-                        .sortedByDescending { it.createdAt ?: "" }
                         .map { row ->
                             val profile = row.actionUserId?.let { profileById[it] }
                             val email = row.actionUserEmail
@@ -140,16 +148,6 @@ class NotificationsViewModel(
         }
     }
 
-    private suspend fun fetchProfiles(): List<Profile> {
-        return try {
-            supabase.from("profiles")
-                .select()
-                .decodeList<Profile>()
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
     private fun parseDate(value: String?): Date {
         if (value.isNullOrBlank()) return Date()
         return runCatching { Date.from(Instant.parse(value)) }.getOrElse { Date() }
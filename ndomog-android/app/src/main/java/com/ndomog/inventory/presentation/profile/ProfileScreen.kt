@@ -3,7 +3,7 @@ package com.ndomog.inventory.presentation.profile
 import android.Manifest
 import android.content.pm.PackageManager
 import android.net.Uri
-import android.os.Environment
+import android.text.format.Formatter
 import android.annotation.SuppressLint
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.result.contract.ActivityResultContracts
@@ -43,18 +43,12 @@ import androidx.fragment.app.FragmentActivity
 import androidx.lifecycle.viewmodel.compose.viewModel
 import androidx.lifecycle.viewModelScope
 import coil.compose.AsyncImage
-import coil.request.ImageRequest
 import com.ndomog.inventory.BuildConfig
 import com.ndomog.inventory.di.ViewModelFactory
 import com.ndomog.inventory.presentation.theme.NdomogColors
 import com.ndomog.inventory.utils.ThemePreferences
 import com.ndomog.inventory.utils.PinPreferences
-import com.ndomog.inventory.data.remote.SupabaseClient
-import io.github.jan.supabase.gotrue.auth
-import java.io.File
-import java.text.SimpleDateFormat
-import java.util.Date
-import java.util.Locale
+import com.ndomog.inventory.utils.SecurityStateStore
 import kotlinx.coroutines.launch
 
 // App version info
@@ -86,6 +80,7 @@ private fun formatErrorMessage(error: String): String {
 fun ProfileScreen(
     onBack: () -> Unit,
     viewModelFactory: ViewModelFactory,
+    securityStateStore: SecurityStateStore,
     onLogout: () -> Unit = {}
 ) {
     val viewModel: ProfileViewModel = viewModel(factory = viewModelFactory)
@@ -103,10 +98,10 @@ fun ProfileScreen(
     val successMessage by viewModel.successMessage.collectAsState()
     val isAdmin by viewModel.isAdmin.collectAsState()
     val isLoggedOut by viewModel.isLoggedOut.collectAsState()
+    val mediaUsage by viewModel.mediaUsage.collectAsState()
     var isEditingUsername by remember { mutableStateOf(false) }
     var newUsername by remember { mutableStateOf("") }
 
-    val accessToken = SupabaseClient.client.auth.currentSessionOrNull()?.accessToken
     
     // Dialogs
     var showChangePasswordDialog by remember { mutableStateOf(false) }
@@ -114,18 +109,16 @@ fun ProfileScreen(
     var showAboutDialog by remember { mutableStateOf(false) }
     var showAvatarOptions by remember { mutableStateOf(false) }
     
-    // PIN Lock state - load from DataStore
-    val isPinEnabledState by pinPreferences.isPinEnabled.collectAsState(false)
-    val isBiometricEnabledState by pinPreferences.isBiometricEnabled.collectAsState(false)
+    // PIN Lock state - already in memory, writes go through PinPreferences
+    val securityState by securityStateStore.security.collectAsState()
     
-    var isPinEnabled by remember { mutableStateOf(false) }
-    var isBiometricEnabled by remember { mutableStateOf(false) }
+    var isPinEnabled by remember { mutableStateOf(securityState.isPinEnabled) }
+    var isBiometricEnabled by remember { mutableStateOf(securityState.isBiometricEnabled) }
     var biometricAvailable by remember { mutableStateOf(false) }
     
-    // Load PIN state on composition
-    LaunchedEffect(isPinEnabledState, isBiometricEnabledState) {
-        isPinEnabled = isPinEnabledState
-        isBiometricEnabled = isBiometricEnabledState
+    LaunchedEffect(securityState) {
+        isPinEnabled = securityState.isPinEnabled
+        isBiometricEnabled = securityState.isBiometricEnabled
     }
     
     // Check if biometric hardware is available
@@ -145,60 +138,25 @@ fun ProfileScreen(
     }
     
     // Accessibility states - these now persist and apply via ThemePreferences
-    val isDarkMode by themePreferences.isDarkMode.collectAsState(true)
-    val isHighContrast by themePreferences.isHighContrast.collectAsState(false)
-    val textSizeValue by themePreferences.textSize.collectAsState(1f)
+    val themeState by securityStateStore.theme.collectAsState()
+    val isDarkMode = themeState.isDarkMode
+    val isHighContrast = themeState.isHighContrast
+    val textSizeValue = themeState.textSize
     
     // Avatar upload
     var tempPhotoUri by remember { mutableStateOf<Uri?>(null) }
     
-    fun createImageFile(): File {
-        val timeStamp = SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(Date())
-        val storageDir = context.getExternalFilesDir(Environment.DIRECTORY_PICTURES)
-        return File.createTempFile("AVATAR_${timeStamp}_", ".jpg", storageDir)
-    }
-    
-    fun readBytesFromUri(uri: Uri): ByteArray? {
-        return try {
-            val contentResolver = context.contentResolver
-            contentResolver.openInputStream(uri)?.use { input ->
-                input.readBytes()
-            }
-        } catch (_: Exception) {
-            null
-        }
-    }
-
-    fun getImageExtension(uri: Uri): String {
-        val mimeType = context.contentResolver.getType(uri)
-        return when (mimeType) {
-            "image/png" -> "png"
-            "image/webp" -> "webp"
-            "image/jpeg" -> "jpg"
-            else -> "jpg"
-        }
-    }
-
     val imagePickerLauncher = rememberLauncherForActivityResult(
         contract = ActivityResultContracts.GetContent()
     ) { uri: Uri? ->
-        uri?.let {
-            val bytes = readBytesFromUri(it)
-            if (bytes != null) {
-                viewModel.updateAvatarBytes(bytes, getImageExtension(it))
-            }
-        }
+        uri?.let { viewModel.updateAvatar(it) }
     }
     
     val cameraLauncher = rememberLauncherForActivityResult(
         contract = ActivityResultContracts.TakePicture()
     ) { success ->
         if (success && tempPhotoUri != null) {
-            val uri = tempPhotoUri!!
-            val bytes = readBytesFromUri(uri)
-            if (bytes != null) {
-                viewModel.updateAvatarBytes(bytes, getImageExtension(uri))
-            }
+            viewModel.updateAvatar(tempPhotoUri!!)
         }
     }
     
@@ -207,7 +165,7 @@ fun ProfileScreen(
     ) { isGranted ->
         if (isGranted) {
             try {
-                val photoFile = createImageFile()
+                val photoFile = viewModel.newAvatarCaptureFile()
                 tempPhotoUri = FileProvider.getUriForFile(
                     context,
                     "${context.packageName}.fileprovider",
@@ -223,7 +181,7 @@ fun ProfileScreen(
             val permission = Manifest.permission.CAMERA
             when {
                 ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED -> {
-                    val photoFile = createImageFile()
+                    val photoFile = viewModel.newAvatarCaptureFile()
                     tempPhotoUri = FileProvider.getUriForFile(
                         context,
                         "${context.packageName}.fileprovider",
@@ -366,16 +324,9 @@ fun ProfileScreen(
                     contentAlignment = Alignment.Center
                 ) {
                     if (avatarUrl != null && avatarUrl!!.isNotEmpty()) {
-                        val model = if (!accessToken.isNullOrBlank() && avatarUrl!!.contains("/storage/v1/object/")) {
-                            ImageRequest.Builder(context)
-                                .data(avatarUrl)
-                                .addHeader("Authorization", "Bearer $accessToken")
-                                .build()
-                        } else {
-                            avatarUrl
-                        }
+                        // Storage credentials are added by the shared ImageLoader
                         AsyncImage(
-                            model = model,
+                            model = avatarUrl,
                             contentDescription = "Avatar",
                             modifier = Modifier.fillMaxSize(),
                             contentScale = ContentScale.Crop
@@ -684,6 +635,40 @@ fun ProfileScreen(
 
             Spacer(modifier = Modifier.height(12.dp))
 
+            // Storage Section - photos kept on this device
+            SettingSection(
+                title = "Storage",
+                icon = Icons.Filled.Storage,
+                subtitle = mediaUsage?.let { usage ->
+                    "${Formatter.formatShortFileSize(context, usage.totalBytes)} of photos on this device"
+                },
+                items = listOf(
+                    SettingItem(
+                        label = "Clear Cached Photos",
+                        icon = Icons.Filled.DeleteSweep,
+                        action = { viewModel.clearMediaCache() }
+                    )
+                ),
+                footer = {
+                    mediaUsage?.let { usage ->
+                        Divider(color = NdomogColors.DarkBorder.copy(alpha = 0.3f))
+                        Column(modifier = Modifier.padding(horizontal = 16.dp, vertical = 12.dp)) {
+                            MediaUsageRow("Image cache", usage.imageCacheBytes)
+                            MediaUsageRow("Full-size photos", usage.originalsBytes)
+                            MediaUsageRow("Camera captures", usage.captureBytes)
+                            MediaUsageRow("Waiting to upload", usage.pendingUploadBytes)
+                            Spacer(modifier = Modifier.height(4.dp))
+                            Text(
+                                "Cached photos are trimmed to ${Formatter.formatShortFileSize(context, usage.budgetBytes)}. Photos waiting to upload are never removed.",
+                                style = MaterialTheme.typography.bodySmall.copy(color = NdomogColors.TextMuted)
+                            )
+                        }
+                    }
+                }
+            )
+
+            Spacer(modifier = Modifier.height(12.dp))
+
             // App Management Section (merged with About)
             SettingSection(
                 title = "App Management",
@@ -898,6 +883,23 @@ fun SettingSection(
     }
 }
 
+@Composable
+private fun MediaUsageRow(label: String, bytes: Long) {
+    val context = LocalContext.current
+    Row(
+        modifier = Modifier
+            .fillMaxWidth()
+            .padding(vertical = 2.dp),
+        horizontalArrangement = Arrangement.SpaceBetween
+    ) {
+        Text(label, style = MaterialTheme.typography.bodySmall.copy(color = NdomogColors.TextMuted))
+        Text(
+            Formatter.formatShortFileSize(context, bytes),
+            style = MaterialTheme.typography.bodySmall.copy(color = NdomogColors.TextLight)
+        )
+    }
+}
+
 @Composable
 fun SettingItemRow(item: SettingItem) {
     Row(
@@ -1,11 +1,17 @@
 package com.ndomog.inventory.presentation.profile
 
+import android.net.Uri
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.ndomog.inventory.data.repository.AuthRepository
 import com.ndomog.inventory.data.local.ProfileDao
 import com.ndomog.inventory.data.models.Profile
+import com.ndomog.inventory.data.repository.DashboardSnapshotStore
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
+import com.ndomog.inventory.media.MediaCacheManager
+import com.ndomog.inventory.media.MediaUsage
+import com.ndomog.inventory.media.PhotoUploader
 import com.ndomog.inventory.services.AppRelease
 import com.ndomog.inventory.services.AppReleaseService
 import io.github.jan.supabase.postgrest.from
@@ -17,6 +23,7 @@ import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
 import kotlinx.serialization.Serializable
 import timber.log.Timber
+import java.io.File
 
 @Serializable
 data class UserRole(
@@ -27,10 +34,13 @@ data class UserRole(
 
 class ProfileViewModel(
     private val authRepository: AuthRepository,
-    private val profileDao: ProfileDao
+    private val profileDao: ProfileDao,
+    private val photoUploader: PhotoUploader,
+    private val mediaCacheManager: MediaCacheManager,
+    private val dashboardSnapshotStore: DashboardSnapshotStore
 ) : ViewModel() {
 
-    private val avatarBucket = "avatars"
+    private val avatarBucket = PhotoUploader.AVATAR_BUCKET
     private val usernameRegex = Regex("^[a-z0-9_-]{3,20}$")
 
     private fun normalizeUsername(input: String): String {
@@ -70,10 +80,19 @@ class ProfileViewModel(
     private val _updateError = MutableStateFlow<String?>(null)
     val updateError: StateFlow<String?> = _updateError.asStateFlow()
 
+    private val _mediaUsage = MutableStateFlow<MediaUsage?>(null)
+    val mediaUsage: StateFlow<MediaUsage?> = _mediaUsage.asStateFlow()
+
     private val appReleaseService = AppReleaseService(viewModelScope)
 
     init {
         loadUserProfile()
+        refreshMediaUsage()
+        // Pick up the result of the background check run after startup
+        AppReleaseService.availableRelease.value?.let { release ->
+            _updateAvailable.value = true
+            _latestRelease.value = release
+        }
     }
 
     private fun formatRemoteError(e: Exception, fallback: String): String {
@@ -121,8 +140,9 @@ class ProfileViewModel(
                 // Prioritize remote fetch
                 try {
                     Timber.d("Attempting to fetch remote profile for user $userId")
-                    val remoteProfile = SupabaseClient.client.from("profiles").select {
+                    val remoteProfile = SupabaseClient.client.from("profiles").select(RemoteColumns.PROFILE) {
                         filter { eq("id", userId) }
+                        limit(1)
                     }.decodeList<Profile>().firstOrNull()
 
                     if (remoteProfile != null) {
@@ -187,8 +207,9 @@ class ProfileViewModel(
             Timber.d("Initial profile upsert attempted for user $userId")
 
             // After upsert, reload the profile to get the definitive state
-            val reloadedProfile = SupabaseClient.client.from("profiles").select {
+            val reloadedProfile = SupabaseClient.client.from("profiles").select(RemoteColumns.PROFILE) {
                 filter { eq("id", userId) }
+                limit(1)
             }.decodeList<Profile>().firstOrNull()
 
             if (reloadedProfile != null) {
@@ -210,7 +231,7 @@ class ProfileViewModel(
     private suspend fun checkAdminStatus(userId: String) {
         try {
             // Check user_roles table for admin role using proper deserialization
-            val roles = SupabaseClient.client.from("user_roles").select {
+            val roles = SupabaseClient.client.from("user_roles").select(RemoteColumns.USER_ROLE) {
                 filter {
                     eq("user_id", userId)
                 }
@@ -261,23 +282,15 @@ class ProfileViewModel(
         }
     }
     
-    fun updateAvatarBytes(bytes: ByteArray, extension: String) {
+    fun updateAvatar(uri: Uri) {
         viewModelScope.launch {
             _isLoading.value = true
             _error.value = null
             try {
                 val currentUser = authRepository.getCurrentUser()
                 currentUser?.id?.let { userId ->
-                    val safeExt = extension.ifBlank { "jpg" }
-                    val path = "users/$userId/avatar.$safeExt"
-
-                    SupabaseClient.client.storage
-                        .from(avatarBucket)
-                        .upload(path, bytes, upsert = true)
-
-                    val publicUrl = SupabaseClient.client.storage
-                        .from(avatarBucket)
-                        .authenticatedUrl(path)
+                    // Downscaled to avatar size and recompressed off the main thread
+                    val publicUrl = photoUploader.uploadAvatar(userId, uri)
 
                     SupabaseClient.client.from("profiles")
                         .update(mapOf("avatar_url" to publicUrl)) {
@@ -296,6 +309,8 @@ class ProfileViewModel(
                         )
                     )
                     _successMessage.value = "Avatar updated successfully"
+                    // The camera capture is no longer needed once the avatar is stored
+                    mediaCacheManager.releaseCapture(uri)
                 }
             } catch (e: Exception) {
                 Timber.e(e, "Failed to update avatar")
@@ -341,6 +356,32 @@ class ProfileViewModel(
         }
     }
     
+    /** An empty file for the camera to write a new avatar into. */
+    fun newAvatarCaptureFile(): File = mediaCacheManager.newCaptureFile(MediaCacheManager.AVATAR_PREFIX)
+
+    fun refreshMediaUsage() {
+        viewModelScope.launch {
+            try {
+                _mediaUsage.value = mediaCacheManager.usage()
+            } catch (e: Exception) {
+                Timber.w(e, "Failed to measure media storage")
+            }
+        }
+    }
+
+    fun clearMediaCache() {
+        viewModelScope.launch {
+            try {
+                mediaCacheManager.clear()
+                _successMessage.value = "Cached photos cleared"
+            } catch (e: Exception) {
+                Timber.e(e, "Failed to clear media cache")
+                _error.value = e.message ?: "Failed to clear cached photos"
+            }
+            _mediaUsage.value = runCatching { mediaCacheManager.usage() }.getOrNull()
+        }
+    }
+
     fun updatePassword(oldPassword: String, newPassword: String) {
         viewModelScope.launch {
             _isLoading.value = true
@@ -382,6 +423,8 @@ class ProfileViewModel(
             try {
                 val result = authRepository.signOut()
                 if (result.isSuccess) {
+                    // The next user must not see this account's inventory before their first sync
+                    dashboardSnapshotStore.clear()
                     _isLoggedOut.value = true
                 } else {
                     _error.value = result.exceptionOrNull()?.message ?: "Failed to log out"
@@ -0,0 +1,432 @@
+package com.ndomog.inventory.presentation.stocktake
+
+import android.annotation.SuppressLint
+import android.widget.Toast
+import androidx.compose.foundation.BorderStroke
+import androidx.compose.foundation.background
+import androidx.compose.foundation.clickable
+import androidx.compose.foundation.layout.*
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.foundation.lazy.items
+import androidx.compose.foundation.shape.RoundedCornerShape
+import androidx.compose.foundation.text.KeyboardOptions
+import androidx.compose.material.icons.Icons
+import androidx.compose.material.icons.filled.Add
+import androidx.compose.material.icons.filled.ArrowBack
+import androidx.compose.material.icons.filled.Close
+import androidx.compose.material.icons.filled.QrCodeScanner
+import androidx.compose.material.icons.filled.Remove
+import androidx.compose.material.icons.filled.Search
+import androidx.compose.material3.*
+import androidx.compose.runtime.*
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.text.font.FontWeight
+import androidx.compose.ui.text.input.KeyboardType
+import androidx.compose.ui.text.style.TextOverflow
+import androidx.compose.ui.unit.dp
+import androidx.lifecycle.viewmodel.compose.viewModel
+import com.ndomog.inventory.data.models.StockTakeVariance
+import com.ndomog.inventory.di.ViewModelFactory
+import com.ndomog.inventory.presentation.dashboard.BarcodeScannerDialog
+import com.ndomog.inventory.presentation.theme.NdomogColors
+
+@SuppressLint("UnusedMaterial3ScaffoldPaddingParameter")
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun StockTakeScreen(
+    onBack: () -> Unit,
+    viewModelFactory: ViewModelFactory
+) {
+    val viewModel: StockTakeViewModel = viewModel(factory = viewModelFactory)
+    val uiState by viewModel.uiState.collectAsState()
+    val searchQuery by viewModel.searchQuery.collectAsState()
+    val searchResults by viewModel.searchResults.collectAsState()
+    val context = LocalContext.current
+
+    var showScanner by remember { mutableStateOf(false) }
+    var showDiscardDialog by remember { mutableStateOf(false) }
+    // Item whose count is being typed: id, name and current count
+    var countEntry by remember { mutableStateOf<Triple<String, String, Int>?>(null) }
+
+    LaunchedEffect(uiState.error) {
+        uiState.error?.let {
+            Toast.makeText(context, it, Toast.LENGTH_SHORT).show()
+            viewModel.clearError()
+        }
+    }
+    LaunchedEffect(uiState.committed) {
+        uiState.committed?.let { summary ->
+            Toast.makeText(
+                context,
+                "Stock take committed: ${summary.adjustedCount} of ${summary.lineCount} items adjusted",
+                Toast.LENGTH_LONG
+            ).show()
+        }
+    }
+
+    // Counts being sent must not change, so close anything that edits them
+    LaunchedEffect(uiState.isLocked) {
+        if (uiState.isLocked) {
+            showScanner = false
+            countEntry = null
+        }
+    }
+
+    Scaffold(
+        topBar = {
+            TopAppBar(
+                title = {
+                    Text(
+                        "Stock Take",
+                        color = NdomogColors.TextLight,
+                        style = MaterialTheme.typography.headlineSmall
+                    )
+                },
+                navigationIcon = {
+                    IconButton(onClick = onBack) {
+                        Icon(
+                            Icons.Filled.ArrowBack,
+                            contentDescription = "Back",
+                            tint = NdomogColors.Primary
+                        )
+                    }
+                },
+                actions = {
+                    IconButton(onClick = { showScanner = true }, enabled = !uiState.isLocked) {
+                        Icon(
+                            Icons.Filled.QrCodeScanner,
+                            contentDescription = "Scan to count",
+                            tint = NdomogColors.Primary
+                        )
+                    }
+                },
+                colors = TopAppBarDefaults.topAppBarColors(
+                    containerColor = NdomogColors.DarkCard,
+                    scrolledContainerColor = NdomogColors.DarkCard
+                )
+            )
+        },
+        containerColor = NdomogColors.DarkBackground
+    ) { paddingValues ->
+        Column(
+            modifier = Modifier
+                .fillMaxSize()
+                .background(NdomogColors.DarkBackground)
+                .padding(paddingValues)
+                .padding(16.dp)
+        ) {
+            StockTakeSummaryCard(uiState)
+
+            if (uiState.isSubmitted && !uiState.isCommitting) {
+                Spacer(modifier = Modifier.height(8.dp))
+                Text(
+                    "These counts were sent but not confirmed. Retry the commit before counting more.",
+                    color = NdomogColors.Warning,
+                    style = MaterialTheme.typography.bodySmall
+                )
+            }
+
+            Spacer(modifier = Modifier.height(12.dp))
+
+            OutlinedTextField(
+                value = searchQuery,
+                onValueChange = viewModel::setSearchQuery,
+                placeholder = { Text("Find an item to count...", color = NdomogColors.TextMuted.copy(alpha = 0.5f)) },
+                leadingIcon = { Icon(Icons.Filled.Search, contentDescription = null, tint = NdomogColors.TextMuted) },
+                trailingIcon = {
+                    if (searchQuery.isNotEmpty()) {
+                        IconButton(onClick = { viewModel.setSearchQuery("") }) {
+                            Icon(Icons.Filled.Close, contentDescription = "Clear search", tint = NdomogColors.TextMuted)
+                        }
+                    }
+                },
+                modifier = Modifier.fillMaxWidth(),
+                enabled = !uiState.isLocked,
+                colors = OutlinedTextFieldDefaults.colors(
+                    unfocusedBorderColor = NdomogColors.DarkBorder,
+                    focusedBorderColor = NdomogColors.Primary,
+                    unfocusedTextColor = NdomogColors.TextLight,
+                    focusedTextColor = NdomogColors.TextLight,
+                    cursorColor = NdomogColors.Primary
+                ),
+                shape = RoundedCornerShape(8.dp),
+                singleLine = true
+            )
+
+            Spacer(modifier = Modifier.height(12.dp))
+
+            LazyColumn(
+                modifier = Modifier.weight(1f),
+                verticalArrangement = Arrangement.spacedBy(8.dp)
+            ) {
+                if (searchQuery.isNotBlank()) {
+                    items(searchResults, key = { "result-${it.id}" }) { item ->
+                        val counted = uiState.lines.firstOrNull { it.itemId == item.id }?.counted ?: 0
+                        Card(
+                            modifier = Modifier
+                                .fillMaxWidth()
+                                .clickable(enabled = !uiState.isLocked) {
+                                    countEntry = Triple(item.id, item.name, counted)
+                                    viewModel.setSearchQuery("")
+                                },
+                            colors = CardDefaults.cardColors(containerColor = NdomogColors.DarkSecondary),
+                            shape = RoundedCornerShape(8.dp)
+                        ) {
+                            Column(modifier = Modifier.padding(12.dp)) {
+                                Text(item.name, color = NdomogColors.TextLight, maxLines = 1, overflow = TextOverflow.Ellipsis)
+                                Text(
+                                    "${item.category} · on record ${item.quantity}",
+                                    color = NdomogColors.TextMuted,
+                                    style = MaterialTheme.typography.bodySmall
+                                )
+                            }
+                        }
+                    }
+                } else if (uiState.lines.isEmpty()) {
+                    item {
+                        Text(
+                            "Scan labels or search for items to start counting. Counts stay on this device until you commit them.",
+                            color = NdomogColors.TextMuted,
+                            modifier = Modifier.padding(vertical = 24.dp)
+                        )
+                    }
+                } else {
+                    items(uiState.lines, key = { it.itemId }) { line ->
+                        StockTakeLineCard(
+                            line = line,
+                            enabled = !uiState.isLocked,
+                            onClick = { countEntry = Triple(line.itemId, line.name, line.counted) },
+                            onAdd = { viewModel.addUnits(line.itemId, 1) },
+                            onRemove = { viewModel.addUnits(line.itemId, -1) },
+                            onDelete = { viewModel.removeLine(line.itemId) }
+                        )
+                    }
+                }
+            }
+
+            Spacer(modifier = Modifier.height(12.dp))
+
+            Row(horizontalArrangement = Arrangement.spacedBy(12.dp)) {
+                OutlinedButton(
+                    onClick = { showDiscardDialog = true },
+                    modifier = Modifier
+                        .weight(1f)
+                        .height(48.dp),
+                    border = BorderStroke(1.dp, NdomogColors.DarkBorder),
+                    shape = RoundedCornerShape(8.dp),
+                    enabled = uiState.hasSession && !uiState.isCommitting
+                ) {
+                    Text("Discard", color = NdomogColors.TextMuted)
+                }
+                Button(
+                    onClick = viewModel::commit,
+                    modifier = Modifier
+                        .weight(1f)
+                        .height(48.dp),
+                    colors = ButtonDefaults.buttonColors(containerColor = NdomogColors.Primary),
+                    shape = RoundedCornerShape(8.dp),
+                    enabled = uiState.lines.isNotEmpty() && !uiState.isCommitting
+                ) {
+                    if (uiState.isCommitting) {
+                        CircularProgressIndicator(
+                            modifier = Modifier.size(18.dp),
+                            color = NdomogColors.TextOnPrimary,
+                            strokeWidth = 2.dp
+                        )
+                    } else {
+                        Text(if (uiState.isSubmitted) "Retry commit" else "Commit count", color = NdomogColors.TextOnPrimary, fontWeight = FontWeight.SemiBold)
+                    }
+                }
+            }
+        }
+    }
+
+    if (showScanner) {
+        BarcodeScannerDialog(
+            onBarcode = viewModel::onBarcode,
+            onDismiss = { showScanner = false },
+            continuous = true,
+            status = uiState.scanStatus
+        )
+    }
+
+    countEntry?.let { (itemId, name, counted) ->
+        CountEntryDialog(
+            itemName = name,
+            initialCount = counted,
+            onDismiss = { countEntry = null },
+            onConfirm = { count ->
+                viewModel.setCount(itemId, count)
+                countEntry = null
+            }
+        )
+    }
+
+    if (showDiscardDialog) {
+        AlertDialog(
+            onDismissRequest = { showDiscardDialog = false },
+            containerColor = NdomogColors.DarkCard,
+            title = { Text("Discard Stock Take", color = NdomogColors.TextLight) },
+            text = {
+                Text(
+                    "All ${uiState.lines.size} counted items will be lost. Inventory quantities are not changed.",
+                    color = NdomogColors.TextMuted
+                )
+            },
+            confirmButton = {
+                TextButton(onClick = {
+                    viewModel.discard()
+                    showDiscardDialog = false
+                }) {
+                    Text("Discard", color = NdomogColors.Error)
+                }
+            },
+            dismissButton = {
+                TextButton(onClick = { showDiscardDialog = false }) {
+                    Text("Cancel", color = NdomogColors.TextMuted)
+                }
+            }
+        )
+    }
+}
+
+@Composable
+private fun StockTakeSummaryCard(uiState: StockTakeUiState) {
+    Card(
+        modifier = Modifier.fillMaxWidth(),
+        colors = CardDefaults.cardColors(containerColor = NdomogColors.DarkCard),
+        border = BorderStroke(1.dp, NdomogColors.DarkBorder),
+        shape = RoundedCornerShape(12.dp)
+    ) {
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .padding(16.dp),
+            horizontalArrangement = Arrangement.SpaceBetween
+        ) {
+            SummaryFigure("Items", uiState.lines.size.toString())
+            SummaryFigure("Units", uiState.unitsCounted.toString())
+            SummaryFigure("Variances", uiState.varianceLines.toString())
+            SummaryFigure("Net", formatVariance(uiState.netVariance))
+        }
+    }
+}
+
+@Composable
+private fun SummaryFigure(label: String, value: String) {
+    Column(horizontalAlignment = Alignment.CenterHorizontally) {
+        Text(
+            value,
+            color = NdomogColors.TextLight,
+            style = MaterialTheme.typography.titleLarge.copy(fontWeight = FontWeight.Bold)
+        )
+        Text(label, color = NdomogColors.TextMuted, style = MaterialTheme.typography.bodySmall)
+    }
+}
+
+@Composable
+private fun StockTakeLineCard(
+    line: StockTakeVariance,
+    enabled: Boolean,
+    onClick: () -> Unit,
+    onAdd: () -> Unit,
+    onRemove: () -> Unit,
+    onDelete: () -> Unit
+) {
+    val varianceColor = when {
+        line.variance > 0 -> NdomogColors.Success
+        line.variance < 0 -> NdomogColors.Error
+        else -> NdomogColors.TextMuted
+    }
+    Card(
+        modifier = Modifier
+            .fillMaxWidth()
+            .clickable(enabled = enabled, onClick = onClick),
+        colors = CardDefaults.cardColors(containerColor = NdomogColors.DarkCard),
+        border = BorderStroke(1.dp, NdomogColors.DarkBorder),
+        shape = RoundedCornerShape(8.dp)
+    ) {
+        Row(
+            modifier = Modifier.padding(start = 12.dp, top = 8.dp, bottom = 8.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+            Column(modifier = Modifier.weight(1f)) {
+                Text(line.name, color = NdomogColors.TextLight, maxLines = 1, overflow = TextOverflow.Ellipsis)
+                Text(
+                    "On record ${line.expected} · counted ${line.counted}",
+                    color = NdomogColors.TextMuted,
+                    style = MaterialTheme.typography.bodySmall
+                )
+            }
+            Text(
+                formatVariance(line.variance),
+                color = varianceColor,
+                fontWeight = FontWeight.Bold,
+                modifier = Modifier.padding(horizontal = 8.dp)
+            )
+            IconButton(onClick = onRemove, modifier = Modifier.size(36.dp), enabled = enabled) {
+                Icon(Icons.Filled.Remove, contentDescription = "Count one less", tint = NdomogColors.TextLight)
+            }
+            IconButton(onClick = onAdd, modifier = Modifier.size(36.dp), enabled = enabled) {
+                Icon(Icons.Filled.Add, contentDescription = "Count one more", tint = NdomogColors.TextLight)
+            }
+            IconButton(onClick = onDelete, modifier = Modifier.size(36.dp), enabled = enabled) {
+                Icon(Icons.Filled.Close, contentDescription = "Remove from count", tint = NdomogColors.TextMuted)
+            }
+        }
+    }
+}
+
+@Composable
+private fun CountEntryDialog(
+    itemName: String,
+    initialCount: Int,
+    onDismiss: () -> Unit,
+    onConfirm: (Int) -> Unit
+) {
+    var text by remember { mutableStateOf(if (initialCount > 0) initialCount.toString() else "") }
+    val count = text.toIntOrNull()
+
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        containerColor = NdomogColors.DarkCard,
+        title = { Text("Counted Units", color = NdomogColors.TextLight) },
+        text = {
+            Column {
+                Text(
+                    itemName,
+                    color = NdomogColors.TextMuted,
+                    modifier = Modifier.padding(bottom = 12.dp)
+                )
+                OutlinedTextField(
+                    value = text,
+                    onValueChange = { value -> text = value.filter(Char::isDigit).take(6) },
+                    keyboardOptions = KeyboardOptions(keyboardType = KeyboardType.Number),
+                    colors = OutlinedTextFieldDefaults.colors(
+                        unfocusedBorderColor = NdomogColors.DarkBorder,
+                        focusedBorderColor = NdomogColors.Primary,
+                        unfocusedTextColor = NdomogColors.TextLight,
+                        focusedTextColor = NdomogColors.TextLight,
+                        cursorColor = NdomogColors.Primary
+                    ),
+                    shape = RoundedCornerShape(8.dp),
+                    singleLine = true
+                )
+            }
+        },
+        confirmButton = {
+            TextButton(onClick = { count?.let(onConfirm) }, enabled = count != null) {
+                Text("Save", color = NdomogColors.Primary)
+            }
+        },
+        dismissButton = {
+            TextButton(onClick = onDismiss) {
+                Text("Cancel", color = NdomogColors.TextMuted)
+            }
+        }
+    )
+}
+
+private fun formatVariance(variance: Int): String = if (variance > 0) "+$variance" else variance.toString()
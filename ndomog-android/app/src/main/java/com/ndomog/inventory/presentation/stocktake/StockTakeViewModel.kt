@@ -0,0 +1,203 @@
+package com.ndomog.inventory.presentation.stocktake
+
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import com.ndomog.inventory.data.local.InventoryQuery
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.StockTakeVariance
+import com.ndomog.inventory.data.repository.ItemRepository
+import com.ndomog.inventory.data.repository.ItemSearchIndex
+import com.ndomog.inventory.data.repository.StockTakeRepository
+import com.ndomog.inventory.data.repository.StockTakeSummary
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+
+/**
+ * The stock take on screen. [lines] are the counted items, largest variance
+ * first; the totals are derived from them.
+ */
+data class StockTakeUiState(
+    val hasSession: Boolean = false,
+    val lines: List<StockTakeVariance> = emptyList(),
+    val isCommitting: Boolean = false,
+    // Sent by a commit that failed; only a retry or discard applies until it goes through
+    val isSubmitted: Boolean = false,
+    // Result of the last scan, shown over the camera preview
+    val scanStatus: String? = null,
+    val committed: StockTakeSummary? = null,
+    val error: String? = null
+) {
+    val unitsCounted: Int get() = lines.sumOf { it.counted }
+    val varianceLines: Int get() = lines.count { it.variance != 0 }
+    val netVariance: Int get() = lines.sumOf { it.variance }
+
+    // Counts on screen are being or have been sent, so they cannot change
+    val isLocked: Boolean get() = isCommitting || isSubmitted
+}
+
+class StockTakeViewModel(
+    private val stockTakeRepository: StockTakeRepository,
+    private val itemRepository: ItemRepository
+) : ViewModel() {
+
+    companion object {
+        // Items offered for a typed search; counting works one item at a time
+        const val SEARCH_LIMIT = 20
+
+        private const val SEARCH_DEBOUNCE_MS = 250L
+    }
+
+    private val _uiState = MutableStateFlow(StockTakeUiState())
+    val uiState: StateFlow<StockTakeUiState> = _uiState.asStateFlow()
+
+    private val _searchQuery = MutableStateFlow("")
+    val searchQuery: StateFlow<String> = _searchQuery.asStateFlow()
+
+    private val _searchResults = MutableStateFlow<List<Item>>(emptyList())
+    val searchResults: StateFlow<List<Item>> = _searchResults.asStateFlow()
+
+    init {
+        observeLines()
+        observeSearch()
+    }
+
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private fun observeLines() {
+        viewModelScope.launch {
+            stockTakeRepository.observeSession()
+                .flatMapLatest { session ->
+                    if (session == null) {
+                        flowOf(null)
+                    } else {
+                        stockTakeRepository.observeVariances(session.id).map { session to it }
+                    }
+                }
+                .collect { shown ->
+                    _uiState.update {
+                        it.copy(
+                            hasSession = shown != null,
+                            isSubmitted = shown?.first?.isSubmitted == true,
+                            lines = shown?.second.orEmpty()
+                        )
+                    }
+                }
+        }
+    }
+
+    @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+    private fun observeSearch() {
+        viewModelScope.launch {
+            _searchQuery
+                .debounce { if (it.isBlank()) 0L else SEARCH_DEBOUNCE_MS }
+                .flatMapLatest { query ->
+                    val text = query.trim()
+                    when {
+                        text.isEmpty() -> flowOf(emptyList())
+                        ItemSearchIndex.canSearch(text) ->
+                            itemRepository.searchItems(text, emptySet()).map { it.take(SEARCH_LIMIT) }
+                        else -> itemRepository.observeItems(InventoryQuery(text = text, limit = SEARCH_LIMIT))
+                    }
+                }
+                .collect { _searchResults.value = it }
+        }
+    }
+
+    fun setSearchQuery(query: String) {
+        _searchQuery.value = query
+    }
+
+    fun onBarcode(barcode: String) {
+        if (_uiState.value.isLocked) return
+        viewModelScope.launch {
+            try {
+                val scan = stockTakeRepository.countBarcode(barcode)
+                val status = if (scan == null) {
+                    "No item has barcode $barcode"
+                } else {
+                    "${scan.item.name}: ${scan.counted}"
+                }
+                _uiState.update { it.copy(scanStatus = status, committed = null) }
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to count barcode")
+            }
+        }
+    }
+
+    fun addUnits(itemId: String, units: Int) {
+        if (_uiState.value.isLocked) return
+        viewModelScope.launch {
+            try {
+                stockTakeRepository.addUnits(itemId, units)
+                _uiState.update { it.copy(committed = null) }
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to update count")
+            }
+        }
+    }
+
+    fun setCount(itemId: String, counted: Int) {
+        if (_uiState.value.isLocked) return
+        viewModelScope.launch {
+            try {
+                stockTakeRepository.setCount(itemId, counted)
+                _uiState.update { it.copy(committed = null) }
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to update count")
+            }
+        }
+    }
+
+    fun removeLine(itemId: String) {
+        if (_uiState.value.isLocked) return
+        viewModelScope.launch {
+            try {
+                stockTakeRepository.removeLine(itemId)
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to remove count")
+            }
+        }
+    }
+
+    fun discard() {
+        viewModelScope.launch {
+            try {
+                stockTakeRepository.discard()
+                _uiState.update { it.copy(scanStatus = null) }
+            } catch (e: Exception) {
+                setError(e.message ?: "Failed to discard stock take")
+            }
+        }
+    }
+
+    fun commit() {
+        if (_uiState.value.isCommitting) return
+        viewModelScope.launch {
+            _uiState.update { it.copy(isCommitting = true, error = null) }
+            stockTakeRepository.commit()
+                .onSuccess { summary ->
+                    _uiState.update { it.copy(committed = summary, scanStatus = null) }
+                }
+                .onFailure { e ->
+                    setError(e.message ?: "Failed to commit stock take")
+                }
+            _uiState.update { it.copy(isCommitting = false) }
+        }
+    }
+
+    fun clearError() {
+        setError(null)
+    }
+
+    private fun setError(message: String?) {
+        _uiState.update { it.copy(error = message) }
+    }
+}
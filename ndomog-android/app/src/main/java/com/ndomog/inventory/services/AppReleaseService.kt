@@ -1,8 +1,13 @@
 package com.ndomog.inventory.services
 
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
 import io.github.jan.supabase.postgrest.from
+import io.github.jan.supabase.postgrest.query.Order
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
 import kotlinx.serialization.SerialName
 import kotlinx.serialization.Serializable
@@ -18,6 +23,11 @@ class AppReleaseService(private val coroutineScope: CoroutineScope) {
     companion object {
         const val CURRENT_VERSION = "1.0.0"
         const val CURRENT_VERSION_CODE = 1
+
+        private val _availableRelease = MutableStateFlow<AppRelease?>(null)
+
+        /** Newer release found by any check, including the one run after startup. */
+        val availableRelease: StateFlow<AppRelease?> = _availableRelease.asStateFlow()
     }
 
     /**
@@ -34,20 +44,23 @@ class AppReleaseService(private val coroutineScope: CoroutineScope) {
     ) {
         coroutineScope.launch {
             try {
-                // Query the latest release from database
-                val releases = supabase.from("app_releases")
-                    .select()
+                // Query only the latest release; ordering and limit run on the server
+                val latestRelease = supabase.from("app_releases")
+                    .select(RemoteColumns.APP_RELEASE) {
+                        order("version_code", Order.DESCENDING)
+                        limit(1)
+                    }
                     .decodeList<AppRelease>()
+                    .firstOrNull()
 
-                if (releases.isEmpty()) {
+                if (latestRelease == null) {
                     onError("No releases found")
                     return@launch
                 }
 
-                val latestRelease = releases.maxByOrNull { it.versionCode } ?: return@launch
-
                 // Check if newer version exists
                 if (isVersionNewer(latestRelease.versionCode, CURRENT_VERSION_CODE)) {
+                    _availableRelease.value = latestRelease
                     onUpdateAvailable(latestRelease)
                 } else {
                     onUpToDate()
@@ -65,9 +78,10 @@ class AppReleaseService(private val coroutineScope: CoroutineScope) {
     suspend fun getAllReleases(): Result<List<AppRelease>> {
         return try {
             val releases = supabase.from("app_releases")
-                .select()
+                .select(RemoteColumns.APP_RELEASE) {
+                    order("version_code", Order.DESCENDING)
+                }
                 .decodeList<AppRelease>()
-                .sortedByDescending { it.versionCode }
             Result.success(releases)
         } catch (e: Exception) {
             Timber.e(e, "Failed to fetch releases")
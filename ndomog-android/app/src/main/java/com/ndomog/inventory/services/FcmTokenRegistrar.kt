@@ -0,0 +1,52 @@
+package com.ndomog.inventory.services
+
+import android.content.Context
+import com.google.firebase.messaging.FirebaseMessaging
+import com.ndomog.inventory.data.remote.SupabaseClient
+import io.github.jan.supabase.gotrue.auth
+import io.github.jan.supabase.postgrest.from
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import timber.log.Timber
+
+/**
+ * Registers this device's FCM token for the signed-in user, flushing any token
+ * that arrived while signed out.
+ */
+class FcmTokenRegistrar(
+    private val context: Context,
+    private val scope: CoroutineScope
+) {
+    fun registerIfSignedIn() {
+        val user = SupabaseClient.client.auth.currentUserOrNull() ?: return
+        val prefs = context.getSharedPreferences("ndomog_prefs", Context.MODE_PRIVATE)
+        val pending = prefs.getString("pending_fcm_token", null)
+        if (!pending.isNullOrBlank()) {
+            scope.launch(Dispatchers.IO) {
+                try {
+                    upsertToken(user.id, pending)
+                    prefs.edit().remove("pending_fcm_token").apply()
+                } catch (e: Exception) {
+                    Timber.w(e, "Failed to register pending FCM token")
+                }
+            }
+        }
+
+        FirebaseMessaging.getInstance().token.addOnSuccessListener { token ->
+            scope.launch(Dispatchers.IO) {
+                try {
+                    upsertToken(user.id, token)
+                } catch (e: Exception) {
+                    Timber.w(e, "Failed to register FCM token")
+                }
+            }
+        }
+    }
+
+    private suspend fun upsertToken(userId: String, token: String) {
+        SupabaseClient.client.from("push_subscriptions").upsert(
+            listOf(mapOf("user_id" to userId, "token" to token, "platform" to "android"))
+        )
+    }
+}
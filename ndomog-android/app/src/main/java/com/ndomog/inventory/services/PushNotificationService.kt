@@ -1,10 +1,14 @@
 package com.ndomog.inventory.services
 
 import com.ndomog.inventory.data.models.ActivityLog
+import com.ndomog.inventory.data.remote.RemoteColumns
 import com.ndomog.inventory.data.remote.SupabaseClient
+import com.ndomog.inventory.data.remote.selectAllPaged
 import io.github.jan.supabase.postgrest.from
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.launch
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
 import timber.log.Timber
 
 /**
@@ -30,12 +34,10 @@ class PushNotificationService(private val coroutineScope: CoroutineScope) {
         coroutineScope.launch {
             try {
                 // Query all other users' FCM tokens
-                val tokens = supabase.from("push_subscriptions")
-                    .select()
-                    .decodeList<PushSubscriptionToken>()
-
-                // Filter out current user and get their tokens
-                val recipientTokens = tokens.filter { it.userId != currentUserId }
+                val recipientTokens = supabase.from("push_subscriptions")
+                    .selectAllPaged<PushSubscriptionToken>(RemoteColumns.PUSH_SUBSCRIPTION, orderBy = "user_id", tieBreaker = "token") {
+                        neq("user_id", currentUserId)
+                    }
 
                 if (recipientTokens.isEmpty()) {
                     Timber.d("No recipient tokens found for notification")
@@ -99,10 +101,14 @@ class PushNotificationService(private val coroutineScope: CoroutineScope) {
 /**
  * Data class for FCM token subscriptions from database
  */
+@Serializable
 data class PushSubscriptionToken(
     val id: String = "",
+    @SerialName("user_id")
     val userId: String,
     val token: String,
+    @SerialName("created_at")
     val createdAt: String = "",
+    @SerialName("updated_at")
     val updatedAt: String = ""
 )
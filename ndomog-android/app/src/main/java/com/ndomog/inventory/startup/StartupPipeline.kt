@@ -0,0 +1,104 @@
+package com.ndomog.inventory.startup
+
+import android.app.Activity
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.view.ViewTreeObserver
+import androidx.core.os.trace
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Staged app initialisation.
+ *
+ * [Stage.APPLICATION] initializers run synchronously in `Application.onCreate` and
+ * should only contain what the first frame needs. [Stage.FIRST_DRAW] initializers
+ * run on a background dispatcher once the first activity has drawn a frame.
+ *
+ * Each initializer is wrapped in a `Startup:<name>` trace section and its duration
+ * is recorded in [timings].
+ */
+class StartupPipeline(private val scope: CoroutineScope) {
+
+    enum class Stage { APPLICATION, FIRST_DRAW }
+
+    private class Initializer(val name: String, val stage: Stage, val run: () -> Unit)
+
+    private val initializers = mutableListOf<Initializer>()
+    private val completedStages = mutableSetOf<Stage>()
+    private val timingsMs = ConcurrentHashMap<String, Long>()
+
+    /** Milliseconds spent in each initializer, by name. */
+    val timings: Map<String, Long> get() = timingsMs.toMap()
+
+    fun add(name: String, stage: Stage, run: () -> Unit): StartupPipeline {
+        initializers += Initializer(name, stage, run)
+        return this
+    }
+
+    /**
+     * Runs every initializer of [stage] once. Later calls for the same stage,
+     * e.g. from a recreated activity, are ignored.
+     */
+    fun runStage(stage: Stage) {
+        if (!completedStages.add(stage)) return
+        val stageInitializers = initializers.filter { it.stage == stage }
+
+        when (stage) {
+            Stage.APPLICATION -> {
+                stageInitializers.forEach { runTimed(it) }
+                logStage(stage)
+            }
+            Stage.FIRST_DRAW -> scope.launch(Dispatchers.IO) {
+                stageInitializers.forEach { runTimed(it) }
+                logStage(stage)
+            }
+        }
+    }
+
+    /**
+     * Runs the [Stage.FIRST_DRAW] initializers after [activity] draws its first frame.
+     */
+    fun runAfterFirstDraw(activity: Activity) {
+        if (Stage.FIRST_DRAW in completedStages) return
+        val decorView = activity.window.decorView
+        val handler = Handler(Looper.getMainLooper())
+        val listener = object : ViewTreeObserver.OnDrawListener {
+            private var fired = false
+
+            override fun onDraw() {
+                if (fired) return
+                fired = true
+                // Draw listeners cannot be removed while dispatching, and posting
+                // to the front of the queue runs before the next frame's work
+                handler.postAtFrontOfQueue {
+                    decorView.viewTreeObserver.removeOnDrawListener(this)
+                    runStage(Stage.FIRST_DRAW)
+                }
+            }
+        }
+        decorView.viewTreeObserver.addOnDrawListener(listener)
+    }
+
+    private fun runTimed(initializer: Initializer) {
+        val startedAt = SystemClock.elapsedRealtimeNanos()
+        try {
+            trace("Startup:${initializer.name}") { initializer.run() }
+        } catch (e: Exception) {
+            Timber.e(e, "Startup initializer ${initializer.name} failed")
+        }
+        val elapsedMs = (SystemClock.elapsedRealtimeNanos() - startedAt) / 1_000_000
+        timingsMs[initializer.name] = elapsedMs
+        Timber.d("Startup ${initializer.stage}: ${initializer.name} took ${elapsedMs}ms")
+    }
+
+    private fun logStage(stage: Stage) {
+        val names = initializers.filter { it.stage == stage }.map { it.name }
+        val total = names.sumOf { timingsMs[it] ?: 0L }
+        Timber.d("Startup stage $stage finished in ${total}ms")
+    }
+}
@@ -0,0 +1,74 @@
+package com.ndomog.inventory.utils
+
+import android.content.Context
+import androidx.room.withTransaction
+import com.ndomog.inventory.BuildConfig
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.Item
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import timber.log.Timber
+import java.util.UUID
+
+/**
+ * Synthetic inventory for the `:benchmark` module. Everything here is a no-op
+ * unless the build was made with `BENCHMARK_SEEDING` (benchmark variants only).
+ *
+ * Seeding also switches the app into benchmark mode: it opens straight to the
+ * dashboard and never refreshes from Supabase, so seeded rows stay in place.
+ */
+object BenchmarkSeeder {
+    const val EXTRA_SEED_ITEMS = "seed_items"
+
+    private const val PREFS_NAME = "ndomog_benchmark"
+    private const val KEY_BENCHMARK_MODE = "benchmark_mode"
+    private const val BATCH_SIZE = 500
+
+    private val categories = listOf("FILTERS", "INJECTORS", "PUMPS", "VALVES", "SEALS", "BEARINGS", "NOZZLES", "GASKETS")
+
+    fun isBenchmarkMode(context: Context): Boolean {
+        if (!BuildConfig.BENCHMARK_SEEDING) return false
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+            .getBoolean(KEY_BENCHMARK_MODE, false)
+    }
+
+    fun enableBenchmarkMode(context: Context) {
+        if (!BuildConfig.BENCHMARK_SEEDING) return
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+            .edit()
+            .putBoolean(KEY_BENCHMARK_MODE, true)
+            .commit()
+    }
+
+    suspend fun seed(database: NdomogDatabase, count: Int) = withContext(Dispatchers.IO) {
+        if (!BuildConfig.BENCHMARK_SEEDING) return@withContext
+        val itemDao = database.itemDao()
+        if (itemDao.countItems() == count) return@withContext
+
+        // One transaction, so observers see the whole list in a single emission
+        database.withTransaction {
+            itemDao.deleteAll()
+            (0 until count).chunked(BATCH_SIZE).forEach { range ->
+                itemDao.insertItems(range.map { syntheticItem(it) })
+            }
+        }
+        Timber.d("Seeded $count benchmark items")
+    }
+
+    private fun syntheticItem(index: Int): Item {
+        val category = categories[index % categories.size]
+        val buyingPrice = 100.0 + (index % 97) * 25
+        return Item(
+            id = UUID.nameUUIDFromBytes("benchmark-item-$index".toByteArray()).toString(),
+            name = "$category part $index",
+            category = category,
+            details = "Synthetic benchmark item $index, ${category.lowercase()} filter ${index % 50}",
+            buyingPrice = buyingPrice,
+            sellingPrice = buyingPrice * 1.3,
+            quantity = index % 40,
+            lowStockThreshold = 5,
+            createdAt = "2026-01-01T00:00:00.000Z",
+            updatedAt = "2026-01-01T00:00:00.000Z"
+        )
+    }
+}
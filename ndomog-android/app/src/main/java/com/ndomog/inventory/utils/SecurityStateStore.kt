@@ -0,0 +1,93 @@
+package com.ndomog.inventory.utils
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.launch
+
+data class SecurityState(
+    val isPinEnabled: Boolean = false,
+    val pinHash: String? = null,
+    val isBiometricEnabled: Boolean = false
+)
+
+data class ThemeState(
+    val isDarkMode: Boolean = true,
+    val isHighContrast: Boolean = false,
+    val textSize: Float = 1f
+)
+
+/**
+ * Process-wide copy of the PIN, biometric and theme preferences.
+ *
+ * Preferences are read once on [scope] and then kept in step with [PinPreferences]
+ * and [ThemePreferences], so lock and unlock decisions only look at memory.
+ * Writes still go through the preference classes; the change flows back here.
+ */
+class SecurityStateStore(
+    pinPreferences: PinPreferences,
+    themePreferences: ThemePreferences,
+    scope: CoroutineScope
+) {
+    private val _security = MutableStateFlow(SecurityState())
+    val security: StateFlow<SecurityState> = _security.asStateFlow()
+
+    private val _theme = MutableStateFlow(ThemeState())
+    val theme: StateFlow<ThemeState> = _theme.asStateFlow()
+
+    private val _isLocked = MutableStateFlow(false)
+    val isLocked: StateFlow<Boolean> = _isLocked.asStateFlow()
+
+    // False until the PIN preferences have been read for the first time
+    private val _isLoaded = MutableStateFlow(false)
+    val isLoaded: StateFlow<Boolean> = _isLoaded.asStateFlow()
+
+    init {
+        scope.launch {
+            combine(
+                pinPreferences.isPinEnabled,
+                pinPreferences.pinHash,
+                pinPreferences.isBiometricEnabled,
+                ::SecurityState
+            ).collect { state ->
+                // Lock on cold start, and never stay locked once the PIN is turned off.
+                // The lock is decided before isLoaded flips so content never flashes.
+                if (!_isLoaded.value) {
+                    _isLocked.value = state.isPinEnabled
+                } else if (!state.isPinEnabled) {
+                    _isLocked.value = false
+                }
+                _security.value = state
+                _isLoaded.value = true
+            }
+        }
+        scope.launch {
+            combine(
+                themePreferences.isDarkMode,
+                themePreferences.isHighContrast,
+                themePreferences.textSize,
+                ::ThemeState
+            ).collect { _theme.value = it }
+        }
+    }
+
+    /** Called when the app goes to the background. */
+    fun onBackgrounded() {
+        if (_security.value.isPinEnabled) {
+            _isLocked.value = true
+        }
+    }
+
+    /** Unlocks the app if [pin] matches the stored PIN. */
+    fun verifyPin(pin: String): Boolean {
+        val matches = pin == _security.value.pinHash
+        if (matches) unlock()
+        return matches
+    }
+
+    fun unlock() {
+        _isLocked.value = false
+    }
+}
@@ -0,0 +1,80 @@
+package com.ndomog.inventory.data.local
+
+import com.ndomog.inventory.data.repository.TestData
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class InventoryQueryTest {
+    private lateinit var database: NdomogDatabase
+    private val items = TestData.items(1_000)
+
+    @Before
+    fun setUp() = runBlocking {
+        database = TestData.inMemoryDatabase()
+        database.itemDao().insertItems(items)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun categorySetAndStockLevelCombine() = runBlocking {
+        val query = InventoryQuery(categories = setOf("CATEGORY 1", "CATEGORY 4"), stock = StockLevel.LOW_STOCK)
+
+        val expected = items
+            .filter { it.category in query.categories && it.quantity <= it.lowStockThreshold }
+            .map { it.id }
+            .toSet()
+        val result = database.itemDao().observeItems(query).first()
+
+        assertEquals(expected, result.map { it.id }.toSet())
+        assertEquals(expected.size, database.itemDao().observeCount(query).first())
+    }
+
+    @Test
+    fun textIsMatchedLiterallyIgnoringCase() = runBlocking {
+        val dao = database.itemDao()
+
+        assertEquals(items.count { it.name.startsWith("Part 12") }, dao.observeCount(InventoryQuery(text = "part 12")).first())
+        // LIKE wildcards in the search text must not act as wildcards
+        assertEquals(0, dao.observeCount(InventoryQuery(text = "Part 1_")).first())
+        assertEquals(0, dao.observeCount(InventoryQuery(text = "%")).first())
+    }
+
+    @Test
+    fun marginAndPriceBoundsUseSellingPrice() = runBlocking {
+        val query = InventoryQuery(minPrice = 150.0, maxPrice = 200.0, minMarginPercent = 20.0)
+
+        val expected = items.count {
+            it.sellingPrice in 150.0..200.0 &&
+                (it.sellingPrice - it.buyingPrice) * 100.0 / it.sellingPrice >= 20.0
+        }
+
+        assertEquals(expected, database.itemDao().observeCount(query).first())
+    }
+
+    @Test
+    fun valueSortIsLimitedButCountIsNot() = runBlocking {
+        val query = InventoryQuery(sort = InventorySort.VALUE, descending = true, limit = 25)
+
+        val result = database.itemDao().observeItems(query).first()
+        val values = result.map { it.buyingPrice * it.quantity }
+
+        assertEquals(25, result.size)
+        assertEquals(items.maxOf { it.buyingPrice * it.quantity }, values.first(), 0.0)
+        assertTrue(values.zipWithNext().all { (a, b) -> a >= b })
+        assertEquals(items.size, database.itemDao().observeCount(query).first())
+    }
+}
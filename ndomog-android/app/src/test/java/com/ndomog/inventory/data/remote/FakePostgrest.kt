@@ -0,0 +1,460 @@
+package com.ndomog.inventory.data.remote
+
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemDigestRow
+import com.ndomog.inventory.data.repository.CatalogDigest
+import com.ndomog.inventory.media.StorageUploader
+import io.github.jan.supabase.createSupabaseClient
+import io.github.jan.supabase.postgrest.Postgrest
+import io.github.jan.supabase.serializer.KotlinXSerializer
+import io.github.jan.supabase.storage.Storage
+import io.ktor.client.HttpClient
+import io.ktor.client.engine.mock.MockEngine
+import io.ktor.client.engine.mock.MockRequestHandleScope
+import io.ktor.client.engine.mock.respond
+import io.ktor.client.engine.mock.toByteArray
+import io.ktor.client.request.HttpRequestData
+import io.ktor.client.request.HttpResponseData
+import io.ktor.http.HttpHeaders
+import io.ktor.http.HttpMethod
+import io.ktor.http.HttpStatusCode
+import io.ktor.http.headersOf
+import kotlinx.coroutines.delay
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonArray
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.JsonNull
+import kotlinx.serialization.json.JsonObject
+import kotlinx.serialization.json.JsonPrimitive
+import kotlinx.serialization.json.decodeFromJsonElement
+import kotlinx.serialization.json.encodeToJsonElement
+import kotlinx.serialization.json.int
+import kotlinx.serialization.json.jsonArray
+import kotlinx.serialization.json.jsonObject
+import kotlinx.serialization.json.jsonPrimitive
+import kotlinx.serialization.json.longOrNull
+import java.io.ByteArrayOutputStream
+import java.time.Instant
+import java.util.Base64
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.random.Random
+
+/**
+ * Simulated network conditions applied to every fake request.
+ */
+data class FakeNetwork(
+    val latencyMs: Long = 0,
+    // Zero means unlimited
+    val bandwidthBytesPerSecond: Long = 0,
+    // Probability that a request fails with 503
+    val failureRate: Double = 0.0,
+    val seed: Long = 42
+)
+
+/**
+ * In-memory stand-in for the PostgREST endpoints used by the app, served through
+ * a Ktor [MockEngine].
+ *
+ * Supports select projections, `eq`/`neq`/`gt`/`gte`/`lt`/`lte`/`is`/`in` filters,
+ * `order`, `offset`/`limit`, inserts, upserts, patches, deletes, the
+ * `inventory_digest` and `commit_stock_take` RPCs and the `barcode-lookup`
+ * edge function. Items get `updated_at` stamped on every write, and on
+ * every write to their photos, like the triggers on the real tables.
+ *
+ * Storage serves object uploads and existence checks, and TUS resumable
+ * uploads with create, offset check and append.
+ */
+class FakePostgrest(var network: FakeNetwork = FakeNetwork()) {
+    companion object {
+        const val URL = "https://fake.supabase.co"
+        const val KEY = "fake-anon-key"
+        val TABLES = listOf("items", "categories", "profiles", "notifications", "activity_logs", "item_photos")
+
+        private val json = Json { ignoreUnknownKeys = true; encodeDefaults = true }
+    }
+
+    private val tables: Map<String, MutableList<JsonObject>> = TABLES.associateWith { mutableListOf() }
+    private val random = Random(network.seed)
+    private val failNext = AtomicInteger()
+    private val lastMillis = AtomicLong()
+    private val committedStockTakes = mutableMapOf<String, JsonArray>()
+    private val tusUploads = ConcurrentHashMap<String, TusUpload>()
+
+    private class TusUpload(val key: String, val length: Long) {
+        val data = ByteArrayOutputStream()
+    }
+
+    // Stored objects by "<bucket>/<path>"
+    val storageObjects = ConcurrentHashMap<String, ByteArray>()
+
+    // Object bytes accepted by Storage, over either upload endpoint
+    val storageBytesReceived = AtomicLong()
+
+    // Products the barcode-lookup function knows, by barcode
+    val barcodeProducts = ConcurrentHashMap<String, BarcodeProduct>()
+
+    val requestCount = AtomicInteger()
+    val responseBytes = AtomicLong()
+
+    // Runs before each request is served, e.g. to change local state mid-call
+    var onRequest: (suspend (HttpRequestData) -> Unit)? = null
+
+    val engine = MockEngine { request -> handle(request) }
+
+    /**
+     * A [RemoteDataSource] wired to this fake, exactly as production wires Supabase.
+     */
+    fun createRemoteDataSource(): SupabaseRemoteDataSource =
+        SupabaseRemoteDataSource(createSupabaseClient(), HttpClient(engine), URL, KEY)
+
+    fun createStorageUploader(): StorageUploader =
+        StorageUploader(createSupabaseClient(), HttpClient(engine), URL, KEY)
+
+    fun createSupabaseClient() = createSupabaseClient(URL, KEY) {
+        httpEngine = engine
+        defaultSerializer = KotlinXSerializer(json = Json { ignoreUnknownKeys = true })
+        install(Postgrest)
+        install(Storage)
+    }
+
+    fun failNextRequests(count: Int) {
+        failNext.set(count)
+    }
+
+    fun resetCounters() {
+        requestCount.set(0)
+        responseBytes.set(0)
+    }
+
+    fun seedItems(items: List<Item>) = synchronized(tables) {
+        val rows = tables.getValue("items")
+        items.forEach { rows += json.encodeToJsonElement(it).jsonObject }
+    }
+
+    fun items(): List<Item> = synchronized(tables) {
+        tables.getValue("items").map { json.decodeFromJsonElement<Item>(it) }
+    }
+
+    fun rows(table: String): List<JsonObject> = synchronized(tables) { tables.getValue(table).toList() }
+
+    /**
+     * Server-side edit of existing items, e.g. by another device.
+     */
+    fun updateItems(ids: Set<String>, change: (Item) -> Item) = synchronized(tables) {
+        val rows = tables.getValue("items")
+        rows.replaceAll { row ->
+            val item = json.decodeFromJsonElement<Item>(row)
+            if (item.id in ids) {
+                json.encodeToJsonElement(change(item).copy(updatedAt = nextTimestamp())).jsonObject
+            } else {
+                row
+            }
+        }
+    }
+
+    private suspend fun MockRequestHandleScope.handle(request: HttpRequestData): HttpResponseData {
+        requestCount.incrementAndGet()
+        onRequest?.invoke(request)
+        if (network.latencyMs > 0) delay(network.latencyMs)
+
+        if (failNext.getAndUpdate { if (it > 0) it - 1 else 0 } > 0 || random.nextDouble() < network.failureRate) {
+            return respondJson("""{"message":"injected failure"}""", HttpStatusCode.ServiceUnavailable)
+        }
+
+        if (request.url.encodedPath == "/functions/v1/barcode-lookup") {
+            val barcode = (parseBody(request) as JsonObject).getValue("barcode").jsonPrimitive.content
+            val product = barcodeProducts[barcode]
+            return respondJson(json.encodeToString(BarcodeLookupResponse.serializer(), BarcodeLookupResponse(product != null, product)))
+        }
+
+        if (request.url.encodedPath.startsWith("/storage/v1/")) {
+            return storage(request.url.encodedPath.removePrefix("/storage/v1/"), request)
+        }
+
+        val path = request.url.encodedPath.removePrefix("/rest/v1/")
+        if (path == "rpc/inventory_digest") {
+            val params = parseBody(request) as? JsonObject
+            val bucketCount = params?.get("bucket_count")?.jsonPrimitive?.int ?: CatalogDigest.BUCKET_COUNT
+            return respondJson(json.encodeToString(JsonArray.serializer(), inventoryDigest(bucketCount)))
+        }
+        if (path == "rpc/commit_stock_take") {
+            return respondJson(commitStockTake(parseBody(request) as JsonObject).toString())
+        }
+
+        val table = path.substringBefore('/')
+        if (table !in tables) {
+            return respondJson("""{"message":"relation \"$table\" does not exist"}""", HttpStatusCode.NotFound)
+        }
+        val prefer = request.headers["Prefer"].orEmpty()
+        val wantsRows = prefer.contains("return=representation")
+
+        return when (request.method) {
+            HttpMethod.Get -> respondJson(JsonArray(select(table, request)).toString())
+            HttpMethod.Post -> {
+                val inserted = insert(table, parseBody(request), upsert = prefer.contains("resolution=merge-duplicates"))
+                if (wantsRows) respondJson(JsonArray(inserted).toString(), HttpStatusCode.Created)
+                else respondJson("", HttpStatusCode.Created)
+            }
+            HttpMethod.Patch -> {
+                val updated = update(table, request, parseBody(request) as JsonObject)
+                if (wantsRows) respondJson(JsonArray(updated).toString()) else respondJson("", HttpStatusCode.NoContent)
+            }
+            HttpMethod.Delete -> {
+                val deleted = delete(table, request)
+                if (wantsRows) respondJson(JsonArray(deleted).toString()) else respondJson("", HttpStatusCode.NoContent)
+            }
+            else -> respondJson("", HttpStatusCode.MethodNotAllowed)
+        }
+    }
+
+    private suspend fun MockRequestHandleScope.respondJson(
+        body: String,
+        status: HttpStatusCode = HttpStatusCode.OK
+    ): HttpResponseData {
+        val bytes = body.toByteArray()
+        responseBytes.addAndGet(bytes.size.toLong())
+        if (network.bandwidthBytesPerSecond > 0) {
+            delay(bytes.size * 1000L / network.bandwidthBytesPerSecond)
+        }
+        return respond(bytes, status, headersOf(HttpHeaders.ContentType, "application/json"))
+    }
+
+    private suspend fun MockRequestHandleScope.storage(path: String, request: HttpRequestData): HttpResponseData {
+        if (path == "upload/resumable" && request.method == HttpMethod.Post) {
+            val metadata = request.headers["Upload-Metadata"].orEmpty().split(',').associate { entry ->
+                entry.substringBefore(' ') to Base64.getDecoder().decode(entry.substringAfter(' ')).decodeToString()
+            }
+            val id = UUID.randomUUID().toString()
+            tusUploads[id] = TusUpload(
+                "${metadata["bucketName"]}/${metadata["objectName"]}",
+                request.headers.getValue("Upload-Length").toLong()
+            )
+            return respondEmpty(HttpStatusCode.Created, HttpHeaders.Location to "$URL/storage/v1/upload/resumable/$id")
+        }
+        if (path.startsWith("upload/resumable/")) {
+            val upload = tusUploads[path.substringAfterLast('/')] ?: return respondEmpty(HttpStatusCode.NotFound)
+            return when (request.method) {
+                HttpMethod.Head -> respondEmpty(HttpStatusCode.OK, "Upload-Offset" to upload.data.size().toString())
+                HttpMethod.Patch -> {
+                    val bytes = request.body.toByteArray()
+                    synchronized(upload) {
+                        // TUS rejects a chunk that does not continue exactly where the upload stands
+                        if (request.headers["Upload-Offset"]?.toLong() != upload.data.size().toLong()) {
+                            return@synchronized null
+                        }
+                        upload.data.write(bytes)
+                        storageBytesReceived.addAndGet(bytes.size.toLong())
+                        if (upload.data.size().toLong() == upload.length) {
+                            storageObjects[upload.key] = upload.data.toByteArray()
+                        }
+                        upload.data.size()
+                    }?.let { offset -> respondEmpty(HttpStatusCode.NoContent, "Upload-Offset" to offset.toString()) }
+                        ?: respondEmpty(HttpStatusCode.Conflict)
+                }
+                else -> respondEmpty(HttpStatusCode.MethodNotAllowed)
+            }
+        }
+
+        val key = path.removePrefix("object/")
+        return when (request.method) {
+            HttpMethod.Head -> respondEmpty(if (key in storageObjects) HttpStatusCode.OK else HttpStatusCode.NotFound)
+            HttpMethod.Post -> {
+                if (key in storageObjects && request.headers["x-upsert"] != "true") {
+                    return respondJson("""{"message":"The resource already exists"}""", HttpStatusCode.Conflict)
+                }
+                val bytes = request.body.toByteArray()
+                storageObjects[key] = bytes
+                storageBytesReceived.addAndGet(bytes.size.toLong())
+                respondJson("""{"Key":"$key"}""")
+            }
+            else -> respondEmpty(HttpStatusCode.MethodNotAllowed)
+        }
+    }
+
+    private fun MockRequestHandleScope.respondEmpty(
+        status: HttpStatusCode,
+        vararg headers: Pair<String, String>
+    ): HttpResponseData = respond(ByteArray(0), status, headersOf(*headers.map { (name, value) -> name to listOf(value) }.toTypedArray()))
+
+    private suspend fun parseBody(request: HttpRequestData): JsonElement? {
+        val text = request.body.toByteArray().decodeToString()
+        return if (text.isBlank()) null else json.parseToJsonElement(text)
+    }
+
+    private fun select(table: String, request: HttpRequestData): List<JsonObject> {
+        val params = request.url.parameters
+        var rows = synchronized(tables) { matching(table, request) }
+
+        params["order"]?.let { order ->
+            val comparators = order.split(',').map { term ->
+                val column = term.substringBefore('.')
+                val descending = term.contains(".desc")
+                Comparator<JsonObject> { a, b -> compareValues(a[column], b[column]) }
+                    .let { if (descending) it.reversed() else it }
+            }
+            rows = rows.sortedWith(comparators.reduce { acc, next -> acc.then(next) })
+        }
+
+        val offset = params["offset"]?.toInt() ?: 0
+        val limit = params["limit"]?.toInt() ?: Int.MAX_VALUE
+        rows = rows.drop(offset).take(limit)
+
+        val columns = params["select"]?.split(',')?.map { it.trim('"', ' ') }
+        return if (columns == null || columns == listOf("*")) rows
+        else rows.map { row -> JsonObject(row.filterKeys { it in columns }) }
+    }
+
+    private fun insert(table: String, body: JsonElement?, upsert: Boolean): List<JsonObject> = synchronized(tables) {
+        val rows = tables.getValue(table)
+        val incoming = when (body) {
+            is JsonArray -> body.map { it.jsonObject }
+            is JsonObject -> listOf(body)
+            else -> emptyList()
+        }
+        incoming.map { row ->
+            val stamped = withDefaults(table, row)
+            val existing = rows.indexOfFirst { it["id"] == stamped["id"] }
+            if (existing >= 0) {
+                check(upsert) { "duplicate key value violates unique constraint" }
+                rows[existing] = JsonObject(rows[existing] + stamped)
+            } else {
+                rows += stamped
+            }
+            stamped
+        }.also { if (table == "item_photos") touchItemsOf(it) }
+    }
+
+    private fun update(table: String, request: HttpRequestData, changes: JsonObject): List<JsonObject> = synchronized(tables) {
+        val rows = tables.getValue(table)
+        val targets = matching(table, request).toSet()
+        val updated = mutableListOf<JsonObject>()
+        rows.replaceAll { row ->
+            if (row in targets) {
+                var merged = row + changes
+                if (table == "items") merged = merged + ("updated_at" to JsonPrimitive(nextTimestamp()))
+                JsonObject(merged).also { updated += it }
+            } else {
+                row
+            }
+        }
+        if (table == "item_photos") touchItemsOf(updated)
+        updated
+    }
+
+    private fun delete(table: String, request: HttpRequestData): List<JsonObject> = synchronized(tables) {
+        val targets = matching(table, request)
+        tables.getValue(table).removeAll(targets.toSet())
+        if (table == "item_photos") touchItemsOf(targets)
+        targets
+    }
+
+    private fun touchItemsOf(photos: List<JsonObject>) {
+        val itemIds = photos.mapNotNull { it["item_id"] }.toSet()
+        if (itemIds.isEmpty()) return
+        tables.getValue("items").replaceAll { row ->
+            if (row["id"] in itemIds) JsonObject(row + ("updated_at" to JsonPrimitive(nextTimestamp()))) else row
+        }
+    }
+
+    private fun matching(table: String, request: HttpRequestData): List<JsonObject> {
+        val filters = request.url.parameters.entries()
+            .filter { (name, _) -> name !in setOf("select", "order", "offset", "limit", "on_conflict", "columns") }
+        return tables.getValue(table).filter { row ->
+            filters.all { (column, conditions) -> conditions.all { matches(row[column], it) } }
+        }
+    }
+
+    private fun matches(value: JsonElement?, condition: String): Boolean {
+        val operator = condition.substringBefore('.')
+        val operand = condition.substringAfter('.')
+        val actual = (value as? JsonPrimitive)?.takeIf { value !is JsonNull }?.content
+        return when (operator) {
+            "eq" -> actual == operand
+            "neq" -> actual != operand
+            "gt" -> actual != null && compareText(actual, operand) > 0
+            "gte" -> actual != null && compareText(actual, operand) >= 0
+            "lt" -> actual != null && compareText(actual, operand) < 0
+            "lte" -> actual != null && compareText(actual, operand) <= 0
+            "is" -> if (operand == "null") actual == null else actual == operand
+            "in" -> actual != null && actual in operand.removeSurrounding("(", ")").split(',').map { it.trim('"') }
+            else -> true
+        }
+    }
+
+    private fun compareText(a: String, b: String): Int {
+        val numbers = a.toDoubleOrNull()?.let { x -> b.toDoubleOrNull()?.let { y -> x.compareTo(y) } }
+        return numbers ?: a.compareTo(b)
+    }
+
+    private fun compareValues(a: JsonElement?, b: JsonElement?): Int {
+        val left = (a as? JsonPrimitive)?.takeIf { a !is JsonNull }
+        val right = (b as? JsonPrimitive)?.takeIf { b !is JsonNull }
+        return when {
+            left == null && right == null -> 0
+            left == null -> 1
+            right == null -> -1
+            left.longOrNull != null && right.longOrNull != null -> left.longOrNull!!.compareTo(right.longOrNull!!)
+            else -> left.content.compareTo(right.content)
+        }
+    }
+
+    private fun withDefaults(table: String, row: JsonObject): JsonObject {
+        val values = row.toMutableMap()
+        if (values["id"] == null || values["id"] == JsonPrimitive("")) {
+            values["id"] = JsonPrimitive(UUID.randomUUID().toString())
+        }
+        if (table == "items") {
+            val now = JsonPrimitive(nextTimestamp())
+            values.putIfAbsent("created_at", now)
+            values["updated_at"] = now
+            values.putIfAbsent("is_deleted", JsonPrimitive(false))
+        }
+        return JsonObject(values)
+    }
+
+    private fun inventoryDigest(bucketCount: Int): JsonArray = synchronized(tables) {
+        val live = tables.getValue("items")
+            .filter { it["is_deleted"]?.jsonPrimitive?.content != "true" }
+            .map { ItemDigestRow(it.getValue("id").jsonPrimitive.content, (it["updated_at"] as? JsonPrimitive)?.takeIf { p -> p !is JsonNull }?.content) }
+        JsonArray(
+            CatalogDigest.localDigests(live, bucketCount).values
+                .sortedBy { it.bucket }
+                .map { json.encodeToJsonElement(it) }
+        )
+    }
+
+    // Sets counted items like the real function, once per session; returns every applied line, again on retries
+    private fun commitStockTake(params: JsonObject): JsonArray = synchronized(tables) {
+        val sessionId = params.getValue("session_id").jsonPrimitive.content
+        committedStockTakes[sessionId]?.let { return it }
+        val rows = tables.getValue("items")
+        val adjustments = mutableListOf<JsonElement>()
+        for (count in params.getValue("counts").jsonArray) {
+            val itemId = count.jsonObject.getValue("item_id").jsonPrimitive.content
+            val counted = maxOf(0, count.jsonObject.getValue("counted").jsonPrimitive.int)
+            val index = rows.indexOfFirst { it.getValue("id").jsonPrimitive.content == itemId }
+            if (index < 0) continue
+            val item = json.decodeFromJsonElement<Item>(rows[index])
+            if (item.isDeleted) continue
+            if (item.quantity == counted) {
+                adjustments += json.encodeToJsonElement(StockTakeAdjustment(itemId, counted, counted, item.updatedAt))
+                continue
+            }
+            val updated = item.copy(quantity = counted, updatedAt = nextTimestamp())
+            rows[index] = json.encodeToJsonElement(updated).jsonObject
+            adjustments += json.encodeToJsonElement(
+                StockTakeAdjustment(itemId, item.quantity, counted, updated.updatedAt)
+            )
+        }
+        JsonArray(adjustments).also { committedStockTakes[sessionId] = it }
+    }
+
+    // Strictly increasing, so every write changes the digest like the real trigger
+    private fun nextTimestamp(): String {
+        val millis = lastMillis.updateAndGet { last -> maxOf(last + 1, System.currentTimeMillis()) }
+        return Instant.ofEpochMilli(millis).toString()
+    }
+}
@@ -0,0 +1,67 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.remote.BarcodeProduct
+import com.ndomog.inventory.data.remote.FakePostgrest
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class BarcodeRepositoryTest {
+    private lateinit var database: NdomogDatabase
+    private lateinit var fake: FakePostgrest
+    private lateinit var repository: BarcodeRepository
+
+    @Before
+    fun setUp() {
+        database = TestData.inMemoryDatabase()
+        fake = FakePostgrest()
+        repository = BarcodeRepository(database.itemDao(), database.barcodeLookupDao(), fake.createRemoteDataSource())
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun knownItemResolvesWithoutNetwork() = runBlocking {
+        val item = TestData.items(1).single().copy(barcode = "4006381333931")
+        database.itemDao().insertItems(listOf(item))
+
+        val resolution = repository.resolve(" 4006381333931 ")
+
+        assertEquals(BarcodeResolution.KnownItem("4006381333931", item), resolution)
+        assertEquals(0, fake.requestCount.get())
+    }
+
+    @Test
+    fun productLookupIsCached() = runBlocking {
+        fake.barcodeProducts["5012345678900"] = BarcodeProduct(name = "Oil filter", brand = "Bosch")
+
+        val first = repository.resolve("5012345678900")
+        val second = repository.resolve("5012345678900")
+
+        assertTrue(first is BarcodeResolution.Product)
+        assertEquals("Oil filter", (second as BarcodeResolution.Product).lookup.name)
+        assertEquals(1, fake.requestCount.get())
+    }
+
+    @Test
+    fun missIsCachedAndFailureIsUnavailable() = runBlocking {
+        assertTrue(repository.resolve("0000000000000") is BarcodeResolution.Unknown)
+        assertTrue(repository.resolve("0000000000000") is BarcodeResolution.Unknown)
+        assertEquals(1, fake.requestCount.get())
+
+        fake.failNextRequests(1)
+        assertTrue(repository.resolve("1111111111111") is BarcodeResolution.Unavailable)
+    }
+}
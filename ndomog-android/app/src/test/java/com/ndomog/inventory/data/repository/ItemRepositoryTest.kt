@@ -0,0 +1,92 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.local.StockLevel
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.remote.FakePostgrest
+import com.ndomog.inventory.presentation.dashboard.DashboardViewModel
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class ItemRepositoryTest {
+    private lateinit var database: NdomogDatabase
+    private lateinit var repository: ItemRepository
+
+    @Before
+    fun setUp() {
+        database = TestData.inMemoryDatabase()
+        val fake = FakePostgrest()
+        repository = ItemRepository(
+            database.itemDao(),
+            database.pendingActionDao(),
+            database.itemPhotoDao(),
+            database.activityLogDao(),
+            database.profileDao(),
+            AuthRepository(fake.createSupabaseClient()),
+            fake.createRemoteDataSource(),
+            ItemSearchIndex(database)
+        )
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun stockCountsUpdateAfterInsert() = runBlocking {
+        val counts = repository.observeCounts(DashboardViewModel.STOCK_CHIPS)
+        assertEquals(mapOf(StockLevel.LOW_STOCK to 0, StockLevel.OUT_OF_STOCK to 0), counts.first())
+
+        val items = TestData.items(200)
+        val expected = mapOf(
+            StockLevel.LOW_STOCK to items.count { it.quantity <= it.lowStockThreshold },
+            StockLevel.OUT_OF_STOCK to items.count { it.quantity <= 0 }
+        )
+        // Collecting since before the insert, as the dashboard does
+        val updated = async { withTimeout(5_000) { counts.first { it == expected } } }
+        database.itemDao().insertItems(items)
+
+        assertEquals(expected, updated.await())
+    }
+
+    @Test
+    fun searchPastTheCandidateCapKeepsEverySubstringMatch() = runBlocking {
+        val items = TestData.items(2_000)
+        database.itemDao().insertItems(items)
+
+        val result = withTimeout(5_000) { repository.searchItems("part", emptySet()).first() }
+
+        assertEquals(items.map { it.id }.toSet(), result.map { it.id }.toSet())
+        assertEquals(result.size, result.map { it.id }.toSet().size)
+    }
+
+    @Test
+    fun cappedPartNumberSearchStillMatchesAcrossSeparators() = runBlocking {
+        // More exact matches than the index ranks, with the separated spelling sorting last
+        val kits = (0 until ItemSearchIndex.MAX_CANDIDATES + 100).map {
+            Item(id = "kit-%04d".format(it), name = "Kit 0961400030 rev $it", category = "KITS")
+        }
+        val injector = Item(id = "zz-injector", name = "Denso 096140-0030", category = "INJECTORS")
+        database.itemDao().insertItems(kits + injector)
+
+        val result = withTimeout(5_000) { repository.searchItems("0961400030", emptySet()).first() }
+        assertTrue(result.any { it.id == injector.id })
+        assertEquals(kits.size + 1, result.size)
+
+        val injectors = withTimeout(5_000) { repository.searchItems("0961400030", setOf("INJECTORS")).first() }
+        assertEquals(listOf(injector.id), injectors.map { it.id })
+    }
+}
@@ -0,0 +1,95 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.Item
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class ItemSearchIndexTest {
+    private lateinit var database: NdomogDatabase
+    private lateinit var index: ItemSearchIndex
+
+    private val injector = Item(id = "injector", name = "Denso 096140-0030", category = "INJECTORS", details = "Common rail pump")
+
+    @Before
+    fun setUp() = runBlocking {
+        database = TestData.inMemoryDatabase()
+        index = ItemSearchIndex(database)
+        database.itemDao().insertItems(TestData.items(2_000) + injector)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun partNumbersMatchAcrossSeparatorsAndCase() = runBlocking {
+        for (query in listOf("0961400030", "096140 0030", "096140-0030", "DENSO 096140")) {
+            assertEquals(query, "injector", index.search(query).ids.firstOrNull())
+        }
+    }
+
+    @Test
+    fun oneDigitTypoStillMatches() = runBlocking {
+        assertEquals("injector", index.search("0961400031").ids.firstOrNull())
+        assertEquals("injector", index.search("096141-0030").ids.firstOrNull())
+    }
+
+    @Test
+    fun exactMatchesRankAboveTypos() = runBlocking {
+        database.itemDao().insertItem(injector.copy(id = "near", name = "Denso 096140-0031"))
+
+        assertEquals(listOf("injector", "near"), index.search("0961400030").ids.take(2))
+    }
+
+    @Test
+    fun indexFollowsRenamesAndDeletes() = runBlocking {
+        assertEquals("injector", index.search("0961400030").ids.firstOrNull())
+
+        database.itemDao().updateItem(injector.copy(name = "Bosch 0445110-183"))
+        assertTrue(index.search("0961400030").ids.isEmpty())
+        assertEquals("injector", index.search("0445110183").ids.firstOrNull())
+
+        database.itemDao().deleteItemsByIds(listOf("injector"))
+        assertTrue(index.search("0445110183").ids.isEmpty())
+    }
+
+    @Test
+    fun resultSaysWhenTheCandidateCapWasHit() = runBlocking {
+        val common = index.search("part")
+
+        assertTrue(common.truncated)
+        assertEquals(ItemSearchIndex.MAX_CANDIDATES, common.ids.size)
+        assertFalse(index.search("0961400030").truncated)
+    }
+
+    @Test
+    fun substringMatchesIgnoreSeparatorsAndFollowEdits() = runBlocking {
+        index.catchUp()
+        assertEquals(listOf("injector"), index.observeSubstringMatches("0961400030").first().map { it.id })
+
+        database.itemDao().updateItem(injector.copy(name = "Bosch 0445110-183"))
+        index.catchUp()
+        assertTrue(index.observeSubstringMatches("0961400030").first().isEmpty())
+        assertEquals(listOf("injector"), index.observeSubstringMatches("0445 110 183").first().map { it.id })
+    }
+
+    @Test
+    fun substringEditDistanceIgnoresSurroundingText() {
+        assertEquals(0, ItemSearchIndex.substringEditDistance("0961400030", "denso0961400030"))
+        assertEquals(1, ItemSearchIndex.substringEditDistance("0961400031", "denso0961400030"))
+        assertEquals(2, ItemSearchIndex.substringEditDistance("abc", "xaxx"))
+    }
+}
@@ -0,0 +1,65 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.models.ItemPhoto
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PhotoSetReconcilerTest {
+
+    private class Case(
+        val name: String,
+        val current: List<String>,
+        val desired: List<String>,
+        val added: List<String>,
+        val removed: List<String>,
+        val moved: List<String>
+    )
+
+    private val cases = listOf(
+        Case("unchanged", current = listOf("a", "b", "c"), desired = listOf("a", "b", "c"),
+            added = emptyList(), removed = emptyList(), moved = emptyList()),
+        Case("first photo", current = emptyList(), desired = listOf("a"),
+            added = listOf("a"), removed = emptyList(), moved = emptyList()),
+        Case("add at end", current = listOf("a", "b"), desired = listOf("a", "b", "c"),
+            added = listOf("c"), removed = emptyList(), moved = emptyList()),
+        Case("add at front", current = listOf("a", "b"), desired = listOf("c", "a", "b"),
+            added = listOf("c"), removed = emptyList(), moved = listOf("a", "b")),
+        Case("remove last", current = listOf("a", "b", "c"), desired = listOf("a", "b"),
+            added = emptyList(), removed = listOf("c"), moved = emptyList()),
+        Case("remove first", current = listOf("a", "b", "c"), desired = listOf("b", "c"),
+            added = emptyList(), removed = listOf("a"), moved = listOf("b", "c")),
+        Case("remove all", current = listOf("a", "b"), desired = emptyList(),
+            added = emptyList(), removed = listOf("a", "b"), moved = emptyList()),
+        Case("swap", current = listOf("a", "b", "c"), desired = listOf("b", "a", "c"),
+            added = emptyList(), removed = emptyList(), moved = listOf("b", "a")),
+        Case("replace", current = listOf("a", "b"), desired = listOf("a", "d"),
+            added = listOf("d"), removed = listOf("b"), moved = emptyList()),
+        Case("duplicate url kept once", current = listOf("a"), desired = listOf("a", "b", "a"),
+            added = listOf("b"), removed = emptyList(), moved = emptyList())
+    )
+
+    private fun rows(urls: List<String>) = urls.mapIndexed { index, url ->
+        ItemPhoto(id = "id-$url", itemId = "item", url = url, position = index)
+    }
+
+    @Test
+    fun diffMatchesPhotosByUrl() {
+        for (case in cases) {
+            val desired = case.desired.map { ItemPhoto(itemId = "", url = it) }
+            val changes = PhotoSetReconciler.diff("item", rows(case.current), desired)
+
+            assertEquals(case.name, case.added, changes.added.map { it.url })
+            assertEquals(case.name, case.removed, changes.removed.map { it.url })
+            assertEquals(case.name, case.moved, changes.moved.map { it.url })
+            assertEquals(case.name, case.added.isEmpty() && case.removed.isEmpty() && case.moved.isEmpty(), changes.isEmpty)
+
+            val result = changes.result
+            assertEquals(case.name, case.desired.distinct(), result.map { it.url })
+            assertEquals(case.name, result.indices.toList(), result.map { it.position })
+            assertTrue(case.name, result.all { it.itemId == "item" && it.id.isNotBlank() })
+            // Kept photos keep their row id, so only their position is written
+            result.filter { it.url in case.current }.forEach { assertEquals(case.name, "id-${it.url}", it.id) }
+        }
+    }
+}
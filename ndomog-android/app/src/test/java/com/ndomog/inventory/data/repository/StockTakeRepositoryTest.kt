@@ -0,0 +1,169 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.PendingAction
+import com.ndomog.inventory.data.remote.FakePostgrest
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class StockTakeRepositoryTest {
+    private lateinit var database: NdomogDatabase
+    private lateinit var fake: FakePostgrest
+    private lateinit var repository: StockTakeRepository
+    private val items = TestData.items(2_000)
+
+    @Before
+    fun setUp() = runBlocking {
+        database = TestData.inMemoryDatabase()
+        fake = FakePostgrest()
+        fake.seedItems(items)
+        database.itemDao().insertItems(items)
+        repository = StockTakeRepository(database, fake.createRemoteDataSource())
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun countsAccumulateAndVariancesFollowItems() = runBlocking {
+        val item = items[3].copy(barcode = "4006381333931")
+        database.itemDao().insertItems(listOf(item))
+
+        repeat(3) { repository.countBarcode("4006381333931") }
+        repository.addUnits(item.id, -1)
+        assertNull(repository.countBarcode("0000000000000"))
+
+        val session = repository.openSession()
+        val line = repository.observeVariances(session.id).first().single()
+        assertEquals(2, line.counted)
+        assertEquals(2 - item.quantity, line.variance)
+
+        // Stock moving while counting shows up in the variance at once
+        database.itemDao().updateQuantity(item.id, 2)
+        assertEquals(0, repository.observeVariances(session.id).first().single().variance)
+        assertEquals(0, fake.requestCount.get())
+    }
+
+    @Test
+    fun wholeCountCommitsInOneRequest() = runBlocking {
+        items.forEachIndexed { index, item -> repository.setCount(item.id, item.quantity + index % 3) }
+
+        val summary = repository.commit().getOrThrow()
+
+        assertEquals(1, fake.requestCount.get())
+        assertEquals(2_000, summary.lineCount)
+        assertEquals(items.indices.count { it % 3 != 0 }, summary.adjustedCount)
+        assertEquals(items.indices.sumOf { it % 3 }, summary.netVariance)
+        assertEquals(items[5].quantity + 2, fake.items().first { it.id == items[5].id }.quantity)
+        assertEquals(items[5].quantity + 2, database.itemDao().getItemById(items[5].id)?.quantity)
+        assertNull(repository.observeSession().first())
+    }
+
+    @Test
+    fun failedCommitKeepsCountsAndRetryAppliesOnce() = runBlocking {
+        repository.setCount(items[0].id, 99)
+        fake.failNextRequests(1)
+
+        assertTrue(repository.commit().isFailure)
+        val submitted = repository.observeSession().first()!!
+        assertTrue(submitted.isSubmitted)
+        assertEquals(99, repository.observeVariances(submitted.id).first().single().counted)
+
+        // Counting after the failure must not change what the retry sends
+        repository.setCount(items[0].id, 50)
+        assertEquals(99, repository.observeVariances(submitted.id).first().single().counted)
+
+        repository.commit().getOrThrow()
+        assertEquals(99, fake.items().first { it.id == items[0].id }.quantity)
+        assertEquals(99, database.itemDao().getItemById(items[0].id)?.quantity)
+
+        repository.commit().getOrThrow()
+        assertEquals(50, fake.items().first { it.id == items[0].id }.quantity)
+        assertEquals(50, database.itemDao().getItemById(items[0].id)?.quantity)
+    }
+
+    @Test
+    fun countingDuringCommitStartsNextSession() = runBlocking {
+        repository.setCount(items[0].id, 5)
+        repository.setCount(items[1].id, 7)
+        fake.onRequest = { request ->
+            if (request.url.encodedPath.endsWith("rpc/commit_stock_take")) {
+                fake.onRequest = null
+                repository.addUnits(items[0].id, 1)
+                repository.setCount(items[2].id, 3)
+            }
+        }
+
+        val summary = repository.commit().getOrThrow()
+
+        assertEquals(2, summary.lineCount)
+        assertEquals(5, database.itemDao().getItemById(items[0].id)?.quantity)
+        assertEquals(7, database.itemDao().getItemById(items[1].id)?.quantity)
+        assertEquals(items[2].quantity, database.itemDao().getItemById(items[2].id)?.quantity)
+
+        val next = repository.observeSession().first()!!
+        assertFalse(next.isSubmitted)
+        val counted = repository.observeVariances(next.id).first().associate { it.itemId to it.counted }
+        assertEquals(mapOf(items[0].id to 1, items[2].id to 3), counted)
+    }
+
+    @Test
+    fun itemsAwaitingTheirInsertAreHeldBack() = runBlocking {
+        // Created offline: known locally, queued for the server, not on it yet
+        val added = Item(id = "offline-item", name = "New part", category = "CATEGORY 1", quantity = 4)
+        database.itemDao().insertItem(added)
+        val insert = PendingAction(type = ActionType.ADD_ITEM, entityId = added.id, data = Json.encodeToString(added))
+        database.pendingActionDao().insertAction(insert)
+        repository.setCount(items[0].id, 12)
+        repository.setCount(added.id, 9)
+
+        val summary = repository.commit().getOrThrow()
+
+        assertEquals(1, summary.lineCount)
+        assertEquals(12, fake.items().first { it.id == items[0].id }.quantity)
+        assertEquals(4, database.itemDao().getItemById(added.id)?.quantity)
+        assertEquals(listOf(ActionType.ADD_ITEM), database.pendingActionDao().getPendingActions().map { it.type })
+        val next = repository.observeSession().first()!!
+        assertFalse(next.isSubmitted)
+        assertEquals(9, repository.observeVariances(next.id).first().single().counted)
+
+        // Until the insert syncs there is nothing the server could apply
+        assertTrue(repository.commit().isFailure)
+        assertEquals(9, repository.observeVariances(next.id).first().single().counted)
+    }
+
+    @Test
+    fun linesTheServerSkipsLeaveLocalChangesQueued() = runBlocking {
+        val removed = items[1]
+        fake.updateItems(setOf(removed.id)) { it.copy(isDeleted = true) }
+        val queued = PendingAction(type = ActionType.UPDATE_QUANTITY, entityId = removed.id, data = """{"quantity":3}""")
+        database.pendingActionDao().insertAction(queued)
+        repository.setCount(items[0].id, items[0].quantity)
+        repository.setCount(removed.id, 30)
+
+        val summary = repository.commit().getOrThrow()
+
+        assertEquals(0, summary.adjustedCount)
+        assertEquals(removed.quantity, database.itemDao().getItemById(removed.id)?.quantity)
+        assertEquals(listOf(removed.id), database.pendingActionDao().getPendingActions().map { it.entityId })
+        assertNull(repository.observeSession().first())
+    }
+}
@@ -0,0 +1,95 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.PendingAction
+import com.ndomog.inventory.data.remote.FakeNetwork
+import com.ndomog.inventory.data.remote.FakePostgrest
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.ParameterizedRobolectricTestRunner
+import org.robolectric.annotation.Config
+
+/**
+ * Wall-clock timings for full sync, outbox replay and reconciliation against
+ * [FakePostgrest] on a simulated mobile link.
+ *
+ * Skipped by default; run with `./gradlew :app:testDebugUnitTest -PsyncBenchmark --tests '*SyncBenchmark*'`.
+ */
+@RunWith(ParameterizedRobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class SyncBenchmark(private val itemCount: Int) {
+    companion object {
+        // Outbox replay sends one request per action, so cap it to keep runs bounded
+        private const val MAX_REPLAYED_ACTIONS = 1_000
+
+        private val MOBILE = FakeNetwork(latencyMs = 30, bandwidthBytesPerSecond = 2_000_000)
+
+        @JvmStatic
+        @ParameterizedRobolectricTestRunner.Parameters(name = "items={0}")
+        fun sizes() = listOf(100, 1_000, 10_000, 100_000)
+    }
+
+    private lateinit var database: NdomogDatabase
+    private lateinit var fake: FakePostgrest
+    private lateinit var ingest: ItemCatalogIngest
+    private lateinit var syncRepository: SyncRepository
+
+    @Before
+    fun setUp() {
+        assumeTrue("Pass -PsyncBenchmark to run", System.getProperty("syncBenchmark") != null)
+        database = TestData.inMemoryDatabase()
+        fake = FakePostgrest(MOBILE)
+        fake.seedItems(TestData.items(itemCount))
+        val remote = fake.createRemoteDataSource()
+        ingest = ItemCatalogIngest(database.itemDao(), database.pendingActionDao(), database.itemPhotoDao(), remote)
+        syncRepository = SyncRepository(database.itemDao(), database.pendingActionDao(), database.itemPhotoDao(), remote)
+    }
+
+    @After
+    fun tearDown() {
+        if (::database.isInitialized) database.close()
+    }
+
+    @Test
+    fun fullSync() = runBlocking {
+        measure("fullSync") { ingest.refreshChanged() }
+    }
+
+    @Test
+    fun outboxReplay() = runBlocking {
+        ingest.refreshAll()
+        val actions = TestData.items(minOf(itemCount, MAX_REPLAYED_ACTIONS)).map { item ->
+            PendingAction(type = ActionType.UPDATE_QUANTITY, entityId = item.id, data = """{"quantity":${item.quantity + 1}}""")
+        }
+        actions.forEach { database.pendingActionDao().insertAction(it) }
+
+        measure("outboxReplay(${actions.size} actions)") { syncRepository.syncPendingActions() }
+    }
+
+    @Test
+    fun reconciliation() = runBlocking {
+        ingest.refreshAll()
+        // Another device edits 1% of the catalogue
+        val edited = TestData.items(itemCount).filterIndexed { index, _ -> index % 100 == 0 }.map { it.id }.toSet()
+        fake.updateItems(edited) { it.copy(quantity = it.quantity + 1) }
+
+        measure("reconciliation(${edited.size} edited)") { ingest.refreshChanged() }
+    }
+
+    private suspend fun measure(name: String, block: suspend () -> Any) {
+        fake.resetCounters()
+        val startedAt = System.nanoTime()
+        block()
+        val elapsedMs = (System.nanoTime() - startedAt) / 1_000_000
+        println(
+            "sync-benchmark %-32s items=%-7d time=%6dms requests=%-5d received=%dB".format(
+                name, itemCount, elapsedMs, fake.requestCount.get(), fake.responseBytes.get()
+            )
+        )
+    }
+}
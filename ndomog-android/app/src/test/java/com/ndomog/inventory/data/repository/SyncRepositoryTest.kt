@@ -0,0 +1,211 @@
+package com.ndomog.inventory.data.repository
+
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.models.PendingAction
+import com.ndomog.inventory.data.remote.FakePostgrest
+import com.ndomog.inventory.data.remote.RemoteDataSource
+import io.ktor.http.HttpMethod
+import kotlinx.coroutines.runBlocking
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.jsonPrimitive
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class SyncRepositoryTest {
+    private lateinit var database: NdomogDatabase
+    private lateinit var fake: FakePostgrest
+    private lateinit var remote: RemoteDataSource
+    private lateinit var ingest: ItemCatalogIngest
+    private lateinit var syncRepository: SyncRepository
+
+    @Before
+    fun setUp() {
+        database = TestData.inMemoryDatabase()
+        fake = FakePostgrest()
+        remote = fake.createRemoteDataSource()
+        ingest = ItemCatalogIngest(database.itemDao(), database.pendingActionDao(), database.itemPhotoDao(), remote)
+        syncRepository = SyncRepository(database.itemDao(), database.pendingActionDao(), database.itemPhotoDao(), remote)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun fullRefreshPagesThroughWholeCatalogue() = runBlocking {
+        fake.seedItems(TestData.items(2_500))
+
+        val result = ingest.refreshChanged()
+
+        assertEquals(2_500, result.itemCount)
+        assertEquals(2_500, database.itemDao().getItems().size)
+    }
+
+    @Test
+    fun unchangedCatalogueCostsOneRequest() = runBlocking {
+        fake.seedItems(TestData.items(500))
+        ingest.refreshChanged()
+        fake.resetCounters()
+
+        val result = ingest.refreshChanged()
+
+        assertEquals(0, result.bucketsFetched)
+        assertEquals(1, fake.requestCount.get())
+    }
+
+    @Test
+    fun remoteEditRefetchesOnlyItsBucket() = runBlocking {
+        val items = TestData.items(500)
+        fake.seedItems(items)
+        ingest.refreshChanged()
+
+        val edited = items[7]
+        fake.updateItems(setOf(edited.id)) { it.copy(quantity = 99) }
+        val result = ingest.refreshChanged()
+
+        assertEquals(1, result.bucketsFetched)
+        assertEquals(99, database.itemDao().getItemById(edited.id)?.quantity)
+    }
+
+    @Test
+    fun remotePhotoChangeRefetchesItsBucketPhotos() = runBlocking {
+        val items = TestData.items(500)
+        fake.seedItems(items)
+        ingest.refreshChanged()
+
+        val item = items[11]
+        remote.insertItemPhotos(listOf(ItemPhoto(id = "photo-1", itemId = item.id, url = "https://example.com/a.webp")))
+        val result = ingest.refreshChanged()
+
+        assertEquals(1, result.bucketsFetched)
+        assertEquals(listOf("photo-1"), database.itemPhotoDao().getPhotosForItem(item.id).map { it.id })
+    }
+
+    @Test
+    fun outboxReplayPushesQueuedChanges() = runBlocking {
+        val items = TestData.items(10)
+        fake.seedItems(items)
+        database.itemDao().insertItems(items)
+        database.pendingActionDao().insertAction(
+            PendingAction(type = ActionType.UPDATE_QUANTITY, entityId = items[3].id, data = """{"quantity":17}""")
+        )
+
+        val result = syncRepository.syncPendingActions()
+
+        assertTrue(result.success)
+        assertEquals(1, result.actionsSynced)
+        assertEquals(17, fake.items().first { it.id == items[3].id }.quantity)
+        assertTrue(database.pendingActionDao().getPendingActions().isEmpty())
+    }
+
+    @Test
+    fun failedReplayKeepsActionQueued() = runBlocking {
+        val items = TestData.items(10)
+        fake.seedItems(items)
+        database.itemDao().insertItems(items)
+        database.pendingActionDao().insertAction(
+            PendingAction(type = ActionType.UPDATE_QUANTITY, entityId = items[3].id, data = """{"quantity":17}""")
+        )
+        fake.failNextRequests(1)
+
+        val result = syncRepository.syncPendingActions()
+
+        assertFalse(result.success)
+        assertEquals(1, database.pendingActionDao().getPendingActions().size)
+    }
+
+    // A new item saved offline with two uploaded photos: the photo set is queued before the item
+    private suspend fun queueNewItemWithPhotos(): Item {
+        val item = TestData.items(1).single()
+        database.itemDao().insertItem(item)
+        database.itemPhotoDao().replacePhotosForItem(
+            item.id,
+            listOf("a", "b").mapIndexed { index, name ->
+                ItemPhoto(id = "photo-$name", itemId = item.id, url = "https://cdn.example.com/$name.webp", position = index)
+            }
+        )
+        val actions = database.pendingActionDao()
+        actions.insertAction(PendingAction(type = ActionType.SYNC_PHOTOS, entityId = item.id, data = "{}", timestamp = 1))
+        actions.insertAction(PendingAction(type = ActionType.ADD_ITEM, entityId = item.id, data = Json.encodeToString(item), timestamp = 2))
+        return item
+    }
+
+    @Test
+    fun photoSyncRunsAfterTheItemInsert() = runBlocking {
+        val item = queueNewItemWithPhotos()
+
+        val result = syncRepository.syncPendingActions()
+
+        assertTrue(result.success)
+        assertEquals(2, result.actionsSynced)
+        assertEquals("https://cdn.example.com/a.webp", fake.items().single { it.id == item.id }.photoUrl)
+        assertEquals(2, fake.rows("item_photos").size)
+        assertTrue(database.pendingActionDao().getPendingActions().isEmpty())
+    }
+
+    @Test
+    fun photoSyncWaitsForAFailedItemInsert() = runBlocking {
+        queueNewItemWithPhotos()
+        fake.failNextRequests(1)
+
+        val result = syncRepository.syncPendingActions()
+
+        assertFalse(result.success)
+        assertEquals(0, result.actionsSynced)
+        assertTrue(fake.rows("item_photos").isEmpty())
+        assertEquals(2, database.pendingActionDao().getPendingActions().size)
+    }
+
+    @Test
+    fun photoSyncWaitsForUploads() = runBlocking {
+        val items = TestData.items(1)
+        fake.seedItems(items)
+        database.itemDao().insertItems(items)
+        database.itemPhotoDao().replacePhotosForItem(
+            items[0].id,
+            listOf(ItemPhoto(id = "photo-1", itemId = items[0].id, url = "file:///data/pending/photo-1.webp"))
+        )
+        database.pendingActionDao().insertAction(PendingAction(type = ActionType.SYNC_PHOTOS, entityId = items[0].id, data = "{}"))
+
+        val result = syncRepository.syncPendingActions()
+
+        assertTrue(result.success)
+        assertTrue(fake.rows("item_photos").isEmpty())
+        assertEquals(listOf(ActionType.SYNC_PHOTOS), database.pendingActionDao().getPendingActions().map { it.type })
+    }
+
+    @Test
+    fun removedPhotoKeepsObjectsSharedByOtherItems() = runBlocking {
+        val items = TestData.items(2)
+        fake.seedItems(items)
+        database.itemDao().insertItems(items)
+        val url = "${FakePostgrest.URL}/storage/v1/object/public/item-photos/sha256/shared.webp"
+        fake.storageObjects["item-photos/sha256/shared.webp"] = ByteArray(1)
+        remote.insertItemPhotos(items.map { ItemPhoto(id = "photo-${it.id}", itemId = it.id, url = url) })
+        val storageMethods = mutableListOf<HttpMethod>()
+        fake.onRequest = { if (it.url.encodedPath.startsWith("/storage/")) storageMethods += it.method }
+
+        // The first item drops the photo; the second still shows it
+        database.itemPhotoDao().replacePhotosForItem(items[0].id, emptyList())
+        database.pendingActionDao().insertAction(PendingAction(type = ActionType.SYNC_PHOTOS, entityId = items[0].id, data = "{}"))
+        assertTrue(syncRepository.syncPendingActions().success)
+
+        assertEquals(listOf(items[1].id), fake.rows("item_photos").map { it.getValue("item_id").jsonPrimitive.content })
+        assertTrue("item-photos/sha256/shared.webp" in fake.storageObjects)
+        assertTrue(storageMethods.isEmpty())
+    }
+}
@@ -0,0 +1,29 @@
+package com.ndomog.inventory.data.repository
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.Item
+import java.util.UUID
+
+internal object TestData {
+    fun inMemoryDatabase(): NdomogDatabase =
+        Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), NdomogDatabase::class.java)
+            .allowMainThreadQueries()
+            .addCallback(NdomogDatabase.CALLBACK)
+            .build()
+
+    fun items(count: Int): List<Item> = (0 until count).map { index ->
+        Item(
+            id = UUID.nameUUIDFromBytes("item-$index".toByteArray()).toString(),
+            name = "Part $index",
+            category = "CATEGORY ${index % 12}",
+            details = "Bin ${index % 40}",
+            buyingPrice = 100.0 + index % 97,
+            sellingPrice = 130.0 + index % 97,
+            quantity = index % 40,
+            createdAt = "2026-01-01T00:00:00Z",
+            updatedAt = "2026-01-01T00:00:00Z"
+        )
+    }
+}
@@ -0,0 +1,178 @@
+package com.ndomog.inventory.media
+
+import android.content.Context
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import androidx.work.testing.WorkManagerTestInitHelper
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.ItemPhoto
+import com.ndomog.inventory.data.models.PhotoUpload
+import com.ndomog.inventory.data.remote.FakePostgrest
+import com.ndomog.inventory.data.repository.TestData
+import io.ktor.http.HttpMethod
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class PhotoUploadQueueTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private lateinit var database: NdomogDatabase
+    private lateinit var fake: FakePostgrest
+    private lateinit var pendingDir: File
+    private lateinit var queue: PhotoUploadQueue
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        WorkManagerTestInitHelper.initializeTestWorkManager(context)
+        database = TestData.inMemoryDatabase()
+        fake = FakePostgrest()
+        pendingDir = folder.newFolder("pending")
+        val photoUploader = PhotoUploader(
+            fake.createSupabaseClient(),
+            ImageProcessor(context),
+            fake.createStorageUploader(),
+            pendingDir
+        )
+        val mediaCacheManager = MediaCacheManager(
+            folder.newFolder("captures"),
+            folder.newFolder("originals"),
+            pendingDir,
+            "com.ndomog.inventory.test.fileprovider",
+            imageDiskCache = { null }
+        )
+        queue = PhotoUploadQueue(
+            context,
+            database.photoUploadDao(),
+            database.itemPhotoDao(),
+            database.pendingActionDao(),
+            photoUploader,
+            mediaCacheManager
+        )
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    // A processed photo waiting in the queue, cached with its file URL like PhotoUploadQueue.save leaves it
+    private suspend fun queued(itemId: String, hash: String, position: Int = 0): PhotoUpload {
+        val file = File(pendingDir, "$hash.webp").apply { writeBytes(ByteArray(4_000) { position.toByte() }) }
+        val thumbnail = File(pendingDir, "${hash}_thumb.webp").apply { writeBytes(ByteArray(400)) }
+        val upload = PhotoUpload(
+            id = "upload-$hash-$itemId",
+            itemId = itemId,
+            filePath = file.path,
+            thumbnailPath = thumbnail.path,
+            storagePath = "sha256/$hash.webp",
+            thumbnailStoragePath = "sha256/${hash}_thumb.webp"
+        )
+        database.photoUploadDao().insertUpload(upload)
+        database.itemPhotoDao().replacePhotosForItem(
+            itemId,
+            database.itemPhotoDao().getPhotosForItem(itemId) + ItemPhoto(
+                id = upload.id,
+                itemId = itemId,
+                url = Uri.fromFile(file).toString(),
+                thumbnailUrl = Uri.fromFile(thumbnail).toString(),
+                position = position
+            )
+        )
+        return upload
+    }
+
+    @Test
+    fun saveCachesTheSetAndQueuesOnePhotoSync() = runBlocking {
+        val photos = listOf("a", "b").map { ItemPhoto(itemId = "item-1", url = "https://cdn.example.com/$it.webp") }
+
+        queue.save("item-1", photos)
+        val saved = queue.save("item-1", photos.reversed())
+
+        assertEquals(listOf("b", "a").map { "https://cdn.example.com/$it.webp" }, saved.map { it.url })
+        assertEquals(saved, database.itemPhotoDao().getPhotosForItem("item-1").sortedBy { it.position })
+        val actions = database.pendingActionDao().getPendingActions()
+        assertEquals(listOf(ActionType.SYNC_PHOTOS to "item-1"), actions.map { it.type to it.entityId })
+    }
+
+    @Test
+    fun saveDiscardsUploadsDroppedFromTheSet() = runBlocking {
+        val kept = queued("item-1", "kept", position = 0)
+        val dropped = queued("item-1", "dropped", position = 1)
+
+        queue.save("item-1", database.itemPhotoDao().getPhotosForItem("item-1").filter { it.id == kept.id })
+
+        assertEquals(listOf(kept.id), database.photoUploadDao().getUploads().map { it.id })
+        assertFalse(File(dropped.filePath).exists())
+        assertTrue(File(kept.filePath).exists())
+    }
+
+    @Test
+    fun uploadSwapsInRemoteUrlsAndSkipsStoredObjects() = runBlocking {
+        val fresh = queued("item-1", "fresh")
+        val shared = queued("item-2", "shared")
+        // Another device already stored this picture
+        fake.storageObjects["${PhotoUploader.ITEM_PHOTO_BUCKET}/${shared.storagePath}"] = ByteArray(1)
+        fake.storageObjects["${PhotoUploader.ITEM_PHOTO_BUCKET}/${shared.thumbnailStoragePath}"] = ByteArray(1)
+
+        val freshBytes = File(fresh.filePath).length() + File(fresh.thumbnailPath).length()
+
+        assertTrue(queue.uploadAll())
+
+        assertEquals(freshBytes, fake.storageBytesReceived.get())
+        for (upload in listOf(fresh, shared)) {
+            val photo = database.itemPhotoDao().getPhotosForItem(upload.itemId).single()
+            assertTrue(photo.url.startsWith(FakePostgrest.URL) && photo.url.endsWith(upload.storagePath))
+            assertTrue(photo.thumbnailUrl!!.endsWith(upload.thumbnailStoragePath))
+            assertFalse(File(upload.filePath).exists())
+        }
+        assertTrue(database.photoUploadDao().getUploads().isEmpty())
+    }
+
+    @Test
+    fun failedUploadStaysQueuedForTheNextRun() = runBlocking {
+        val upload = queued("item-1", "retry")
+        // The existence check and the session create both fail
+        fake.failNextRequests(2)
+
+        assertFalse(queue.uploadAll())
+        assertEquals(1, database.photoUploadDao().getUpload(upload.id)?.attempts)
+        assertTrue(database.itemPhotoDao().getPhotosForItem("item-1").single().url.startsWith("file:"))
+
+        assertTrue(queue.uploadAll())
+        assertTrue(database.itemPhotoDao().getPhotosForItem("item-1").single().url.startsWith(FakePostgrest.URL))
+    }
+
+    @Test
+    fun photoRemovedWhileUploadingLeavesItsObjectsToServerGc() = runBlocking {
+        val upload = queued("item-1", "removed")
+        val storageMethods = mutableListOf<HttpMethod>()
+        fake.onRequest = { request ->
+            if (request.url.encodedPath.startsWith("/storage/")) storageMethods += request.method
+            // The user drops the photo once its transfer has started
+            if (request.method == HttpMethod.Patch) database.photoUploadDao().deleteUpload(upload.id)
+        }
+
+        assertTrue(queue.uploadAll())
+
+        assertTrue(database.itemPhotoDao().getPhotosForItem("item-1").single().url.startsWith("file:"))
+        assertFalse(File(upload.filePath).exists())
+        assertTrue("${PhotoUploader.ITEM_PHOTO_BUCKET}/${upload.storagePath}" in fake.storageObjects)
+        assertFalse(HttpMethod.Delete in storageMethods)
+    }
+}
@@ -0,0 +1,76 @@
+package com.ndomog.inventory.media
+
+import com.ndomog.inventory.data.remote.FakePostgrest
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import kotlin.random.Random
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = android.app.Application::class)
+class StorageUploaderTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val fake = FakePostgrest()
+    private val uploader = fake.createStorageUploader()
+    private val key = "${PhotoUploader.ITEM_PHOTO_BUCKET}/sha256/photo.webp"
+
+    private fun photoFile(size: Int): Pair<File, ByteArray> {
+        val bytes = Random(7).nextBytes(size)
+        return folder.newFile().apply { writeBytes(bytes) } to bytes
+    }
+
+    private suspend fun upload(file: File, uploadUrl: String?, onProgress: suspend (String, Long) -> Unit) =
+        uploader.uploadResumable(PhotoUploader.ITEM_PHOTO_BUCKET, "sha256/photo.webp", file, "image/webp", uploadUrl, onProgress)
+
+    @Test
+    fun interruptedUploadResumesFromConfirmedOffset() = runBlocking {
+        val (file, bytes) = photoFile(StorageUploader.TUS_CHUNK_SIZE * 2 + 1_000)
+        var savedUrl: String? = null
+        var savedOffset = 0L
+
+        val interrupted = runCatching {
+            upload(file, null) { url, offset ->
+                savedUrl = url
+                savedOffset = offset
+                // The connection drops once the first chunk is confirmed
+                if (offset > 0) fake.failNextRequests(1)
+            }
+        }
+        assertTrue(interrupted.isFailure)
+        assertEquals(StorageUploader.TUS_CHUNK_SIZE.toLong(), savedOffset)
+        assertNull(fake.storageObjects[key])
+
+        val resumedUrls = mutableSetOf<String>()
+        upload(file, savedUrl) { url, _ -> resumedUrls += url }
+
+        assertEquals(setOf(savedUrl), resumedUrls)
+        assertArrayEquals(bytes, fake.storageObjects.getValue(key))
+        // The confirmed chunk is not sent again
+        assertEquals(bytes.size.toLong(), fake.storageBytesReceived.get())
+    }
+
+    @Test
+    fun expiredSessionStartsOver() = runBlocking {
+        val (file, bytes) = photoFile(50_000)
+        val expired = "${FakePostgrest.URL}/storage/v1/upload/resumable/expired"
+        val progress = mutableListOf<Pair<String, Long>>()
+
+        upload(file, expired) { url, offset -> progress += url to offset }
+
+        assertNotEquals(expired, progress.first().first)
+        assertEquals(listOf(0L, bytes.size.toLong()), progress.map { it.second })
+        assertArrayEquals(bytes, fake.storageObjects.getValue(key))
+    }
+}
@@ -0,0 +1,32 @@
+package com.ndomog.benchmark
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Collects the baseline profile shipped with `:app`.
+ *
+ * Run with `./gradlew :app:generateBaselineProfile` on a rooted device or API 33+ emulator.
+ */
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    @Test
+    fun generate() = baselineProfileRule.collect(
+        packageName = TARGET_PACKAGE,
+        includeInStartupProfile = true
+    ) {
+        seedItems()
+        pressHome()
+        startActivityAndWait()
+        waitForDashboard()
+        scrollItemList(flings = 3)
+        typeSearch()
+        openAddItemDialog()
+    }
+}
@@ -0,0 +1,43 @@
+package com.ndomog.benchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Frame timing for the main dashboard journeys on a seeded 5,000 item inventory.
+ */
+@RunWith(AndroidJUnit4::class)
+class DashboardBenchmark {
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun scrollItemList() = measureJourney { scrollItemList() }
+
+    @Test
+    fun searchTyping() = measureJourney { typeSearch() }
+
+    @Test
+    fun openAddItemDialog() = measureJourney { openAddItemDialog() }
+
+    private fun measureJourney(journey: androidx.benchmark.macro.MacrobenchmarkScope.() -> Unit) =
+        benchmarkRule.measureRepeated(
+            packageName = TARGET_PACKAGE,
+            metrics = listOf(FrameTimingMetric()),
+            compilationMode = CompilationMode.Partial(BaselineProfileMode.Require),
+            startupMode = StartupMode.WARM,
+            iterations = 5,
+            setupBlock = {
+                seedItems()
+            }
+        ) {
+            journey()
+        }
+}
@@ -0,0 +1,77 @@
+package com.ndomog.benchmark
+
+import android.content.Intent
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.UiObject2
+import androidx.test.uiautomator.Until
+
+const val TARGET_PACKAGE = "com.ndomog.inventory"
+
+// Must match BenchmarkSeeder and TestTags in :app
+const val EXTRA_SEED_ITEMS = "seed_items"
+const val SEEDED_ITEM_COUNT = 5_000
+
+private const val TAG_ITEM_LIST = "dashboard_item_list"
+private const val TAG_SEARCH_FIELD = "dashboard_search"
+private const val TAG_ADD_ITEM = "dashboard_add_item"
+private const val TAG_ADD_EDIT_DIALOG = "add_edit_item_dialog"
+
+private const val UI_TIMEOUT_MS = 10_000L
+
+/**
+ * Launches the app with [count] synthetic items and benchmark (offline) mode on.
+ * The data and mode persist across later launches until the app data is cleared.
+ */
+fun MacrobenchmarkScope.seedItems(count: Int = SEEDED_ITEM_COUNT) {
+    pressHome()
+    startActivityAndWait(
+        Intent().apply {
+            setClassName(TARGET_PACKAGE, "$TARGET_PACKAGE.MainActivity")
+            putExtra(EXTRA_SEED_ITEMS, count)
+        }
+    )
+    waitForDashboard()
+}
+
+// A journey that cannot find its element fails rather than timing nothing
+private fun MacrobenchmarkScope.awaitObject(tag: String): UiObject2 =
+    checkNotNull(device.wait(Until.findObject(By.res(tag)), UI_TIMEOUT_MS)) { "No element tagged $tag on screen" }
+
+fun MacrobenchmarkScope.waitForDashboard() {
+    awaitObject(TAG_ITEM_LIST)
+    device.waitForIdle()
+}
+
+fun MacrobenchmarkScope.scrollItemList(flings: Int = 5) {
+    val list = awaitObject(TAG_ITEM_LIST)
+    // Keep clear of the gesture navigation area
+    list.setGestureMargin(device.displayWidth / 5)
+    repeat(flings) {
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+}
+
+fun MacrobenchmarkScope.typeSearch(query: String = "filter 12") {
+    val search = awaitObject(TAG_SEARCH_FIELD)
+    search.click()
+    // Type one character at a time so every keystroke recomposes the filtered list
+    val typed = StringBuilder()
+    for (char in query) {
+        typed.append(char)
+        search.text = typed.toString()
+        device.waitForIdle()
+    }
+    search.text = ""
+    device.waitForIdle()
+}
+
+fun MacrobenchmarkScope.openAddItemDialog() {
+    awaitObject(TAG_ADD_ITEM).click()
+    awaitObject(TAG_ADD_EDIT_DIALOG)
+    device.waitForIdle()
+    device.pressBack()
+    check(device.wait(Until.gone(By.res(TAG_ADD_EDIT_DIALOG)), UI_TIMEOUT_MS) == true) { "Add item dialog did not close" }
+}
@@ -0,0 +1,45 @@
+package com.ndomog.benchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold start to the first dashboard frame, with and without the baseline profile.
+ *
+ * Run with `./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest`.
+ */
+@RunWith(AndroidJUnit4::class)
+class StartupBenchmark {
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartNoCompilation() = coldStart(CompilationMode.None())
+
+    @Test
+    fun coldStartBaselineProfile() = coldStart(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun coldStart(compilationMode: CompilationMode) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = {
+            seedItems()
+            // Seeding launched the app, so kill it again to keep this a cold start
+            pressHome()
+            killProcess()
+        }
+    ) {
+        startActivityAndWait()
+        waitForDashboard()
+    }
+}
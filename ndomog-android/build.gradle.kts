@@ -1,6 +1,10 @@
 // Top-level build file
 plugins {
     id("com.android.application") version "8.13.2" apply false
+    id("com.android.library") version "8.13.2" apply false
+    id("com.android.test") version "8.13.2" apply false
+    id("androidx.baselineprofile") version "1.3.4" apply false
+    id("androidx.benchmark") version "1.3.4" apply false
     id("org.jetbrains.kotlin.android") version "1.9.20" apply false
     id("com.google.devtools.ksp") version "1.9.20-1.0.14" apply false
     id("org.jetbrains.kotlin.plugin.serialization") version "1.9.20" apply false
@@ -0,0 +1,130 @@
+package com.ndomog.inventory.data.local
+
+import androidx.sqlite.db.SimpleSQLiteQuery
+import androidx.sqlite.db.SupportSQLiteQuery
+import kotlinx.serialization.Serializable
+
+@Serializable
+enum class StockLevel {
+    ANY,
+    IN_STOCK,
+    // At or below the item's own low-stock threshold, including out of stock
+    LOW_STOCK,
+    OUT_OF_STOCK
+}
+
+@Serializable
+enum class InventorySort {
+    NAME,
+    QUANTITY,
+    // Stock value at cost, buying price times quantity
+    VALUE,
+    // Most recently updated first when descending
+    RECENT
+}
+
+/**
+ * A slice of the live inventory, compiled to SQL and run by Room.
+ *
+ * Every criterion is optional and they combine with AND. Prices are selling
+ * prices; margins are percentages of the selling price, so items with no
+ * selling price never match a margin bound. [updatedSince] is compared with
+ * the ISO-8601 `updatedAt` text Supabase returns. Queries are serializable so
+ * they can be saved and reopened as live flows.
+ */
+@Serializable
+data class InventoryQuery(
+    // Matched case-insensitively against name and details
+    val text: String? = null,
+    val categories: Set<String> = emptySet(),
+    val minPrice: Double? = null,
+    val maxPrice: Double? = null,
+    val stock: StockLevel = StockLevel.ANY,
+    val minMarginPercent: Double? = null,
+    val maxMarginPercent: Double? = null,
+    val updatedSince: String? = null,
+    val createdBy: String? = null,
+    val sort: InventorySort = InventorySort.NAME,
+    val descending: Boolean = false,
+    val limit: Int? = null
+) {
+    companion object {
+        val LOW_STOCK = InventoryQuery(stock = StockLevel.LOW_STOCK, sort = InventorySort.QUANTITY)
+        val OUT_OF_STOCK = InventoryQuery(stock = StockLevel.OUT_OF_STOCK)
+
+        // Margin as a percentage of the selling price
+        private const val MARGIN = "((sellingPrice - buyingPrice) * 100.0 / sellingPrice)"
+    }
+
+    /** The matching items, sorted and limited. */
+    fun toSelectQuery(): SupportSQLiteQuery {
+        val (where, args) = whereClause()
+        val direction = if (descending) "DESC" else "ASC"
+        val order = when (sort) {
+            InventorySort.NAME -> "name COLLATE NOCASE $direction"
+            InventorySort.QUANTITY -> "quantity $direction, name COLLATE NOCASE"
+            InventorySort.VALUE -> "buyingPrice * quantity $direction, name COLLATE NOCASE"
+            InventorySort.RECENT -> "updatedAt $direction, name COLLATE NOCASE"
+        }
+        val limitClause = limit?.let { " LIMIT $it" } ?: ""
+        return SimpleSQLiteQuery("SELECT * FROM items WHERE $where ORDER BY $order, id$limitClause", args)
+    }
+
+    /** The number of matching items, ignoring [limit]. */
+    fun toCountQuery(): SupportSQLiteQuery {
+        val (where, args) = whereClause()
+        return SimpleSQLiteQuery("SELECT COUNT(*) FROM items WHERE $where", args)
+    }
+
+    // Criteria on indexed columns come first, so SQLite can pick one of those indexes
+    private fun whereClause(): Pair<String, Array<Any?>> {
+        val conditions = mutableListOf("isDeleted = 0")
+        val args = mutableListOf<Any?>()
+
+        if (categories.isNotEmpty()) {
+            conditions += "category IN (${categories.joinToString(", ") { "?" }})"
+            args += categories
+        }
+        createdBy?.let {
+            conditions += "createdBy = ?"
+            args += it
+        }
+        updatedSince?.let {
+            conditions += "updatedAt >= ?"
+            args += it
+        }
+        minPrice?.let {
+            conditions += "sellingPrice >= ?"
+            args += it
+        }
+        maxPrice?.let {
+            conditions += "sellingPrice <= ?"
+            args += it
+        }
+        when (stock) {
+            StockLevel.ANY -> Unit
+            StockLevel.IN_STOCK -> conditions += "quantity > 0"
+            StockLevel.LOW_STOCK -> conditions += "quantity <= lowStockThreshold"
+            StockLevel.OUT_OF_STOCK -> conditions += "quantity <= 0"
+        }
+        if (minMarginPercent != null || maxMarginPercent != null) {
+            conditions += "sellingPrice > 0"
+        }
+        minMarginPercent?.let {
+            conditions += "$MARGIN >= ?"
+            args += it
+        }
+        maxMarginPercent?.let {
+            conditions += "$MARGIN <= ?"
+            args += it
+        }
+        text?.trim()?.takeIf { it.isNotEmpty() }?.let {
+            val pattern = "%" + it.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%"
+            conditions += "(name LIKE ? ESCAPE '\\' OR details LIKE ? ESCAPE '\\')"
+            args += pattern
+            args += pattern
+        }
+
+        return conditions.joinToString(" AND ") to args.toTypedArray()
+    }
+}
@@ -0,0 +1,209 @@
+package com.ndomog.inventory.data.local
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+val MIGRATION_1_2 = object : Migration(1, 2) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL("ALTER TABLE items ADD COLUMN is_deleted INTEGER NOT NULL DEFAULT 0")
+        database.execSQL("ALTER TABLE items ADD COLUMN deleted_at TEXT DEFAULT NULL")
+        database.execSQL("ALTER TABLE items ADD COLUMN deleted_by TEXT DEFAULT NULL")
+    }
+}
+
+val MIGRATION_2_3 = object : Migration(2, 3) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        // Create activity_logs table
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS activity_logs (
+                id TEXT PRIMARY KEY NOT NULL,
+                user_id TEXT NOT NULL,
+                username TEXT NOT NULL,
+                action TEXT NOT NULL,
+                entity_type TEXT NOT NULL DEFAULT 'item',
+                entity_id TEXT NOT NULL,
+                entity_name TEXT NOT NULL,
+                timestamp INTEGER NOT NULL,
+                details TEXT
+            )
+            """.trimIndent()
+        )
+    }
+}
+
+val MIGRATION_3_4 = object : Migration(3, 4) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL("ALTER TABLE items ADD COLUMN thumbnailUrl TEXT")
+    }
+}
+
+val MIGRATION_4_5 = object : Migration(4, 5) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS item_photos (
+                id TEXT PRIMARY KEY NOT NULL,
+                item_id TEXT NOT NULL,
+                url TEXT NOT NULL,
+                thumbnail_url TEXT,
+                position INTEGER NOT NULL,
+                created_at TEXT
+            )
+            """.trimIndent()
+        )
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_item_photos_item_id ON item_photos (item_id)")
+        // Invalidate the local catalogue digest so the next refresh downloads
+        // every bucket, and with it the photos of existing items
+        database.execSQL("UPDATE items SET updatedAt = NULL")
+    }
+}
+
+val MIGRATION_5_6 = object : Migration(5, 6) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS photo_uploads (
+                id TEXT PRIMARY KEY NOT NULL,
+                item_id TEXT NOT NULL,
+                file_path TEXT NOT NULL,
+                thumbnail_path TEXT NOT NULL,
+                storage_path TEXT NOT NULL,
+                thumbnail_storage_path TEXT NOT NULL,
+                upload_url TEXT,
+                bytes_uploaded INTEGER NOT NULL,
+                attempts INTEGER NOT NULL,
+                created_at INTEGER NOT NULL
+            )
+            """.trimIndent()
+        )
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_photo_uploads_item_id ON photo_uploads (item_id)")
+    }
+}
+
+val MIGRATION_6_7 = object : Migration(6, 7) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_category ON items (category)")
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_quantity ON items (quantity)")
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_sellingPrice ON items (sellingPrice)")
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_updatedAt ON items (updatedAt)")
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_createdBy ON items (createdBy)")
+    }
+}
+
+/**
+ * Queues an item for reindexing whenever it is inserted, renamed, has its
+ * details edited or is deleted, so the trigram index follows every write
+ * path, including bulk catalogue refreshes.
+ */
+fun createSearchIndexTriggers(database: SupportSQLiteDatabase) {
+    database.execSQL(
+        """
+        CREATE TRIGGER IF NOT EXISTS items_search_insert AFTER INSERT ON items BEGIN
+            INSERT OR REPLACE INTO search_index_queue (item_id) VALUES (NEW.id);
+        END
+        """.trimIndent()
+    )
+    database.execSQL(
+        """
+        CREATE TRIGGER IF NOT EXISTS items_search_update AFTER UPDATE OF name, details ON items BEGIN
+            INSERT OR REPLACE INTO search_index_queue (item_id) VALUES (NEW.id);
+        END
+        """.trimIndent()
+    )
+    database.execSQL(
+        """
+        CREATE TRIGGER IF NOT EXISTS items_search_delete AFTER DELETE ON items BEGIN
+            INSERT OR REPLACE INTO search_index_queue (item_id) VALUES (OLD.id);
+        END
+        """.trimIndent()
+    )
+}
+
+val MIGRATION_7_8 = object : Migration(7, 8) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS item_trigrams (
+                trigram TEXT NOT NULL,
+                item_id TEXT NOT NULL,
+                PRIMARY KEY (trigram, item_id)
+            )
+            """.trimIndent()
+        )
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_item_trigrams_item_id ON item_trigrams (item_id)")
+        database.execSQL("CREATE TABLE IF NOT EXISTS search_index_queue (item_id TEXT PRIMARY KEY NOT NULL)")
+        createSearchIndexTriggers(database)
+        // Existing items are indexed on the next search or app start
+        database.execSQL("INSERT OR IGNORE INTO search_index_queue (item_id) SELECT id FROM items")
+    }
+}
+
+val MIGRATION_8_9 = object : Migration(8, 9) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL("ALTER TABLE items ADD COLUMN barcode TEXT")
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_items_barcode ON items (barcode)")
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS barcode_lookups (
+                barcode TEXT PRIMARY KEY NOT NULL,
+                found INTEGER NOT NULL,
+                name TEXT,
+                category TEXT,
+                details TEXT,
+                image_url TEXT,
+                brand TEXT,
+                fetched_at INTEGER NOT NULL
+            )
+            """.trimIndent()
+        )
+    }
+}
+
+val MIGRATION_9_10 = object : Migration(9, 10) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS stock_take_sessions (
+                id TEXT PRIMARY KEY NOT NULL,
+                note TEXT,
+                started_at INTEGER NOT NULL
+            )
+            """.trimIndent()
+        )
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS stock_take_lines (
+                session_id TEXT NOT NULL,
+                item_id TEXT NOT NULL,
+                counted INTEGER NOT NULL,
+                counted_at INTEGER NOT NULL,
+                PRIMARY KEY (session_id, item_id)
+            )
+            """.trimIndent()
+        )
+        database.execSQL("CREATE INDEX IF NOT EXISTS index_stock_take_lines_item_id ON stock_take_lines (item_id)")
+    }
+}
+
+val MIGRATION_10_11 = object : Migration(10, 11) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL("ALTER TABLE stock_take_sessions ADD COLUMN submitted_at INTEGER")
+    }
+}
+
+val MIGRATION_11_12 = object : Migration(11, 12) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+        database.execSQL(
+            """
+            CREATE TABLE IF NOT EXISTS item_search_text (
+                item_id TEXT PRIMARY KEY NOT NULL,
+                name TEXT NOT NULL,
+                details TEXT NOT NULL
+            )
+            """.trimIndent()
+        )
+        // Existing items get their text on the next search or app start
+        database.execSQL("INSERT OR IGNORE INTO search_index_queue (item_id) SELECT id FROM items")
+    }
+}
@@ -0,0 +1,384 @@
+package com.ndomog.inventory.data.local
+
+import androidx.room.*
+import androidx.sqlite.db.SupportSQLiteQuery
+import com.ndomog.inventory.data.models.*
+import kotlinx.coroutines.flow.Flow
+
+@Dao
+interface ItemDao {
+    @Query("SELECT * FROM items WHERE isDeleted = 0 ORDER BY createdAt DESC")
+    fun getAllItems(): Flow<List<Item>>
+
+    @Query("SELECT * FROM items WHERE isDeleted = 0")
+    suspend fun getItems(): List<Item>
+
+    @Query("SELECT COUNT(*) FROM items WHERE isDeleted = 0")
+    suspend fun countItems(): Int
+
+    @Query("SELECT * FROM items WHERE id = :id")
+    suspend fun getItemById(id: String): Item?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertItem(item: Item)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertItems(items: List<Item>)
+
+    @Update
+    suspend fun updateItem(item: Item)
+
+    @Query("UPDATE items SET quantity = :quantity WHERE id = :id")
+    suspend fun updateQuantity(id: String, quantity: Int)
+
+    @Query("UPDATE items SET quantity = :quantity, updatedAt = :updatedAt WHERE id = :id")
+    suspend fun updateQuantityAndTimestamp(id: String, quantity: Int, updatedAt: String)
+
+    @Query("UPDATE items SET isDeleted = 1, deletedAt = :deletedAt, deletedBy = :deletedBy WHERE id = :id")
+    suspend fun softDelete(id: String, deletedAt: String, deletedBy: String)
+
+    @Query("UPDATE items SET photoUrl = :photoUrl, thumbnailUrl = :thumbnailUrl WHERE id = :id")
+    suspend fun updatePhotoUrls(id: String, photoUrl: String?, thumbnailUrl: String?)
+
+    @Query("DELETE FROM items")
+    suspend fun deleteAll()
+
+    @Query("SELECT id FROM items")
+    suspend fun getAllIds(): List<String>
+
+    @Query("SELECT id, updatedAt FROM items WHERE isDeleted = 0")
+    suspend fun getDigestRows(): List<ItemDigestRow>
+
+    @Query("DELETE FROM items WHERE id IN (:ids)")
+    suspend fun deleteItemsByIds(ids: List<String>)
+
+    @Query(
+        """
+        SELECT COALESCE(SUM(quantity), 0) AS totalQuantity,
+               COALESCE(SUM(buyingPrice * quantity), 0) AS totalCost,
+               COALESCE(SUM((sellingPrice - buyingPrice) * quantity), 0) AS potentialProfit,
+               COALESCE(SUM(quantity <= lowStockThreshold), 0) AS lowStockCount
+        FROM items WHERE isDeleted = 0
+        """
+    )
+    fun observeDashboardStats(): Flow<DashboardStats>
+
+    @Query("SELECT DISTINCT category FROM items WHERE isDeleted = 0 ORDER BY category")
+    fun observeCategoryNames(): Flow<List<String>>
+
+    // Compiled InventoryQuery SQL; re-run whenever the items table changes
+    @RawQuery(observedEntities = [Item::class])
+    fun observeInventory(query: SupportSQLiteQuery): Flow<List<Item>>
+
+    @RawQuery(observedEntities = [Item::class])
+    fun observeInventoryCount(query: SupportSQLiteQuery): Flow<Int>
+
+    fun observeItems(query: InventoryQuery): Flow<List<Item>> = observeInventory(query.toSelectQuery())
+
+    fun observeCount(query: InventoryQuery): Flow<Int> = observeInventoryCount(query.toCountQuery())
+
+    @Query("SELECT * FROM items WHERE barcode = :barcode AND isDeleted = 0 LIMIT 1")
+    suspend fun getItemByBarcode(barcode: String): Item?
+
+    @Query("SELECT * FROM items WHERE id IN (:ids) AND isDeleted = 0")
+    fun observeItemsByIds(ids: List<String>): Flow<List<Item>>
+
+    // Same order as the dashboard list, used for the cold-start snapshot
+    @Query("SELECT * FROM items WHERE isDeleted = 0 ORDER BY name COLLATE NOCASE LIMIT :limit")
+    suspend fun getFirstItemsByName(limit: Int): List<Item>
+}
+
+@Dao
+interface CategoryDao {
+    @Query("SELECT * FROM categories ORDER BY name ASC")
+    fun getAllCategories(): Flow<List<Category>>
+
+    @Query("SELECT * FROM categories ORDER BY name ASC")
+    suspend fun getCategories(): List<Category>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertCategory(category: Category)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertCategories(categories: List<Category>)
+
+    @Query("DELETE FROM categories")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface ProfileDao {
+    @Query("SELECT * FROM profiles WHERE id = :id")
+    suspend fun getProfileById(id: String): Profile?
+
+    @Query("SELECT * FROM profiles")
+    suspend fun getAllProfiles(): List<Profile>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertProfile(profile: Profile)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertProfiles(profiles: List<Profile>)
+
+    @Query("DELETE FROM profiles")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface PendingActionDao {
+    @Query("SELECT * FROM pending_actions WHERE synced = 0 ORDER BY timestamp ASC")
+    suspend fun getPendingActions(): List<PendingAction>
+
+    @Query("SELECT entityId FROM pending_actions WHERE synced = 0")
+    suspend fun getPendingEntityIds(): List<String>
+
+    @Query("SELECT entityId FROM pending_actions WHERE type = :type AND synced = 0")
+    suspend fun getPendingEntityIds(type: ActionType): List<String>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertAction(action: PendingAction)
+
+    @Query("UPDATE pending_actions SET synced = 1 WHERE id = :id")
+    suspend fun markActionSynced(id: Int)
+
+    @Query("DELETE FROM pending_actions WHERE type = :type AND entityId = :entityId AND synced = 0")
+    suspend fun deletePendingActions(type: ActionType, entityId: String)
+
+    @Query("DELETE FROM pending_actions WHERE synced = 1")
+    suspend fun deleteSyncedActions()
+
+    @Query("DELETE FROM pending_actions")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface ActivityLogDao {
+    @Query("SELECT * FROM activity_logs ORDER BY timestamp DESC LIMIT :limit")
+    fun getActivityLogs(limit: Int = 100): Flow<List<ActivityLog>>
+
+    @Query("SELECT * FROM activity_logs ORDER BY timestamp DESC LIMIT :limit")
+    suspend fun getActivityLogsList(limit: Int = 100): List<ActivityLog>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertActivityLog(log: ActivityLog)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertActivityLogs(logs: List<ActivityLog>)
+
+    @Query("DELETE FROM activity_logs")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface ItemPhotoDao {
+    @Query("SELECT * FROM item_photos WHERE item_id = :itemId ORDER BY position ASC, created_at ASC")
+    suspend fun getPhotosForItem(itemId: String): List<ItemPhoto>
+
+    @Query("SELECT * FROM item_photos WHERE item_id = :itemId ORDER BY position ASC, created_at ASC")
+    fun observePhotosForItem(itemId: String): Flow<List<ItemPhoto>>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertPhotos(photos: List<ItemPhoto>)
+
+    @Query("DELETE FROM item_photos WHERE item_id = :itemId")
+    suspend fun deletePhotosForItem(itemId: String)
+
+    @Query("UPDATE item_photos SET url = :url, thumbnail_url = :thumbnailUrl WHERE id = :id")
+    suspend fun updatePhotoUrls(id: String, url: String, thumbnailUrl: String?)
+
+    // Items whose local photo set has not been pushed yet; refreshes leave them alone
+    @Query("SELECT entityId FROM pending_actions WHERE type = 'SYNC_PHOTOS' AND synced = 0")
+    suspend fun getItemIdsWithUnsyncedPhotos(): List<String>
+
+    // Item ids are compared as text, matching the id ranges of catalogue buckets
+    @Query(
+        "DELETE FROM item_photos WHERE item_id >= :fromItemId AND (:toItemId IS NULL OR item_id < :toItemId) " +
+            "AND item_id NOT IN (SELECT entityId FROM pending_actions WHERE type = 'SYNC_PHOTOS' AND synced = 0)"
+    )
+    suspend fun deletePhotosInRange(fromItemId: String, toItemId: String?)
+
+    @Transaction
+    suspend fun replacePhotosInRange(fromItemId: String, toItemId: String?, photos: List<ItemPhoto>) {
+        deletePhotosInRange(fromItemId, toItemId)
+        val unsynced = getItemIdsWithUnsyncedPhotos().toHashSet()
+        insertPhotos(photos.filter { it.itemId !in unsynced })
+    }
+
+    @Transaction
+    suspend fun replacePhotosForItem(itemId: String, photos: List<ItemPhoto>) {
+        deletePhotosForItem(itemId)
+        insertPhotos(photos)
+    }
+
+    @Query("DELETE FROM item_photos")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface PhotoUploadDao {
+    @Query("SELECT * FROM photo_uploads ORDER BY created_at ASC")
+    suspend fun getUploads(): List<PhotoUpload>
+
+    @Query("SELECT * FROM photo_uploads WHERE item_id = :itemId")
+    suspend fun getUploadsForItem(itemId: String): List<PhotoUpload>
+
+    @Query("SELECT * FROM photo_uploads WHERE id = :id")
+    suspend fun getUpload(id: String): PhotoUpload?
+
+    @Query("SELECT COUNT(*) FROM photo_uploads")
+    fun observeUploadCount(): Flow<Int>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertUpload(upload: PhotoUpload)
+
+    @Query("UPDATE photo_uploads SET upload_url = :uploadUrl, bytes_uploaded = :bytesUploaded WHERE id = :id")
+    suspend fun updateProgress(id: String, uploadUrl: String?, bytesUploaded: Long)
+
+    @Query("UPDATE photo_uploads SET attempts = attempts + 1 WHERE id = :id")
+    suspend fun incrementAttempts(id: String)
+
+    @Query("DELETE FROM photo_uploads WHERE id = :id")
+    suspend fun deleteUpload(id: String)
+
+    @Query("DELETE FROM photo_uploads")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface ItemSearchDao {
+    @Query("SELECT item_id FROM search_index_queue LIMIT :limit")
+    suspend fun getQueuedIds(limit: Int): List<String>
+
+    @Query("SELECT COUNT(*) FROM search_index_queue")
+    fun observeQueueSize(): Flow<Int>
+
+    @Query("DELETE FROM search_index_queue WHERE item_id IN (:ids)")
+    suspend fun dequeue(ids: List<String>)
+
+    // Deleted items are indexed too; searches filter them out when loading rows
+    @Query("SELECT id, name, details FROM items WHERE id IN (:ids)")
+    suspend fun getSearchRows(ids: List<String>): List<ItemSearchRow>
+
+    @Query("DELETE FROM item_trigrams WHERE item_id IN (:ids)")
+    suspend fun deleteTrigrams(ids: List<String>)
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertTrigrams(trigrams: List<ItemTrigram>)
+
+    @Query("DELETE FROM item_search_text WHERE item_id IN (:ids)")
+    suspend fun deleteSearchText(ids: List<String>)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertSearchText(rows: List<ItemSearchText>)
+
+    // [normalized] holds only letters and digits, so it carries no LIKE wildcards
+    @Query(
+        """
+        SELECT items.* FROM items
+        INNER JOIN item_search_text t ON t.item_id = items.id
+        WHERE items.isDeleted = 0
+            AND (t.name LIKE '%' || :normalized || '%' OR t.details LIKE '%' || :normalized || '%')
+        ORDER BY items.name COLLATE NOCASE
+        """
+    )
+    fun observeNormalizedMatches(normalized: String): Flow<List<Item>>
+
+    @Query(
+        """
+        SELECT item_id AS itemId, COUNT(*) AS hits FROM item_trigrams
+        WHERE trigram IN (:trigrams)
+        GROUP BY item_id
+        HAVING COUNT(*) >= :minHits
+        ORDER BY hits DESC
+        LIMIT :limit
+        """
+    )
+    suspend fun findCandidates(trigrams: List<String>, minHits: Int, limit: Int): List<TrigramHit>
+}
+
+@Dao
+interface BarcodeLookupDao {
+    @Query("SELECT * FROM barcode_lookups WHERE barcode = :barcode")
+    suspend fun getLookup(barcode: String): BarcodeLookup?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertLookup(lookup: BarcodeLookup)
+
+    @Query("DELETE FROM barcode_lookups")
+    suspend fun deleteAll()
+}
+
+@Dao
+interface StockTakeDao {
+    // The session on screen: one sent but not yet confirmed, else the one being counted
+    @Query("SELECT * FROM stock_take_sessions ORDER BY submitted_at IS NULL, started_at DESC LIMIT 1")
+    suspend fun getOpenSession(): StockTakeSession?
+
+    @Query("SELECT * FROM stock_take_sessions ORDER BY submitted_at IS NULL, started_at DESC LIMIT 1")
+    fun observeOpenSession(): Flow<StockTakeSession?>
+
+    // At most one session takes counts at a time; see openSession
+    @Query("SELECT * FROM stock_take_sessions WHERE submitted_at IS NULL ORDER BY started_at DESC LIMIT 1")
+    suspend fun getCountingSession(): StockTakeSession?
+
+    @Query("SELECT * FROM stock_take_sessions WHERE submitted_at IS NOT NULL ORDER BY submitted_at LIMIT 1")
+    suspend fun getSubmittedSession(): StockTakeSession?
+
+    @Query("UPDATE stock_take_sessions SET submitted_at = :submittedAt WHERE id = :sessionId")
+    suspend fun markSubmitted(sessionId: String, submittedAt: Long)
+
+    @Insert
+    suspend fun insertSession(session: StockTakeSession)
+
+    @Transaction
+    suspend fun openSession(newSessionId: String): StockTakeSession {
+        return getCountingSession() ?: StockTakeSession(newSessionId).also { insertSession(it) }
+    }
+
+    @Query("SELECT counted FROM stock_take_lines WHERE session_id = :sessionId AND item_id = :itemId")
+    suspend fun getCounted(sessionId: String, itemId: String): Int?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertLine(line: StockTakeLine)
+
+    // Returns the new count; counts never go below zero
+    @Transaction
+    suspend fun addToLine(sessionId: String, itemId: String, units: Int): Int {
+        val counted = maxOf(0, (getCounted(sessionId, itemId) ?: 0) + units)
+        upsertLine(StockTakeLine(sessionId, itemId, counted))
+        return counted
+    }
+
+    @Query("DELETE FROM stock_take_lines WHERE session_id = :sessionId AND item_id = :itemId")
+    suspend fun deleteLine(sessionId: String, itemId: String)
+
+    @Query("SELECT * FROM stock_take_lines WHERE session_id = :sessionId")
+    suspend fun getLines(sessionId: String): List<StockTakeLine>
+
+    @Query("UPDATE stock_take_lines SET session_id = :toSessionId WHERE session_id = :fromSessionId AND item_id IN (:itemIds)")
+    suspend fun moveLines(fromSessionId: String, toSessionId: String, itemIds: List<String>)
+
+    // Joined with items, so variances follow quantity changes made while counting
+    @Query(
+        """
+        SELECT l.item_id AS itemId, i.name AS name, i.category AS category, i.quantity AS expected, l.counted AS counted
+        FROM stock_take_lines l
+        INNER JOIN items i ON i.id = l.item_id
+        WHERE l.session_id = :sessionId
+        ORDER BY ABS(l.counted - i.quantity) DESC, i.name COLLATE NOCASE
+        """
+    )
+    fun observeVariances(sessionId: String): Flow<List<StockTakeVariance>>
+
+    @Query("DELETE FROM stock_take_lines WHERE session_id = :sessionId")
+    suspend fun deleteLines(sessionId: String)
+
+    @Query("DELETE FROM stock_take_sessions WHERE id = :sessionId")
+    suspend fun deleteSessionRow(sessionId: String)
+
+    @Transaction
+    suspend fun deleteSession(sessionId: String) {
+        deleteLines(sessionId)
+        deleteSessionRow(sessionId)
+    }
+}
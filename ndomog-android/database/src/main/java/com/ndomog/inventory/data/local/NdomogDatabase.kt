@@ -0,0 +1,39 @@
+package com.ndomog.inventory.data.local
+
+import androidx.room.Database
+import androidx.room.RoomDatabase
+import androidx.room.TypeConverters
+import androidx.sqlite.db.SupportSQLiteDatabase
+import com.ndomog.inventory.data.models.*
+
+@Database(
+    entities = [
+        Item::class, Category::class, Profile::class, PendingAction::class, ActivityLog::class, ItemPhoto::class, PhotoUpload::class,
+        ItemTrigram::class, SearchIndexQueueEntry::class, BarcodeLookup::class, StockTakeSession::class, StockTakeLine::class,
+        ItemSearchText::class
+    ],
+    version = 12,
+    exportSchema = false
+)
+@TypeConverters(Converters::class)
+abstract class NdomogDatabase : RoomDatabase() {
+    companion object {
+        // Room has no notion of triggers, so new databases get them from this callback
+        val CALLBACK = object : Callback() {
+            override fun onCreate(db: SupportSQLiteDatabase) {
+                createSearchIndexTriggers(db)
+            }
+        }
+    }
+
+    abstract fun itemDao(): ItemDao
+    abstract fun categoryDao(): CategoryDao
+    abstract fun profileDao(): ProfileDao
+    abstract fun pendingActionDao(): PendingActionDao
+    abstract fun activityLogDao(): ActivityLogDao
+    abstract fun itemPhotoDao(): ItemPhotoDao
+    abstract fun photoUploadDao(): PhotoUploadDao
+    abstract fun itemSearchDao(): ItemSearchDao
+    abstract fun barcodeLookupDao(): BarcodeLookupDao
+    abstract fun stockTakeDao(): StockTakeDao
+}
@@ -0,0 +1,333 @@
+package com.ndomog.inventory.data.models
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+
+@Serializable
+@Entity(
+    tableName = "items",
+    // Columns that inventory queries filter on
+    indices = [
+        Index(value = ["category"]),
+        Index(value = ["quantity"]),
+        Index(value = ["sellingPrice"]),
+        Index(value = ["updatedAt"]),
+        Index(value = ["createdBy"]),
+        // Scanned codes resolve to an item without leaving the device
+        Index(value = ["barcode"])
+    ]
+)
+data class Item(
+    @PrimaryKey
+    val id: String = "",
+    val name: String,
+    val category: String,
+    @SerialName("category_id")
+    val categoryId: String? = null,
+    val details: String? = null,
+    val barcode: String? = null,
+    @SerialName("photo_url")
+    val photoUrl: String? = null,
+    // Small rendition of photoUrl for list cards
+    @SerialName("thumbnail_url")
+    val thumbnailUrl: String? = null,
+    @SerialName("buying_price")
+    val buyingPrice: Double = 0.0,
+    @SerialName("selling_price")
+    val sellingPrice: Double = 0.0,
+    val quantity: Int = 0,
+    @SerialName("low_stock_threshold")
+    val lowStockThreshold: Int = 5,
+    @SerialName("is_deleted")
+    val isDeleted: Boolean = false,
+    @SerialName("created_by")
+    val createdBy: String? = null,
+    @SerialName("created_at")
+    val createdAt: String? = null,
+    @SerialName("updated_at")
+    val updatedAt: String? = null,
+    @SerialName("deleted_at")
+    val deletedAt: String? = null,
+    @SerialName("deleted_by")
+    val deletedBy: String? = null
+)
+
+@Serializable
+@Entity(tableName = "categories")
+data class Category(
+    @PrimaryKey
+    val id: String = "",
+    val name: String,
+    @SerialName("created_by")
+    val createdBy: String? = null,
+    @SerialName("created_at")
+    val createdAt: String? = null
+)
+
+@Serializable
+@Entity(tableName = "profiles")
+data class Profile(
+    @PrimaryKey
+    val id: String,
+    val email: String,
+    val username: String? = null,
+    @SerialName("avatar_url")
+    val avatarUrl: String? = null
+)
+
+@Entity(tableName = "pending_actions")
+data class PendingAction(
+    @PrimaryKey(autoGenerate = true)
+    val id: Int = 0,
+    val type: ActionType,
+    val entityId: String,
+    val data: String, // JSON string of the data
+    val timestamp: Long = System.currentTimeMillis(),
+    val synced: Boolean = false
+)
+
+@Serializable
+@Entity(
+    tableName = "activity_logs",
+    indices = [
+        Index(value = ["user_id"]),
+        Index(value = ["timestamp"])
+    ]
+)
+data class ActivityLog(
+    @PrimaryKey
+    val id: String = "",
+    @ColumnInfo(name = "user_id")
+    @SerialName("user_id")
+    val userId: String,
+    val username: String,
+    val action: String, // CREATE, UPDATE, DELETE, UPDATE_QUANTITY
+    @ColumnInfo(name = "entity_type")
+    @SerialName("entity_type")
+    val entityType: String = "item", // item, category, etc
+    @ColumnInfo(name = "entity_id")
+    @SerialName("entity_id")
+    val entityId: String,
+    @ColumnInfo(name = "entity_name")
+    @SerialName("entity_name")
+    val entityName: String,
+    val timestamp: Long = System.currentTimeMillis(),
+    val details: String? = null // Optional additional details
+)
+
+enum class ActionType {
+    ADD_ITEM,
+    UPDATE_ITEM,
+    DELETE_ITEM,
+    UPDATE_QUANTITY,
+    ADD_CATEGORY,
+    // Push the locally cached photo set of an item once its uploads are done
+    SYNC_PHOTOS
+}
+
+@Serializable
+@Entity(
+    tableName = "item_photos",
+    indices = [Index(value = ["item_id"])]
+)
+data class ItemPhoto(
+    @PrimaryKey
+    val id: String = "",
+    @ColumnInfo(name = "item_id")
+    @SerialName("item_id")
+    val itemId: String,
+    val url: String,
+    @ColumnInfo(name = "thumbnail_url")
+    @SerialName("thumbnail_url")
+    val thumbnailUrl: String? = null,
+    val position: Int = 0,
+    @ColumnInfo(name = "created_at")
+    @SerialName("created_at")
+    val createdAt: String? = null
+)
+
+/**
+ * A processed photo waiting in app storage to be uploaded. Its id is also the
+ * id of the cached item_photos row that points at the local file until then.
+ */
+@Entity(
+    tableName = "photo_uploads",
+    indices = [Index(value = ["item_id"])]
+)
+data class PhotoUpload(
+    @PrimaryKey
+    val id: String,
+    @ColumnInfo(name = "item_id")
+    val itemId: String,
+    @ColumnInfo(name = "file_path")
+    val filePath: String,
+    @ColumnInfo(name = "thumbnail_path")
+    val thumbnailPath: String,
+    // Object paths in the item-photos bucket, chosen when the photo is queued
+    @ColumnInfo(name = "storage_path")
+    val storagePath: String,
+    @ColumnInfo(name = "thumbnail_storage_path")
+    val thumbnailStoragePath: String,
+    // Resumable upload session of an interrupted transfer, and how far it got
+    @ColumnInfo(name = "upload_url")
+    val uploadUrl: String? = null,
+    @ColumnInfo(name = "bytes_uploaded")
+    val bytesUploaded: Long = 0,
+    val attempts: Int = 0,
+    @ColumnInfo(name = "created_at")
+    val createdAt: Long = System.currentTimeMillis()
+)
+
+/**
+ * One trigram of an item's normalised name or details, for fuzzy search.
+ * Rows are rebuilt from [SearchIndexQueueEntry] rows, never written directly.
+ */
+@Entity(
+    tableName = "item_trigrams",
+    primaryKeys = ["trigram", "item_id"],
+    indices = [Index(value = ["item_id"])]
+)
+data class ItemTrigram(
+    val trigram: String,
+    @ColumnInfo(name = "item_id")
+    val itemId: String
+)
+
+/**
+ * An item's normalised name and details, for plain substring matches that
+ * ignore separators and case. Rebuilt alongside [ItemTrigram] rows.
+ */
+@Entity(tableName = "item_search_text")
+data class ItemSearchText(
+    @PrimaryKey
+    @ColumnInfo(name = "item_id")
+    val itemId: String,
+    val name: String,
+    val details: String
+)
+
+// An item whose trigrams are out of date; queued by triggers on items
+@Entity(tableName = "search_index_queue")
+data class SearchIndexQueueEntry(
+    @PrimaryKey
+    @ColumnInfo(name = "item_id")
+    val itemId: String
+)
+
+/**
+ * What the barcode-lookup edge function returned for a code no item carries,
+ * cached so rescanning it is instant and works offline. [found] is false for
+ * codes the product databases do not know.
+ */
+@Entity(tableName = "barcode_lookups")
+data class BarcodeLookup(
+    @PrimaryKey
+    val barcode: String,
+    val found: Boolean,
+    val name: String? = null,
+    val category: String? = null,
+    val details: String? = null,
+    @ColumnInfo(name = "image_url")
+    val imageUrl: String? = null,
+    val brand: String? = null,
+    @ColumnInfo(name = "fetched_at")
+    val fetchedAt: Long = System.currentTimeMillis()
+)
+
+/**
+ * A physical stock count in progress. Counts accumulate locally in
+ * [StockTakeLine] rows and reach the server in one batch when the session is
+ * committed, after which the session is deleted.
+ *
+ * Once a commit has sent the session, [submittedAt] is set and its lines no
+ * longer change, so a retry sends exactly what the server may already have
+ * applied. Counting carries on in a new session.
+ */
+@Entity(tableName = "stock_take_sessions")
+data class StockTakeSession(
+    @PrimaryKey
+    val id: String,
+    val note: String? = null,
+    @ColumnInfo(name = "started_at")
+    val startedAt: Long = System.currentTimeMillis(),
+    @ColumnInfo(name = "submitted_at")
+    val submittedAt: Long? = null
+) {
+    val isSubmitted: Boolean get() = submittedAt != null
+}
+
+// Units of one item counted so far in a stock take
+@Entity(
+    tableName = "stock_take_lines",
+    primaryKeys = ["session_id", "item_id"],
+    indices = [Index(value = ["item_id"])]
+)
+data class StockTakeLine(
+    @ColumnInfo(name = "session_id")
+    val sessionId: String,
+    @ColumnInfo(name = "item_id")
+    val itemId: String,
+    val counted: Int,
+    @ColumnInfo(name = "counted_at")
+    val countedAt: Long = System.currentTimeMillis()
+)
+
+@Serializable
+data class ItemPhotoInsert(
+    val id: String,
+    @SerialName("item_id")
+    val itemId: String,
+    val url: String,
+    @SerialName("thumbnail_url")
+    val thumbnailUrl: String? = null,
+    val position: Int
+)
+
+data class SyncResult(
+    val success: Boolean,
+    val itemsSynced: Int = 0,
+    val actionsSynced: Int = 0,
+    val errors: List<String> = emptyList()
+)
+
+// Lightweight projection of items used to compute the local catalogue digest
+data class ItemDigestRow(
+    val id: String,
+    val updatedAt: String?
+)
+
+// Dashboard totals, aggregated in SQL rather than over the item list
+data class DashboardStats(
+    val totalQuantity: Int = 0,
+    val totalCost: Double = 0.0,
+    val potentialProfit: Double = 0.0,
+    val lowStockCount: Int = 0
+)
+
+// The text of an item that goes into the search index
+data class ItemSearchRow(
+    val id: String,
+    val name: String,
+    val details: String?
+)
+
+// Number of query trigrams an item shares
+data class TrigramHit(
+    val itemId: String,
+    val hits: Int
+)
+
+// A counted item against the quantity the app currently holds for it
+data class StockTakeVariance(
+    val itemId: String,
+    val name: String,
+    val category: String,
+    val expected: Int,
+    val counted: Int
+) {
+    val variance: Int get() = counted - expected
+}
@@ -0,0 +1,115 @@
+package com.ndomog.microbenchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ndomog.inventory.data.local.InventoryQuery
+import com.ndomog.inventory.data.local.InventorySort
+import com.ndomog.inventory.data.local.ItemDao
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.local.StockLevel
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Hot [ItemDao] paths at catalogue sizes from a small shop to a large warehouse.
+ *
+ * Time and allocation counts are both reported by the benchmark runner.
+ * Run with `./gradlew :microbenchmark:connectedReleaseAndroidTest`.
+ */
+@RunWith(Parameterized::class)
+class ItemDaoBenchmark(private val itemCount: Int) {
+    companion object {
+        // Matches ItemCatalogIngest's chunk size for deletes
+        private const val DELETE_CHUNK = 900
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "items={0}")
+        fun sizes() = listOf(1_000, 10_000, 50_000)
+    }
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var database: NdomogDatabase
+    private lateinit var itemDao: ItemDao
+
+    @Before
+    fun setUp() {
+        database = SyntheticData.inMemoryDatabase(InstrumentationRegistry.getInstrumentation().targetContext)
+        itemDao = database.itemDao()
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun insertItems() {
+        val items = SyntheticData.items(itemCount)
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled { runBlocking { itemDao.deleteAll() } }
+            runBlocking { itemDao.insertItems(items) }
+        }
+    }
+
+    @Test
+    fun deleteStaleItems() {
+        // The refresh path: 10% of the local rows no longer exist remotely
+        val items = SyntheticData.items(itemCount)
+        val remoteIds = items.filterIndexed { index, _ -> index % 10 != 0 }.mapTo(HashSet()) { it.id }
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled { runBlocking { itemDao.insertItems(items) } }
+            runBlocking {
+                itemDao.getAllIds()
+                    .filterNot { it in remoteIds }
+                    .chunked(DELETE_CHUNK)
+                    .forEach { itemDao.deleteItemsByIds(it) }
+            }
+        }
+    }
+
+    @Test
+    fun getAllItemsFirstEmission() {
+        runBlocking { itemDao.insertItems(SyntheticData.items(itemCount)) }
+        benchmarkRule.measureRepeated {
+            runBlocking { itemDao.getAllItems().first() }
+        }
+    }
+
+    @Test
+    fun inventoryQueryFirstEmission() {
+        // A stock controller's slice: two categories running low, most valuable first
+        runBlocking { itemDao.insertItems(SyntheticData.items(itemCount)) }
+        val query = InventoryQuery(
+            categories = setOf("PUMPS", "VALVES"),
+            stock = StockLevel.LOW_STOCK,
+            sort = InventorySort.VALUE,
+            descending = true,
+            limit = 100
+        )
+        benchmarkRule.measureRepeated {
+            runBlocking {
+                itemDao.observeItems(query).first()
+                itemDao.observeCount(query).first()
+            }
+        }
+    }
+
+    @Test
+    fun updateQuantity() {
+        runBlocking { itemDao.insertItems(SyntheticData.items(itemCount)) }
+        val id = SyntheticData.itemId(itemCount / 2)
+        var quantity = 0
+        benchmarkRule.measureRepeated {
+            runBlocking { itemDao.updateQuantity(id, quantity++ % 40) }
+        }
+    }
+}
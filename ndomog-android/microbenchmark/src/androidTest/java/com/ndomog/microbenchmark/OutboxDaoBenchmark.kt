@@ -0,0 +1,73 @@
+package com.ndomog.microbenchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ndomog.inventory.data.local.NdomogDatabase
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Offline outbox ([com.ndomog.inventory.data.local.PendingActionDao]) and activity log writes.
+ */
+@RunWith(AndroidJUnit4::class)
+class OutboxDaoBenchmark {
+    companion object {
+        private const val PENDING_ACTIONS = 200
+        private const val ACTIVITY_LOGS = 1_000
+    }
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var database: NdomogDatabase
+
+    @Before
+    fun setUp() {
+        database = SyntheticData.inMemoryDatabase(InstrumentationRegistry.getInstrumentation().targetContext)
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun enqueuePendingActions() {
+        val pendingActionDao = database.pendingActionDao()
+        val actions = SyntheticData.pendingActions(PENDING_ACTIONS)
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled { runBlocking { pendingActionDao.deleteAll() } }
+            runBlocking { actions.forEach { pendingActionDao.insertAction(it) } }
+        }
+    }
+
+    @Test
+    fun drainPendingActions() {
+        // Mirrors SyncRepository: read the queue, mark each action synced, then purge
+        val pendingActionDao = database.pendingActionDao()
+        val actions = SyntheticData.pendingActions(PENDING_ACTIONS)
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled { runBlocking { actions.forEach { pendingActionDao.insertAction(it) } } }
+            runBlocking {
+                pendingActionDao.getPendingActions().forEach { pendingActionDao.markActionSynced(it.id) }
+                pendingActionDao.deleteSyncedActions()
+            }
+        }
+    }
+
+    @Test
+    fun insertActivityLogs() {
+        val activityLogDao = database.activityLogDao()
+        val logs = SyntheticData.activityLogs(ACTIVITY_LOGS)
+        benchmarkRule.measureRepeated {
+            runWithTimingDisabled { database.clearAllTables() }
+            runBlocking { activityLogDao.insertActivityLogs(logs) }
+        }
+    }
+}
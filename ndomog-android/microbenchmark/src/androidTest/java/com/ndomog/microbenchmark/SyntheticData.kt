@@ -0,0 +1,67 @@
+package com.ndomog.microbenchmark
+
+import android.content.Context
+import androidx.room.Room
+import com.ndomog.inventory.data.local.NdomogDatabase
+import com.ndomog.inventory.data.models.ActionType
+import com.ndomog.inventory.data.models.ActivityLog
+import com.ndomog.inventory.data.models.Item
+import com.ndomog.inventory.data.models.PendingAction
+import java.util.UUID
+
+/**
+ * Deterministic rows shaped like production data, for DAO benchmarks.
+ */
+object SyntheticData {
+    private val categories = listOf("FILTERS", "INJECTORS", "PUMPS", "VALVES", "SEALS", "BEARINGS", "NOZZLES", "GASKETS")
+
+    fun inMemoryDatabase(context: Context): NdomogDatabase =
+        Room.inMemoryDatabaseBuilder(context, NdomogDatabase::class.java)
+            .allowMainThreadQueries()
+            .addCallback(NdomogDatabase.CALLBACK)
+            .build()
+
+    fun itemId(index: Int): String = UUID.nameUUIDFromBytes("item-$index".toByteArray()).toString()
+
+    fun items(count: Int, offset: Int = 0): List<Item> = (offset until offset + count).map { index ->
+        val category = categories[index % categories.size]
+        val buyingPrice = 100.0 + (index % 97) * 25
+        Item(
+            id = itemId(index),
+            name = "$category part $index",
+            category = category,
+            categoryId = UUID.nameUUIDFromBytes(category.toByteArray()).toString(),
+            details = "Fits model ${index % 300}, bin ${index % 40}",
+            photoUrl = if (index % 3 == 0) "https://example.supabase.co/storage/v1/object/public/item-photos/$index.webp" else null,
+            buyingPrice = buyingPrice,
+            sellingPrice = buyingPrice * 1.3,
+            quantity = index % 40,
+            lowStockThreshold = 5,
+            createdBy = "00000000-0000-0000-0000-000000000001",
+            createdAt = "2026-01-01T00:00:00.000Z",
+            updatedAt = "2026-01-02T00:00:00.000Z"
+        )
+    }
+
+    fun pendingActions(count: Int): List<PendingAction> = (0 until count).map { index ->
+        PendingAction(
+            type = if (index % 2 == 0) ActionType.UPDATE_QUANTITY else ActionType.UPDATE_ITEM,
+            entityId = itemId(index),
+            data = """{"quantity":${index % 40}}""",
+            timestamp = 1_700_000_000_000L + index
+        )
+    }
+
+    fun activityLogs(count: Int): List<ActivityLog> = (0 until count).map { index ->
+        ActivityLog(
+            id = UUID.nameUUIDFromBytes("log-$index".toByteArray()).toString(),
+            userId = "00000000-0000-0000-0000-000000000001",
+            username = "bench",
+            action = "UPDATE_QUANTITY",
+            entityId = itemId(index),
+            entityName = "Item $index",
+            timestamp = 1_700_000_000_000L + index,
+            details = "Quantity changed from ${index % 40} to ${(index + 1) % 40}"
+        )
+    }
+}
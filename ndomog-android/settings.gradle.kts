@@ -16,3 +16,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Ndomog"
 include(":app")
+include(":benchmark")
+include(":database")
+include(":microbenchmark")
@@ -0,0 +1,57 @@
+import { createClient } from "https://esm.sh/@supabase/supabase-js@2";
+
+// Deletes item photos that nothing has referred to for the grace period of
+// orphaned_item_photo_objects, both content-addressed and older per-item
+// ones. Run on a schedule with the service role; clients never delete item
+// photos since items share them.
+
+const corsHeaders = {
+  "Access-Control-Allow-Origin": "*",
+  "Access-Control-Allow-Headers": "authorization, x-client-info, apikey, content-type",
+};
+
+const BUCKET = "item-photos";
+
+Deno.serve(async (req) => {
+  if (req.method === "OPTIONS") {
+    return new Response(null, { headers: corsHeaders });
+  }
+
+  try {
+    const supabaseUrl = Deno.env.get("SUPABASE_URL")!;
+    const supabaseServiceKey = Deno.env.get("SUPABASE_SERVICE_ROLE_KEY")!;
+    const supabase = createClient(supabaseUrl, supabaseServiceKey);
+
+    const { data: names, error: orphansError } = await supabase.rpc("orphaned_item_photo_objects");
+    if (orphansError) {
+      console.error("Error listing orphaned item photos:", orphansError);
+      throw orphansError;
+    }
+
+    const orphaned = (names || []) as string[];
+    if (orphaned.length > 0) {
+      const { error: removeError } = await supabase.storage.from(BUCKET).remove(orphaned);
+      if (removeError) {
+        console.error("Error deleting orphaned item photos:", removeError);
+        throw removeError;
+      }
+      await supabase.from("item_photo_orphans").delete().in("name", orphaned);
+    }
+
+    console.log(`Deleted ${orphaned.length} orphaned item photos`);
+    return new Response(
+      JSON.stringify({ deleted: orphaned.length }),
+      { headers: { ...corsHeaders, "Content-Type": "application/json" } }
+    );
+  } catch (error: unknown) {
+    console.error("Error in gc-item-photos:", error);
+    const errorMessage = error instanceof Error ? error.message : "Unknown error";
+    return new Response(
+      JSON.stringify({ error: errorMessage }),
+      {
+        status: 500,
+        headers: { ...corsHeaders, "Content-Type": "application/json" },
+      }
+    );
+  }
+});
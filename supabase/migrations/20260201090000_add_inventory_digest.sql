@@ -0,0 +1,26 @@
+-- Per-bucket digest of the live item catalogue, used by the app to skip
+-- downloading items that have not changed since its last refresh.
+--
+-- Items are bucketed by the first byte of their id. Each bucket's digest is
+-- the md5 of "id:updated_at_millis" pairs joined with ',' in id order, which
+-- the app recomputes over its local cache. Empty buckets are omitted.
+CREATE OR REPLACE FUNCTION public.inventory_digest(bucket_count INTEGER DEFAULT 16)
+RETURNS TABLE (bucket INTEGER, row_count BIGINT, digest TEXT)
+LANGUAGE sql
+STABLE
+SET search_path = public
+AS $$
+  SELECT
+    (get_byte(uuid_send(id), 0) * bucket_count / 256)::INTEGER AS bucket,
+    COUNT(*) AS row_count,
+    md5(string_agg(
+      id::text || ':' || COALESCE(floor(extract(epoch FROM updated_at) * 1000)::BIGINT, 0)::text,
+      ',' ORDER BY id
+    )) AS digest
+  FROM public.items
+  WHERE is_deleted = false
+  GROUP BY 1
+  ORDER BY 1
+$$;
+
+GRANT EXECUTE ON FUNCTION public.inventory_digest(INTEGER) TO authenticated;
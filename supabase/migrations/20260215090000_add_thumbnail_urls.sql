@@ -0,0 +1,4 @@
+-- Small renditions for list cards. The app uploads a thumbnail next to each
+-- full-size photo; rows without one fall back to photo_url / url.
+ALTER TABLE public.items ADD COLUMN IF NOT EXISTS thumbnail_url TEXT;
+ALTER TABLE public.item_photos ADD COLUMN IF NOT EXISTS thumbnail_url TEXT;
@@ -0,0 +1,22 @@
+-- Photo edits bump the owning item's updated_at, so the inventory_digest of
+-- that item's bucket changes and clients re-download its photos along with it.
+CREATE OR REPLACE FUNCTION public.touch_item_on_photo_change()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SET search_path = public
+AS $$
+BEGIN
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    UPDATE public.items SET updated_at = NOW() WHERE id = OLD.item_id;
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') AND (TG_OP = 'INSERT' OR NEW.item_id IS DISTINCT FROM OLD.item_id) THEN
+    UPDATE public.items SET updated_at = NOW() WHERE id = NEW.item_id;
+  END IF;
+  RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER touch_item_on_photo_change
+AFTER INSERT OR UPDATE OR DELETE ON public.item_photos
+FOR EACH ROW
+EXECUTE FUNCTION public.touch_item_on_photo_change();
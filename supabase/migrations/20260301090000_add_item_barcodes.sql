@@ -0,0 +1,4 @@
+-- Barcodes printed on parts, scanned in the app to find the item they belong to.
+-- Several rows may share a code (e.g. soft-deleted duplicates), so the index is not unique.
+ALTER TABLE public.items ADD COLUMN IF NOT EXISTS barcode TEXT;
+CREATE INDEX IF NOT EXISTS items_barcode_idx ON public.items (barcode) WHERE barcode IS NOT NULL;
@@ -0,0 +1,149 @@
+-- Physical stock counts (stock takes) committed from the app in one batch.
+--
+-- The app accumulates counts locally and sends the whole count to
+-- commit_stock_take, which applies it in a single transaction: every counted
+-- item is set to its counted quantity, each change is recorded as an
+-- 'adjustment' movement, and the count gets one activity log entry and one
+-- notification per other user instead of one of each per item.
+
+-- Sessions already applied, so a commit retried after a lost response changes
+-- nothing and gets the first attempt's result back
+CREATE TABLE IF NOT EXISTS public.stock_take_commits (
+  session_id UUID PRIMARY KEY,
+  committed_by UUID NOT NULL REFERENCES auth.users(id),
+  committed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  line_count INTEGER NOT NULL,
+  note TEXT,
+  applied JSONB NOT NULL DEFAULT '[]'::jsonb
+);
+
+ALTER TABLE public.stock_take_commits ENABLE ROW LEVEL SECURITY;
+
+CREATE POLICY "Authenticated users can view stock take commits"
+ON public.stock_take_commits FOR SELECT
+TO authenticated
+USING (true);
+
+CREATE POLICY "Users can record their own stock take commits"
+ON public.stock_take_commits FOR INSERT
+TO authenticated
+WITH CHECK (committed_by = auth.uid());
+
+-- commit_stock_take stores what it applied once the count is in
+CREATE POLICY "Users can store the result of their own stock take commits"
+ON public.stock_take_commits FOR UPDATE
+TO authenticated
+USING (committed_by = auth.uid())
+WITH CHECK (committed_by = auth.uid());
+
+-- counts is a JSON array of {"item_id": uuid, "counted": integer}. Deleted and
+-- unknown items are skipped. Returns every item the count was applied to,
+-- with previous_quantity equal to new_quantity where it did not change, so
+-- the caller can tell applied lines from skipped ones.
+CREATE OR REPLACE FUNCTION public.commit_stock_take(session_id UUID, counts JSONB, note TEXT DEFAULT NULL)
+RETURNS TABLE (item_id UUID, previous_quantity INTEGER, new_quantity INTEGER, updated_at TIMESTAMP WITH TIME ZONE)
+LANGUAGE plpgsql
+SET search_path = public
+AS $$
+#variable_conflict use_column
+DECLARE
+  actor UUID := auth.uid();
+  actor_email TEXT := COALESCE(auth.jwt() ->> 'email', 'unknown');
+  changes JSONB;
+  applied_lines JSONB;
+  line_total INTEGER;
+  adjusted_total INTEGER;
+  net_total INTEGER;
+  summary TEXT;
+BEGIN
+  IF actor IS NULL THEN
+    RAISE EXCEPTION 'Not authenticated' USING ERRCODE = '42501';
+  END IF;
+
+  line_total := jsonb_array_length(commit_stock_take.counts);
+
+  INSERT INTO public.stock_take_commits (session_id, committed_by, line_count, note)
+  VALUES (commit_stock_take.session_id, actor, line_total, commit_stock_take.note)
+  ON CONFLICT (session_id) DO NOTHING;
+  IF NOT FOUND THEN
+    RETURN QUERY
+    SELECT r.item_id, r.previous_quantity, r.new_quantity, r.updated_at
+    FROM public.stock_take_commits c,
+      jsonb_to_recordset(c.applied) AS r(item_id UUID, previous_quantity INTEGER, new_quantity INTEGER, updated_at TIMESTAMP WITH TIME ZONE)
+    WHERE c.session_id = commit_stock_take.session_id;
+    RETURN;
+  END IF;
+
+  -- All parts of the statement see the quantities from before the update
+  WITH counted AS (
+    SELECT c.item_id, GREATEST(c.counted, 0) AS counted
+    FROM jsonb_to_recordset(commit_stock_take.counts) AS c(item_id UUID, counted INTEGER)
+  ),
+  locked AS (
+    SELECT i.id, i.quantity AS previous_quantity, c.counted, i.updated_at
+    FROM public.items i
+    JOIN counted c ON c.item_id = i.id
+    WHERE i.is_deleted = false
+    FOR UPDATE OF i
+  ),
+  updated AS (
+    UPDATE public.items i
+    SET quantity = l.counted
+    FROM locked l
+    WHERE i.id = l.id AND l.previous_quantity <> l.counted
+    RETURNING i.id, l.previous_quantity, i.quantity AS new_quantity, i.updated_at
+  ),
+  movements AS (
+    INSERT INTO public.item_movements (item_id, user_id, delta, reason, previous_quantity, new_quantity, notes)
+    SELECT u.id, actor, u.new_quantity - u.previous_quantity, 'adjustment', u.previous_quantity, u.new_quantity, 'Stock take'
+    FROM updated u
+  )
+  SELECT
+    COALESCE(jsonb_agg(jsonb_build_object(
+      'item_id', l.id,
+      'previous_quantity', l.previous_quantity,
+      'new_quantity', l.counted,
+      'updated_at', COALESCE(u.updated_at, l.updated_at)
+    )), '[]'::jsonb),
+    COALESCE(jsonb_agg(jsonb_build_object(
+      'item_id', l.id,
+      'previous_quantity', l.previous_quantity,
+      'new_quantity', l.counted,
+      'updated_at', u.updated_at
+    )) FILTER (WHERE u.id IS NOT NULL), '[]'::jsonb),
+    COUNT(u.id),
+    COALESCE(SUM(l.counted - l.previous_quantity), 0)
+  INTO applied_lines, changes, adjusted_total, net_total
+  FROM locked l
+  LEFT JOIN updated u ON u.id = l.id;
+
+  UPDATE public.stock_take_commits c
+  SET applied = applied_lines
+  WHERE c.session_id = commit_stock_take.session_id;
+
+  summary := format(
+    'Counted %s items, %s adjusted, net change %s units',
+    line_total,
+    adjusted_total,
+    CASE WHEN net_total > 0 THEN '+' ELSE '' END || net_total
+  );
+
+  INSERT INTO public.activity_logs (user_id, user_email, action, item_name, details, snapshot_data)
+  VALUES (actor, actor_email, 'STOCK_TAKE', 'Stock take', summary, jsonb_build_object(
+    'session_id', commit_stock_take.session_id,
+    'note', commit_stock_take.note,
+    'adjustments', changes
+  ));
+
+  INSERT INTO public.notifications (user_id, action_user_email, action, item_name, details, is_read, type)
+  SELECT p.id, actor_email, 'stock take', 'Stock take', summary, false, 'QUANTITY_CHANGED'
+  FROM public.profiles p
+  WHERE p.id <> actor;
+
+  RETURN QUERY
+  SELECT r.item_id, r.previous_quantity, r.new_quantity, r.updated_at
+  FROM jsonb_to_recordset(applied_lines) AS r(item_id UUID, previous_quantity INTEGER, new_quantity INTEGER, updated_at TIMESTAMP WITH TIME ZONE);
+END;
+$$;
+
+GRANT EXECUTE ON FUNCTION public.commit_stock_take(UUID, JSONB, TEXT) TO authenticated;
@@ -0,0 +1,114 @@
+-- Garbage collection of content-addressed item photos.
+--
+-- Item photos are stored once per picture under sha256/<hash>.webp and shared
+-- by every item (and device) that attaches the same picture, so no client can
+-- tell when an object is safe to delete. The gc-item-photos edge function
+-- deletes the objects this migration reports as orphaned instead. Photos
+-- uploaded before content addressing, under items/<item id>/, are collected
+-- the same way.
+--
+-- An object is orphaned when no item_photos row and no item cover refers to
+-- it, and has been for at least a grace period: since the last reference to
+-- it went away, or since it was uploaded if nothing ever referred to it. The
+-- grace period covers uploads whose rows are still queued on a device, and a
+-- device that found the object already stored and is about to refer to it.
+
+-- Object name of a public item-photos URL, or NULL for any other URL
+CREATE OR REPLACE FUNCTION public.item_photo_object_name(url TEXT)
+RETURNS TEXT
+LANGUAGE sql
+IMMUTABLE
+AS $$
+  SELECT substring(url FROM '/storage/v1/object/public/item-photos/((sha256|items)/.+)$');
+$$;
+
+-- When each object last lost a reference
+CREATE TABLE IF NOT EXISTS public.item_photo_orphans (
+  name TEXT PRIMARY KEY,
+  orphaned_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+-- Only the service role reads and clears it
+ALTER TABLE public.item_photo_orphans ENABLE ROW LEVEL SECURITY;
+
+CREATE OR REPLACE FUNCTION public.record_item_photo_orphans()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+DECLARE
+  old_urls TEXT[];
+  new_urls TEXT[] := ARRAY[]::TEXT[];
+BEGIN
+  IF TG_TABLE_NAME = 'items' THEN
+    old_urls := ARRAY[OLD.photo_url, OLD.thumbnail_url];
+    IF TG_OP = 'UPDATE' THEN
+      new_urls := ARRAY[NEW.photo_url, NEW.thumbnail_url];
+    END IF;
+  ELSE
+    old_urls := ARRAY[OLD.url, OLD.thumbnail_url];
+    IF TG_OP = 'UPDATE' THEN
+      new_urls := ARRAY[NEW.url, NEW.thumbnail_url];
+    END IF;
+  END IF;
+
+  -- Restart the clock even if the object was orphaned before
+  INSERT INTO public.item_photo_orphans (name, orphaned_at)
+  SELECT DISTINCT public.item_photo_object_name(u), now()
+  FROM unnest(old_urls) AS u
+  WHERE u IS NOT NULL
+    -- A NULL among the new URLs would make <> ALL NULL and skip the row
+    AND u <> ALL (array_remove(new_urls, NULL))
+    AND public.item_photo_object_name(u) IS NOT NULL
+  ON CONFLICT (name) DO UPDATE SET orphaned_at = EXCLUDED.orphaned_at;
+
+  RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER record_item_photo_orphans
+AFTER UPDATE OR DELETE ON public.item_photos
+FOR EACH ROW
+EXECUTE FUNCTION public.record_item_photo_orphans();
+
+CREATE TRIGGER record_item_cover_orphans
+AFTER UPDATE OF photo_url, thumbnail_url OR DELETE ON public.items
+FOR EACH ROW
+EXECUTE FUNCTION public.record_item_photo_orphans();
+
+-- Names of objects that nothing has referred to for at least [grace], oldest first
+CREATE OR REPLACE FUNCTION public.orphaned_item_photo_objects(
+  grace INTERVAL DEFAULT INTERVAL '7 days',
+  max_count INTEGER DEFAULT 1000
+)
+RETURNS SETOF TEXT
+LANGUAGE sql
+STABLE
+SECURITY DEFINER
+SET search_path = public, storage
+AS $$
+  WITH referenced AS (
+    SELECT public.item_photo_object_name(url) AS name FROM public.item_photos
+    UNION
+    SELECT public.item_photo_object_name(thumbnail_url) FROM public.item_photos
+    UNION
+    SELECT public.item_photo_object_name(photo_url) FROM public.items
+    UNION
+    SELECT public.item_photo_object_name(thumbnail_url) FROM public.items
+  )
+  SELECT o.name
+  FROM storage.objects o
+  LEFT JOIN public.item_photo_orphans r ON r.name = o.name
+  WHERE o.bucket_id = 'item-photos'
+    AND (o.name LIKE 'sha256/%' OR o.name LIKE 'items/%')
+    AND COALESCE(r.orphaned_at, o.created_at) < now() - grace
+    AND NOT EXISTS (SELECT 1 FROM referenced WHERE referenced.name = o.name)
+  ORDER BY COALESCE(r.orphaned_at, o.created_at)
+  LIMIT max_count;
+$$;
+
+REVOKE ALL ON FUNCTION public.orphaned_item_photo_objects(INTERVAL, INTEGER) FROM PUBLIC, anon, authenticated;
+
+-- Only gc-item-photos, with the service role, deletes item photos now
+DROP POLICY IF EXISTS "Authenticated users can delete item photos" ON storage.objects;
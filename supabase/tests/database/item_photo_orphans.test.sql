@@ -0,0 +1,63 @@
+-- Orphan tracking behind gc-item-photos; run with `supabase test db`.
+BEGIN;
+CREATE EXTENSION IF NOT EXISTS pgtap WITH SCHEMA extensions;
+SELECT plan(7);
+
+-- Every object was uploaded long ago, so only a recorded orphaned_at keeps it within the grace period
+INSERT INTO storage.objects (bucket_id, name, created_at) VALUES
+  ('item-photos', 'sha256/cover.webp', now() - INTERVAL '30 days'),
+  ('item-photos', 'sha256/replacement.webp', now() - INTERVAL '30 days'),
+  ('item-photos', 'sha256/kept.webp', now() - INTERVAL '30 days'),
+  ('item-photos', 'sha256/kept_thumb.webp', now() - INTERVAL '30 days'),
+  ('item-photos', 'items/legacy/old.webp', now() - INTERVAL '30 days');
+
+INSERT INTO public.items (id, name, category, photo_url, thumbnail_url) VALUES
+  ('00000000-0000-0000-0000-000000000001', 'Cover only', 'TEST',
+   'https://example.supabase.co/storage/v1/object/public/item-photos/sha256/cover.webp', NULL),
+  ('00000000-0000-0000-0000-000000000002', 'Cover and thumbnail', 'TEST',
+   'https://example.supabase.co/storage/v1/object/public/item-photos/sha256/kept.webp',
+   'https://example.supabase.co/storage/v1/object/public/item-photos/sha256/kept_thumb.webp');
+
+-- The new thumbnail_url stays NULL while the cover changes
+UPDATE public.items
+SET photo_url = 'https://example.supabase.co/storage/v1/object/public/item-photos/sha256/replacement.webp'
+WHERE id = '00000000-0000-0000-0000-000000000001';
+
+SELECT ok(
+  EXISTS (SELECT 1 FROM public.item_photo_orphans WHERE name = 'sha256/cover.webp'),
+  'replacing a cover without a thumbnail records the old cover'
+);
+
+-- The thumbnail is dropped while the cover stays
+UPDATE public.items SET thumbnail_url = NULL WHERE id = '00000000-0000-0000-0000-000000000002';
+
+SELECT ok(
+  EXISTS (SELECT 1 FROM public.item_photo_orphans WHERE name = 'sha256/kept_thumb.webp'),
+  'clearing a thumbnail records it'
+);
+SELECT ok(
+  NOT EXISTS (SELECT 1 FROM public.item_photo_orphans WHERE name = 'sha256/kept.webp'),
+  'a URL still in use is not recorded'
+);
+
+SELECT ok(
+  'sha256/cover.webp' NOT IN (SELECT public.orphaned_item_photo_objects()),
+  'a just orphaned object waits out the grace period despite its age'
+);
+SELECT ok(
+  'sha256/replacement.webp' NOT IN (SELECT public.orphaned_item_photo_objects()),
+  'a referenced object is never collected'
+);
+SELECT ok(
+  'items/legacy/old.webp' IN (SELECT public.orphaned_item_photo_objects()),
+  'an unreferenced per-item object is collected'
+);
+
+SELECT is(
+  public.item_photo_object_name('https://example.supabase.co/storage/v1/object/public/avatars/users/1/avatar.webp'),
+  NULL::TEXT,
+  'URLs outside the item-photos bucket have no object name'
+);
+
+SELECT * FROM finish();
+ROLLBACK;